@@ -0,0 +1,171 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vvecmath.Transform;
+import eu.mihosoft.vvecmath.Vector3d;
+
+import java.util.Arrays;
+
+/**
+ * Immutable affine 3x4 matrix (row-major, translation in the last column) as
+ * used by the occ-csg {@code --transform matrix} command.
+ */
+final class AffineMatrix {
+
+    static final AffineMatrix IDENTITY = new AffineMatrix(new double[]{
+            1, 0, 0, 0,
+            0, 1, 0, 0,
+            0, 0, 1, 0});
+
+    private final double[] m;
+
+    private AffineMatrix(double[] m) {
+        this.m = m;
+    }
+
+    /**
+     * Returns the affine matrix of the specified transform.
+     * @param transform transform
+     * @return affine matrix of the specified transform
+     */
+    static AffineMatrix of(Transform transform) {
+        return new AffineMatrix(Arrays.copyOf(transform.to(), 12));
+    }
+
+    /**
+     * Returns the product {@code this * other}, i.e., a matrix that applies
+     * {@code other} first and this matrix afterwards.
+     * @param other matrix to apply before this matrix
+     * @return the product of this matrix and the specified matrix
+     */
+    AffineMatrix multiply(AffineMatrix other) {
+        double[] a = m;
+        double[] b = other.m;
+        double[] r = new double[12];
+
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                double v = a[row * 4] * b[col]
+                        + a[row * 4 + 1] * b[4 + col]
+                        + a[row * 4 + 2] * b[8 + col];
+                if (col == 3) {
+                    v += a[row * 4 + 3];
+                }
+                r[row * 4 + col] = v;
+            }
+        }
+
+        return new AffineMatrix(r);
+    }
+
+    /**
+     * Applies this matrix to the specified point.
+     * @param p point
+     * @return the transformed point
+     */
+    Vector3d apply(Vector3d p) {
+        return Vector3d.xyz(
+                m[0] * p.x() + m[1] * p.y() + m[2] * p.z() + m[3],
+                m[4] * p.x() + m[5] * p.y() + m[6] * p.z() + m[7],
+                m[8] * p.x() + m[9] * p.y() + m[10] * p.z() + m[11]);
+    }
+
+    /**
+     * Returns the determinant of the linear part of this matrix.
+     * @return the determinant of the linear part of this matrix
+     */
+    double determinant() {
+        return m[0] * (m[5] * m[10] - m[6] * m[9])
+                - m[1] * (m[4] * m[10] - m[6] * m[8])
+                + m[2] * (m[4] * m[9] - m[5] * m[8]);
+    }
+
+    /**
+     * Indicates whether this matrix maps coordinate axes onto coordinate axes, i.e.,
+     * whether each row of its linear part contains exactly one non-zero entry.
+     * @return {@code true} if this matrix maps axes onto axes; {@code false} otherwise
+     */
+    boolean isAxisAligned() {
+        for (int row = 0; row < 3; row++) {
+            int nonZero = 0;
+            for (int col = 0; col < 3; col++) {
+                if (m[row * 4 + col] != 0) {
+                    nonZero++;
+                }
+            }
+            if (nonZero != 1) {
+                return false;
+            }
+        }
+        return determinant() != 0;
+    }
+
+    /**
+     * Returns the scale factor of this matrix if it is a similarity transform
+     * (rotation, reflection, uniform scale and translation).
+     * @return the scale factor or {@code NaN} if this matrix is not a similarity transform
+     */
+    double getSimilarityScale() {
+        double eps = 1e-9;
+
+        double[] c0 = {m[0], m[4], m[8]};
+        double[] c1 = {m[1], m[5], m[9]};
+        double[] c2 = {m[2], m[6], m[10]};
+
+        double s0 = dot(c0, c0);
+        double s1 = dot(c1, c1);
+        double s2 = dot(c2, c2);
+
+        if (s0 == 0 || Math.abs(s0 - s1) > eps * s0 || Math.abs(s0 - s2) > eps * s0
+                || Math.abs(dot(c0, c1)) > eps * s0
+                || Math.abs(dot(c0, c2)) > eps * s0
+                || Math.abs(dot(c1, c2)) > eps * s0) {
+            return Double.NaN;
+        }
+
+        return Math.sqrt(s0);
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    /**
+     * Indicates whether this matrix is the identity.
+     * @return {@code true} if this matrix is the identity; {@code false} otherwise
+     */
+    boolean isIdentity() {
+        return Arrays.equals(m, IDENTITY.m);
+    }
+
+    /**
+     * Returns the comma separated matrix values as expected by occ-csg.
+     * @return the comma separated matrix values
+     */
+    String toArg() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < m.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(m[i]);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(m, ((AffineMatrix) o).m);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m);
+    }
+
+    @Override
+    public String toString() {
+        return "AffineMatrix{" + toArg() + '}';
+    }
+}
@@ -0,0 +1,177 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vvecmath.Vector3d;
+
+import java.util.List;
+
+/**
+ * Closed-form properties (exact bounds, volume and surface area) of a shape.
+ * Properties are known for primitives and are propagated through affine
+ * transformations. Unknown properties are {@code null} or {@code NaN}.
+ */
+final class AnalyticProperties {
+
+    private final Bounds bounds;
+    private final double volume;
+    private final double area;
+
+    /**
+     * Constructor.
+     * @param bounds exact bounds or {@code null} if unknown
+     * @param volume exact volume or {@code NaN} if unknown
+     * @param area exact surface area or {@code NaN} if unknown
+     */
+    private AnalyticProperties(Bounds bounds, double volume, double area) {
+        this.bounds = bounds;
+        this.volume = volume;
+        this.area = area;
+    }
+
+    /**
+     * Returns the properties of the specified box.
+     * @param min minimum corner
+     * @param max maximum corner
+     * @return properties of the specified box
+     */
+    static AnalyticProperties box(Vector3d min, Vector3d max) {
+        Bounds b = new Bounds(
+                Vector3d.xyz(Math.min(min.x(), max.x()), Math.min(min.y(), max.y()), Math.min(min.z(), max.z())),
+                Vector3d.xyz(Math.max(min.x(), max.x()), Math.max(min.y(), max.y()), Math.max(min.z(), max.z())));
+
+        double w = b.getWidth();
+        double h = b.getHeight();
+        double d = b.getDepth();
+
+        return new AnalyticProperties(b, w * h * d, 2 * (w * h + h * d + w * d));
+    }
+
+    /**
+     * Returns the properties of the specified sphere.
+     * @param center center
+     * @param r radius
+     * @return properties of the specified sphere
+     */
+    static AnalyticProperties sphere(Vector3d center, double r) {
+        r = Math.abs(r);
+
+        Bounds b = new Bounds(
+                Vector3d.xyz(center.x() - r, center.y() - r, center.z() - r),
+                Vector3d.xyz(center.x() + r, center.y() + r, center.z() + r));
+
+        return new AnalyticProperties(b, 4.0 / 3.0 * Math.PI * r * r * r, 4 * Math.PI * r * r);
+    }
+
+    /**
+     * Returns the properties of the specified cone (frustum) along the z-axis.
+     * @param origin center of the base
+     * @param r1 radius at the base
+     * @param r2 radius at the top
+     * @param h height
+     * @return properties of the specified cone
+     */
+    static AnalyticProperties cone(Vector3d origin, double r1, double r2, double h) {
+        r1 = Math.abs(r1);
+        r2 = Math.abs(r2);
+
+        double r = Math.max(r1, r2);
+
+        Bounds b = new Bounds(
+                Vector3d.xyz(origin.x() - r, origin.y() - r, origin.z() + Math.min(0, h)),
+                Vector3d.xyz(origin.x() + r, origin.y() + r, origin.z() + Math.max(0, h)));
+
+        h = Math.abs(h);
+
+        double volume = Math.PI * h / 3.0 * (r1 * r1 + r1 * r2 + r2 * r2);
+        double slant = Math.sqrt((r1 - r2) * (r1 - r2) + h * h);
+        double area = Math.PI * (r1 * r1 + r2 * r2) + Math.PI * (r1 + r2) * slant;
+
+        return new AnalyticProperties(b, volume, area);
+    }
+
+    /**
+     * Returns the properties of the specified extrusion of a simple planar polygon.
+     * @param dir extrusion direction
+     * @param vertices polygon vertices
+     * @return properties of the specified extrusion
+     */
+    static AnalyticProperties extrusion(Vector3d dir, List<Vector3d> vertices) {
+        int n = vertices.size();
+
+        double[] lo = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] hi = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+        // vector area of the polygon (Newell's method)
+        Vector3d normal = Vector3d.xyz(0, 0, 0);
+        double lateralArea = 0;
+
+        for (int i = 0; i < n; i++) {
+            Vector3d v = vertices.get(i);
+            Vector3d next = vertices.get((i + 1) % n);
+
+            normal = normal.plus(v.crossed(next));
+            lateralArea += next.minus(v).crossed(dir).magnitude();
+
+            Vector3d top = v.plus(dir);
+            lo[0] = Math.min(lo[0], Math.min(v.x(), top.x())); hi[0] = Math.max(hi[0], Math.max(v.x(), top.x()));
+            lo[1] = Math.min(lo[1], Math.min(v.y(), top.y())); hi[1] = Math.max(hi[1], Math.max(v.y(), top.y()));
+            lo[2] = Math.min(lo[2], Math.min(v.z(), top.z())); hi[2] = Math.max(hi[2], Math.max(v.z(), top.z()));
+        }
+
+        normal = normal.multiplied(0.5);
+
+        Bounds b = new Bounds(Vector3d.xyz(lo[0], lo[1], lo[2]), Vector3d.xyz(hi[0], hi[1], hi[2]));
+
+        return new AnalyticProperties(b,
+                Math.abs(normal.dot(dir)),
+                2 * normal.magnitude() + lateralArea);
+    }
+
+    /**
+     * Returns the properties of the empty shape.
+     * @return the properties of the empty shape
+     */
+    static AnalyticProperties empty() {
+        return new AnalyticProperties(null, 0, 0);
+    }
+
+    /**
+     * Returns the properties of this shape transformed by the specified matrix. The volume
+     * scales with the determinant. The surface area is only known for similarity transforms
+     * and the bounds are only exact for transforms that map axes onto axes.
+     * @param matrix transformation matrix
+     * @return the properties of the transformed shape
+     */
+    AnalyticProperties transformed(AffineMatrix matrix) {
+        Bounds b = bounds != null && matrix.isAxisAligned() ? bounds.transformed(matrix) : null;
+
+        double scale = matrix.getSimilarityScale();
+
+        return new AnalyticProperties(b,
+                Math.abs(matrix.determinant()) * volume,
+                scale * scale * area);
+    }
+
+    /**
+     * Returns the exact bounds.
+     * @return exact bounds or {@code null} if unknown
+     */
+    Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Returns the exact volume.
+     * @return exact volume or {@code NaN} if unknown
+     */
+    double getVolume() {
+        return volume;
+    }
+
+    /**
+     * Returns the exact surface area.
+     * @return exact surface area or {@code NaN} if unknown
+     */
+    double getArea() {
+        return area;
+    }
+}
@@ -0,0 +1,92 @@
+package eu.mihosoft.vcsg;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrently running asynchronous tasks. Tasks that
+ * exceed the limit are queued and started as soon as a running task completes.
+ * No thread is blocked while waiting.
+ */
+final class AsyncLimiter {
+
+    private final int limit;
+    private int running;
+    private final Deque<Runnable> queue = new ArrayDeque<>();
+
+    /**
+     * Constructor.
+     *
+     * @param limit maximum number of concurrently running tasks ({@code limit > 0})
+     */
+    AsyncLimiter(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than 0, got " + limit);
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Submits the specified task. The task is started immediately if the limit
+     * has not been reached yet.
+     *
+     * @param task task to submit
+     * @param <T> result type
+     * @return future that completes with the result of the task
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Runnable start = () -> {
+            CompletableFuture<T> f;
+            try {
+                f = task.get();
+            } catch (Throwable t) {
+                f = new CompletableFuture<>();
+                f.completeExceptionally(t);
+            }
+            f.whenComplete((r, t) -> {
+                release();
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(r);
+                }
+            });
+        };
+
+        boolean startNow;
+
+        synchronized (this) {
+            startNow = running < limit;
+            if (startNow) {
+                running++;
+            } else {
+                queue.add(start);
+            }
+        }
+
+        if (startNow) {
+            start.run();
+        }
+
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                running--;
+            }
+        }
+
+        if (next != null) {
+            next.run();
+        }
+    }
+}
@@ -83,6 +83,65 @@ public final class Bounds {
         return getDimensions().z();
     }
 
+    /**
+     * Indicates whether this bounding box and the specified bounding box are
+     * separated by more than the specified tolerance along at least one axis.
+     * @param other bounding box
+     * @param tolerance tolerance
+     * @return {@code true} if the bounding boxes are disjoint; {@code false} otherwise
+     */
+    boolean isDisjoint(Bounds other, double tolerance) {
+        return max.x() + tolerance < other.min.x() || other.max.x() + tolerance < min.x()
+                || max.y() + tolerance < other.min.y() || other.max.y() + tolerance < min.y()
+                || max.z() + tolerance < other.min.z() || other.max.z() + tolerance < min.z();
+    }
+
+    /**
+     * Returns the bounding box that contains this and the specified bounding box.
+     * @param other bounding box
+     * @return the bounding box that contains both bounding boxes
+     */
+    Bounds union(Bounds other) {
+        return new Bounds(
+                Vector3d.xyz(Math.min(min.x(), other.min.x()), Math.min(min.y(), other.min.y()), Math.min(min.z(), other.min.z())),
+                Vector3d.xyz(Math.max(max.x(), other.max.x()), Math.max(max.y(), other.max.y()), Math.max(max.z(), other.max.z())));
+    }
+
+    /**
+     * Returns the intersection of this and the specified (overlapping) bounding box.
+     * @param other bounding box
+     * @return the intersection of both bounding boxes
+     */
+    Bounds intersection(Bounds other) {
+        return new Bounds(
+                Vector3d.xyz(Math.max(min.x(), other.min.x()), Math.max(min.y(), other.min.y()), Math.max(min.z(), other.min.z())),
+                Vector3d.xyz(Math.min(max.x(), other.max.x()), Math.min(max.y(), other.max.y()), Math.min(max.z(), other.max.z())));
+    }
+
+    /**
+     * Returns the axis aligned bounding box of this bounding box transformed
+     * by the specified matrix.
+     * @param matrix transformation matrix
+     * @return the bounding box of the transformed corners of this bounding box
+     */
+    Bounds transformed(AffineMatrix matrix) {
+        double[] lo = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] hi = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+        for (int i = 0; i < 8; i++) {
+            Vector3d c = matrix.apply(Vector3d.xyz(
+                    (i & 1) == 0 ? min.x() : max.x(),
+                    (i & 2) == 0 ? min.y() : max.y(),
+                    (i & 4) == 0 ? min.z() : max.z()));
+
+            lo[0] = Math.min(lo[0], c.x()); hi[0] = Math.max(hi[0], c.x());
+            lo[1] = Math.min(lo[1], c.y()); hi[1] = Math.max(hi[1], c.y());
+            lo[2] = Math.min(lo[2], c.z()); hi[2] = Math.max(hi[2], c.z());
+        }
+
+        return new Bounds(Vector3d.xyz(lo[0], lo[1], lo[2]), Vector3d.xyz(hi[0], hi[1], hi[2]));
+    }
+
     /**
      * Returns this bounding box as CSG object.
      * @return this bounding box as CSG object
@@ -1,5 +1,10 @@
 package eu.mihosoft.vcsg;
 
+import eu.mihosoft.vcsg.util.CancellationToken;
+import eu.mihosoft.vcsg.util.ProcessScheduler;
+import eu.mihosoft.vcsg.util.ResultCache;
+import eu.mihosoft.vcsg.util.ScratchFile;
+import eu.mihosoft.vcsg.util.ScratchSpace;
 import eu.mihosoft.vvecmath.Transform;
 import eu.mihosoft.vvecmath.Vector3d;
 
@@ -9,8 +14,21 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -18,14 +36,30 @@ import java.util.stream.Stream;
 
 /**
  * A simple but effective CSG API based on the occ-csg command line tool.
+ *
+ * <p>Intermediate shape files are stored in the scratch space (see
+ * {@link #setScratchSpace(ScratchSpace)}). They are deleted once no CSG object
+ * uses them anymore, i.e., after the CSG objects have been closed (see
+ * {@link #close()}) or have become unreachable.</p>
  */
-public final class CSG {
-    private File file;
+public final class CSG implements AutoCloseable {
+    private final Shape shape;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     private static String defaultFileType = ".brep";
     private String fileType = defaultFileType;
     private double fuzzyValue = 0;
 
+    private static volatile boolean lazyEvaluation;
+    private static volatile int maxParallelism = Runtime.getRuntime().availableProcessors();
+    private static final AtomicLong differenceSubtractionsSaved = new AtomicLong();
+    private static volatile ResultCache resultCache;
+    private static final PrimitiveCache primitiveCache = new PrimitiveCache(256);
+    private static volatile boolean boundsFastPath;
+    private static final Map<String, String> versions = new ConcurrentHashMap<>();
+    private static final AtomicLong skippedBooleans = new AtomicLong();
+    private static volatile ScratchSpace scratchSpace;
+
     /**
      * Sets the BREP file format as internal representation of this CSG object.
      *
@@ -62,18 +96,150 @@ public final class CSG {
         defaultFileType = ".stp";
     }
 
-    CSG(String fileType) {
+    private CSG(File f, String fileType) {
+        this(new Shape(f, fileType), fileType);
+    }
+
+    private CSG(Shape shape, String fileType) {
+        this.shape = shape;
+        this.setFileType(fileType);
+        shape.retain();
+    }
+
+    /**
+     * Returns a new CSG object that takes over the reference of the caller to the
+     * specified (retained) shape.
+     * @param shape retained shape
+     * @param fileType file type of the new CSG object
+     * @return new CSG object
+     */
+    private static CSG adopt(Shape shape, String fileType) {
         try {
-            this.setFileType(fileType);
-            file = Files.createTempFile("_vcsg_",  getFileType()).toFile();
-        } catch (IOException e) {
-            throw new RuntimeException("cannot create csg object because tmp file cannot be created", e);
+            return new CSG(shape, fileType);
+        } finally {
+            shape.release();
         }
     }
 
-    private CSG(File f, String fileType) {
-        this.file = f;
-        this.setFileType(fileType);
+    /**
+     * Releases the geometry of this CSG object. Its shape file is deleted
+     * (asynchronously) unless it is shared by other CSG objects, pending
+     * operations or the primitive cache. Unreachable CSG objects are released
+     * automatically, closing them releases their files deterministically. This
+     * CSG object must not be used after it has been closed. Subsequent calls
+     * have no effect.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            shape.release();
+        }
+    }
+
+    /**
+     * Sets the scratch space for the intermediate shape files of all CSG objects, e.g.,
+     * <pre>
+     * CSG.setScratchSpace(ScratchSpace.open(new File("/mnt/fast-disk"), 4L * 1024 * 1024 * 1024, null));
+     * </pre>
+     * Existing CSG objects keep their files in the previous scratch space.
+     * @param space scratch space
+     * @see ScratchSpace#openDefault()
+     */
+    public static void setScratchSpace(ScratchSpace space) {
+        scratchSpace = Objects.requireNonNull(space);
+    }
+
+    /**
+     * Returns the scratch space for the intermediate shape files of all CSG objects.
+     * The default scratch space is opened on first use.
+     * @return the scratch space
+     * @see #setScratchSpace(ScratchSpace)
+     */
+    public static ScratchSpace getScratchSpace() {
+        ScratchSpace space = scratchSpace;
+
+        if (space == null) {
+            synchronized (CSG.class) {
+                if (scratchSpace == null) {
+                    scratchSpace = ScratchSpace.openDefault();
+                }
+                space = scratchSpace;
+            }
+        }
+
+        return space;
+    }
+
+    /**
+     * Enables or disables lazy evaluation for all CSG objects. If enabled, CSG operations
+     * do not call occ-csg. Instead, they record the operation and its operands. The resulting
+     * operation graph is evaluated once geometry is actually needed, e.g., by
+     * {@link #toSTL(File)}, {@link #toSTEP(File)}, {@link #toBREP(File)}, {@link #getBounds()}
+     * or {@link #computeVolume()}. Independent parts of the graph are evaluated in parallel
+     * (see {@link #setMaxParallelism(int)}) and shared parts are evaluated only once.
+     * @param lazy defines whether to enable lazy evaluation
+     */
+    public static void setLazyEvaluationEnabled(boolean lazy) {
+        lazyEvaluation = lazy;
+    }
+
+    /**
+     * Indicates whether lazy evaluation is enabled.
+     * @return {@code true} if lazy evaluation is enabled; {@code false} otherwise
+     * @see #setLazyEvaluationEnabled(boolean)
+     */
+    public static boolean isLazyEvaluationEnabled() {
+        return lazyEvaluation;
+    }
+
+    /**
+     * Sets the persistent result cache used by all CSG objects. Operations whose result is
+     * contained in the cache do not call occ-csg. Instead, the resulting CSG object is backed
+     * by the cached result. The cache can be shared by several JVMs, e.g.,
+     * <pre>
+     * CSG.setResultCache(ResultCache.open(new File("vcsg-cache"), 1024L * 1024 * 1024));
+     * </pre>
+     * @param cache result cache or {@code null} to disable result caching
+     */
+    public static void setResultCache(ResultCache cache) {
+        resultCache = cache;
+    }
+
+    /**
+     * Returns the persistent result cache used by all CSG objects.
+     * @return the result cache or {@code null} if result caching is disabled
+     * @see #setResultCache(ResultCache)
+     */
+    public static ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Indicates whether the geometry of this CSG object has already been computed.
+     * @return {@code true} if this CSG object has been evaluated; {@code false} if its evaluation is deferred
+     * @see #setLazyEvaluationEnabled(boolean)
+     */
+    public boolean isEvaluated() {
+        return shape.isEvaluated();
+    }
+
+    /**
+     * Evaluates this CSG object if its evaluation has been deferred.
+     * @return this CSG object
+     * @see #setLazyEvaluationEnabled(boolean)
+     */
+    public CSG evaluate() {
+        shape.getFile();
+        return this;
+    }
+
+    /**
+     * Asynchronously evaluates this CSG object if its evaluation has been deferred.
+     * @return future that completes with this CSG object once it has been evaluated
+     * @see #setLazyEvaluationEnabled(boolean)
+     */
+    public CompletableFuture<CSG> evaluateAsync() {
+        return shape.evaluateAsync(new AsyncLimiter(getMaxParallelism())).thenApply(f -> this);
     }
 
     /**
@@ -118,24 +284,236 @@ public final class CSG {
      * @return a deep clone of this CSG object
      */
     public CSG clone() {
-        return new CSG(getFile(), getFileType());
+        return new CSG(shape, getFileType());
     }
 
     /**
      * Computes the difference between this CSG object and the specified CSG objects.
+     * The cutters are unified first (see {@link #union(List)}) and subtracted from
+     * this CSG object with a single difference operation. If lazy evaluation is enabled,
+     * the operations are recorded and not executed.
      * @param others CSG objects to be removed from this CSG.
      * @return difference between this CSG object and the specified CSG objects
+     * @see #difference(List, int)
      */
     public CSG difference(List<CSG> others) {
+        return difference(others, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes the difference between this CSG object and the specified CSG objects.
+     * The cutters are grouped by spatial locality into groups of at most {@code maxGroupSize}
+     * objects. The cutters of each group are unified in parallel and each group is subtracted
+     * from this CSG object with a single difference operation.
+     * @param others CSG objects to be removed from this CSG.
+     * @param maxGroupSize maximum number of cutters per group ({@code maxGroupSize > 0})
+     * @return difference between this CSG object and the specified CSG objects
+     * @see #getDifferenceSubtractionsSaved()
+     */
+    public CSG difference(List<CSG> others, int maxGroupSize) {
+
+        if (!isLazyEvaluationEnabled()) {
+            return await(differenceAsync(others, maxGroupSize));
+        }
 
-        CSG result = this.clone();
-        for (CSG csg : others) {
-            result = result.difference(csg);
+        if (others.isEmpty()) {
+            return this.clone();
+        }
+
+        List<List<CSG>> cutterGroups = groupCutters(others, maxGroupSize);
+
+        CSG result = this;
+
+        for (List<CSG> group : cutterGroups) {
+            result = result.difference(reduce(group, 0, group.size()));
         }
 
         return result;
     }
 
+    /**
+     * Asynchronously computes the difference between this CSG object and the specified CSG objects.
+     * @param others CSG objects to be removed from this CSG.
+     * @return future that completes with the difference between this CSG object and the specified CSG objects
+     * @see #difference(List)
+     */
+    public CompletableFuture<CSG> differenceAsync(List<CSG> others) {
+        return differenceAsync(others, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Asynchronously computes the difference between this CSG object and the specified CSG objects.
+     * @param others CSG objects to be removed from this CSG.
+     * @param maxGroupSize maximum number of cutters per group ({@code maxGroupSize > 0})
+     * @return future that completes with the difference between this CSG object and the specified CSG objects
+     * @see #difference(List, int)
+     */
+    public CompletableFuture<CSG> differenceAsync(List<CSG> others, int maxGroupSize) {
+
+        if (others.isEmpty()) {
+            return CompletableFuture.completedFuture(this.clone());
+        }
+
+        AsyncLimiter limiter = new AsyncLimiter(getMaxParallelism());
+
+        ProcessScheduler.Priority priority = ProcessScheduler.getCurrentPriority();
+        CancellationToken token = CancellationToken.current();
+
+        List<List<CSG>> cutterGroups;
+
+        try {
+            cutterGroups = groupCutters(others, maxGroupSize);
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        // the group tools are created concurrently and subtracted
+        // from the base body as soon as they are available
+        CompletableFuture<CSG> result = CompletableFuture.completedFuture(this);
+
+        for (List<CSG> group : cutterGroups) {
+            CompletableFuture<CSG> tool = reduceAsync(group, 0, group.size(), limiter);
+            result = result.thenCombine(tool, (base, t) -> inContext(priority, token,
+                    () -> base.differenceAsync(t))).thenCompose(f -> f);
+        }
+
+        return result;
+    }
+
+    /**
+     * Splits the specified cutters into groups of at most {@code maxGroupSize} objects.
+     * Each group is subtracted with a single difference operation. The cutters are
+     * grouped and ordered by spatial locality (see {@link #groupByLocality(List, int)}).
+     * @param cutters cutters to group
+     * @param maxGroupSize maximum number of cutters per group ({@code maxGroupSize > 0})
+     * @return the groups
+     */
+    private static List<List<CSG>> groupCutters(List<CSG> cutters, int maxGroupSize) {
+
+        if (maxGroupSize < 1) {
+            throw new IllegalArgumentException("Group size must be greater than 0, got " + maxGroupSize);
+        }
+
+        // long arithmetic, the default group size is Integer.MAX_VALUE
+        int numGroups = (int) ((cutters.size() + (long) maxGroupSize - 1) / maxGroupSize);
+
+        // a single group is sorted as well, i.e., the balanced reduction of
+        // the group unifies neighboring cutters first
+        List<List<CSG>> cutterGroups = groupByLocality(cutters, numGroups);
+
+        // one subtraction from the base body per group instead of one per cutter
+        // (the cutters of a group are unified instead, i.e., the number of processes does not change)
+        int saved = cutters.size() - cutterGroups.size();
+        differenceSubtractionsSaved.addAndGet(saved);
+        Logger.getLogger(CSG.class.getName()).log(Level.FINE,
+                "difference of {0} cutters in {1} group(s), {2} subtraction(s) from the base body saved",
+                new Object[]{cutters.size(), cutterGroups.size(), saved});
+
+        return cutterGroups;
+    }
+
+    /**
+     * Groups the specified objects by spatial locality. Objects with known bounds (analytic,
+     * memoized or conservative) are sorted along a Z-order curve (based on the centers of
+     * their bounding boxes). Objects with unknown bounds follow in their original order, i.e.,
+     * grouping never calls occ-csg. The sorted objects are split into groups of equal size.
+     * @param csgs objects to group
+     * @param numGroups number of groups
+     * @return the groups
+     */
+    private static List<List<CSG>> groupByLocality(List<CSG> csgs, int numGroups) {
+
+        Vector3d[] centers = new Vector3d[csgs.size()];
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < centers.length; i++) {
+            Bounds b = csgs.get(i).shape.getBounds();
+            if (b == null) {
+                b = csgs.get(i).shape.getBoundsHint();
+            }
+            if (b == null) {
+                continue;
+            }
+
+            Vector3d c = b.getCenter();
+            centers[i] = c;
+            minX = Math.min(minX, c.x()); maxX = Math.max(maxX, c.x());
+            minY = Math.min(minY, c.y()); maxY = Math.max(maxY, c.y());
+            minZ = Math.min(minZ, c.z()); maxZ = Math.max(maxZ, c.z());
+        }
+
+        long[] codes = new long[centers.length];
+
+        for (int i = 0; i < centers.length; i++) {
+            codes[i] = centers[i] == null ? Long.MAX_VALUE : mortonCode(
+                    quantize(centers[i].x(), minX, maxX),
+                    quantize(centers[i].y(), minY, maxY),
+                    quantize(centers[i].z(), minZ, maxZ));
+        }
+
+        // stable sort, i.e., objects with unknown bounds keep their order
+        List<Integer> order = IntStream.range(0, centers.length).boxed().
+                sorted(Comparator.comparingLong(i -> codes[i])).
+                collect(Collectors.toList());
+
+        List<List<CSG>> groups = new ArrayList<>(numGroups);
+
+        for (int g = 0; g < numGroups; g++) {
+            int from = (int) ((long) g * order.size() / numGroups);
+            int to = (int) ((long) (g + 1) * order.size() / numGroups);
+
+            List<CSG> group = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                group.add(csgs.get(order.get(i)));
+            }
+            groups.add(group);
+        }
+
+        return groups;
+    }
+
+    /**
+     * Maps the specified value from {@code [min,max]} to {@code [0,2^21-1]}.
+     */
+    private static long quantize(double value, double min, double max) {
+        if (max - min <= 0) {
+            return 0;
+        }
+        return (long) ((value - min) / (max - min) * ((1 << 21) - 1));
+    }
+
+    /**
+     * Interleaves the bits of the specified 21 bit coordinates (Z-order curve).
+     */
+    private static long mortonCode(long x, long y, long z) {
+        return spreadBits(x) | (spreadBits(y) << 1) | (spreadBits(z) << 2);
+    }
+
+    private static long spreadBits(long v) {
+        v &= 0x1fffffL;
+        v = (v | v << 32) & 0x1f00000000ffffL;
+        v = (v | v << 16) & 0x1f0000ff0000ffL;
+        v = (v | v << 8) & 0x100f00f00f00f00fL;
+        v = (v | v << 4) & 0x10c30c30c30c30c3L;
+        v = (v | v << 2) & 0x1249249249249249L;
+        return v;
+    }
+
+    /**
+     * Returns the number of subtractions from a base body that were saved by
+     * {@link #difference(List)} and {@link #difference(List, int)} since the cutters
+     * are unified before they are subtracted. Each saved subtraction is replaced by a
+     * union of (small) cutters that runs in parallel to other unions, i.e., the total
+     * number of occ-csg processes does not decrease, but fewer of them operate on the
+     * (usually large) base body.
+     * @return the number of saved subtractions from a base body
+     */
+    public static long getDifferenceSubtractionsSaved() {
+        return differenceSubtractionsSaved.get();
+    }
+
         /**
      * Computes the difference between this CSG object and the specified CSG objects.
      * @param others CSG objects to be removed from this CSG.
@@ -151,32 +529,25 @@ public final class CSG {
      * @return difference between this CSG object and the specified CSG object
      */
     public CSG difference(CSG other) {
-
-        CSG result = new CSG(fileType);
-
-        String[] exeArgs;
-
-        if (Double.compare(getFuzzyValue(), 0) == 0) {
-            exeArgs = new String[]{"--csg", "difference",
-                    getFile().getAbsolutePath(),
-                    other.getFile().getAbsolutePath(),
-                    result.getFile().getAbsolutePath()};
-        } else {
-            exeArgs = new String[]{"--csg", "difference",
-                    getFile().getAbsolutePath(),
-                    other.getFile().getAbsolutePath(),
-                    result.getFile().getAbsolutePath(),
-                    "0.1",
-                    "" + getFuzzyValue()};
+        CSG fast = fastDifference(other);
+        if (fast != null) {
+            return fast;
         }
+        return derive(booleanOp("difference", other), fileType);
+    }
 
-        int exitValue = VCSG.execute(exeArgs).print(null, System.err).getProcess().exitValue();
-
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+    /**
+     * Asynchronously computes the difference between this CSG object and the specified CSG object.
+     * @param other CSG object to be removed from this CSG.
+     * @return future that completes with the difference between this CSG object and the specified CSG object
+     * @see #difference(CSG)
+     */
+    public CompletableFuture<CSG> differenceAsync(CSG other) {
+        CSG fast = fastDifference(other);
+        if (fast != null) {
+            return CompletableFuture.completedFuture(fast);
         }
-
-        return result;
+        return deriveAsync(booleanOp("difference", other), fileType);
     }
 
     /**
@@ -190,89 +561,471 @@ public final class CSG {
 
     /**
      * Returns the union of this CSG object and the specified CSG objects.
+     * The operands are merged pairwise in a balanced binary tree. Independent
+     * merges run concurrently (see {@link #setMaxParallelism(int)}). Thus,
+     * unifying {@code n} objects takes about {@code log2(n)} sequential
+     * steps and the intermediate operands stay small.
      * @param others CSG objects to unify with this CSG object
      * @return the union of this CSG object and the specified CSG objects
      */
     public CSG union(List<CSG> others) {
 
-        CSG result = this.clone();
-        for (CSG csg : others) {
-            result = result.union(csg);
+        if (!isLazyEvaluationEnabled()) {
+            return await(unionAsync(others));
+        }
+
+        if (others.isEmpty()) {
+            return this.clone();
+        }
+
+        List<CSG> operands = new ArrayList<>(others.size() + 1);
+        operands.add(this);
+        operands.addAll(others);
+
+        return reduce(operands, 0, operands.size());
+    }
+
+    /**
+     * Asynchronously computes the union of this CSG object and the specified CSG objects.
+     * @param others CSG objects to unify with this CSG object
+     * @return future that completes with the union of this CSG object and the specified CSG objects
+     * @see #union(List)
+     */
+    public CompletableFuture<CSG> unionAsync(List<CSG> others) {
+
+        if (others.isEmpty()) {
+            return CompletableFuture.completedFuture(this.clone());
+        }
+
+        List<CSG> operands = new ArrayList<>(others.size() + 1);
+        operands.add(this);
+        operands.addAll(others);
+
+        return reduceAsync(operands, 0, operands.size(),
+                new AsyncLimiter(getMaxParallelism()));
+    }
+
+    /**
+     * Unifies the specified range of operands (balanced binary tree reduction).
+     * @param operands operands to unify
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return the union of the specified operands
+     */
+    private static CSG reduce(List<CSG> operands, int from, int to) {
+
+        if (to - from == 1) {
+            return operands.get(from);
+        }
+
+        int mid = (from + to) >>> 1;
+
+        return reduce(operands, from, mid).union(reduce(operands, mid, to));
+    }
+
+    /**
+     * Asynchronously unifies the specified range of operands (balanced binary tree reduction).
+     * @param operands operands to unify
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @param limiter limits the number of concurrent merges
+     * @return future that completes with the union of the specified operands
+     */
+    private static CompletableFuture<CSG> reduceAsync(
+            List<CSG> operands, int from, int to, AsyncLimiter limiter) {
+
+        if (to - from == 1) {
+            return CompletableFuture.completedFuture(operands.get(from));
+        }
+
+        int mid = (from + to) >>> 1;
+
+        CompletableFuture<CSG> left = reduceAsync(operands, from, mid, limiter);
+        CompletableFuture<CSG> right = reduceAsync(operands, mid, to, limiter);
+
+        ProcessScheduler.Priority priority = ProcessScheduler.getCurrentPriority();
+        CancellationToken token = CancellationToken.current();
+
+        return left.thenCombine(right,
+                (l, r) -> limiter.submit(() -> inContext(priority, token, () -> l.unionAsync(r)))).
+                thenCompose(f -> f);
+    }
+
+    /**
+     * Runs the specified task with the specified priority class and cancellation token.
+     * Continuations of composite operations run on other threads, i.e., they restore the
+     * context of the thread that started the composite operation.
+     * @param priority priority class
+     * @param token cancellation token
+     * @param task task to run
+     * @return the result of the task
+     * @throws java.util.concurrent.CancellationException if the token has been cancelled
+     */
+    private static <T> T inContext(ProcessScheduler.Priority priority, CancellationToken token, Supplier<T> task) {
+        return ProcessScheduler.callWithPriority(priority, () -> token.call(task));
+    }
+
+    /**
+     * Sets the maximum number of occ-csg processes a single composite operation,
+     * e.g., {@link #union(List)}, runs concurrently.
+     * @param maxParallelism maximum number of concurrent processes ({@code maxParallelism > 0})
+     */
+    public static void setMaxParallelism(int maxParallelism) {
+        if (maxParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0, got " + maxParallelism);
+        }
+        CSG.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * Returns the maximum number of occ-csg processes a single composite operation runs concurrently
+     * (defaults to the number of available processors).
+     * @return the maximum number of concurrent processes
+     */
+    public static int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    /**
+     * Returns the union of this CSG object and the specified CSG object.
+     * @param other CSG object to unify with this CSG object
+     * @return the union of this CSG object and the specified CSG object
+     */
+    public CSG union(CSG other) {
+        CSG fast = fastUnion(other);
+        if (fast != null) {
+            return fast;
+        }
+        return derive(booleanOp("union", other), fileType);
+    }
+
+    /**
+     * Asynchronously computes the union of this CSG object and the specified CSG object.
+     * @param other CSG object to unify with this CSG object
+     * @return future that completes with the union of this CSG object and the specified CSG object
+     * @see #union(CSG)
+     */
+    public CompletableFuture<CSG> unionAsync(CSG other) {
+        CSG fast = fastUnion(other);
+        if (fast != null) {
+            return CompletableFuture.completedFuture(fast);
+        }
+        return deriveAsync(booleanOp("union", other), fileType);
+    }
+
+    /**
+     * Returns the intersection of this CSG object and the specified CSG object.
+     * @param other CSG objects to intersect with this CSG object
+     * @return the intersect of this CSG object and the specified CSG objects
+     */
+    public CSG intersect(CSG other) {
+        CSG fast = fastIntersect(other);
+        if (fast != null) {
+            return fast;
+        }
+        return derive(booleanOp("intersection", other), fileType);
+    }
+
+    /**
+     * Asynchronously computes the intersection of this CSG object and the specified CSG object.
+     * @param other CSG objects to intersect with this CSG object
+     * @return future that completes with the intersection of this CSG object and the specified CSG object
+     * @see #intersect(CSG)
+     */
+    public CompletableFuture<CSG> intersectAsync(CSG other) {
+        CSG fast = fastIntersect(other);
+        if (fast != null) {
+            return CompletableFuture.completedFuture(fast);
+        }
+        return deriveAsync(booleanOp("intersection", other), fileType);
+    }
+
+    /**
+     * Enables or disables the bounds fast path for boolean operations. If enabled, the
+     * axis aligned bounds of the operands are checked before calling occ-csg. Bounds are
+     * known if they have been computed before (see {@link #getBounds()}) or if they can be
+     * derived from the operands of an operation. Operations on disjoint operands are
+     * short-circuited:
+     * <ul>
+     *     <li>the difference of disjoint operands is the first operand</li>
+     *     <li>the intersection of disjoint operands is empty (occ-csg is only called
+     *     if the empty result is exported)</li>
+     *     <li>the union with an empty operand is the other operand</li>
+     * </ul>
+     * The union of disjoint, non-empty operands still calls occ-csg since occ-csg has no
+     * command for creating compounds.
+     * @param enabled defines whether to enable the bounds fast path
+     * @see #getSkippedBooleans()
+     */
+    public static void setBoundsFastPathEnabled(boolean enabled) {
+        boundsFastPath = enabled;
+    }
+
+    /**
+     * Indicates whether the bounds fast path for boolean operations is enabled.
+     * @return {@code true} if the bounds fast path is enabled; {@code false} otherwise
+     * @see #setBoundsFastPathEnabled(boolean)
+     */
+    public static boolean isBoundsFastPathEnabled() {
+        return boundsFastPath;
+    }
+
+    /**
+     * Returns the number of boolean operations that have been short-circuited by the bounds fast path.
+     * @return the number of skipped boolean operations
+     * @see #setBoundsFastPathEnabled(boolean)
+     */
+    public static long getSkippedBooleans() {
+        return skippedBooleans.get();
+    }
+
+    /**
+     * Indicates whether the bounds of this and the specified CSG object are known and disjoint.
+     * @param other CSG object
+     * @return {@code true} if the bounds are known and disjoint; {@code false} otherwise
+     */
+    private boolean isDisjoint(CSG other) {
+        Bounds a = shape.getBoundsHint();
+        Bounds b = other.shape.getBoundsHint();
+
+        // be conservative: operands within the fuzzy value are treated as overlapping
+        return a != null && b != null && a.isDisjoint(b, Math.max(getFuzzyValue(), 1e-7));
+    }
+
+    private CSG fastDifference(CSG other) {
+        if (!isBoundsFastPathEnabled()) {
+            return null;
+        }
+
+        if (shape.isEmpty() || other.shape.isEmpty() || isDisjoint(other)) {
+            skippedBooleans.incrementAndGet();
+            return new CSG(shape, fileType);
+        }
+
+        return null;
+    }
+
+    private CSG fastUnion(CSG other) {
+        if (!isBoundsFastPathEnabled()) {
+            return null;
+        }
+
+        if (other.shape.isEmpty()) {
+            skippedBooleans.incrementAndGet();
+            return new CSG(shape, fileType);
+        }
+
+        if (shape.isEmpty()) {
+            skippedBooleans.incrementAndGet();
+            return new CSG(other.shape, fileType);
+        }
+
+        return null;
+    }
+
+    private CSG fastIntersect(CSG other) {
+        if (!isBoundsFastPathEnabled()) {
+            return null;
+        }
+
+        if (shape.isEmpty()) {
+            skippedBooleans.incrementAndGet();
+            return new CSG(shape, fileType);
+        }
+
+        if (other.shape.isEmpty()) {
+            skippedBooleans.incrementAndGet();
+            return new CSG(other.shape, fileType);
+        }
+
+        if (isDisjoint(other)) {
+            skippedBooleans.incrementAndGet();
+            // the result is empty, occ-csg is only called if it is exported
+            Shape empty = new Shape(booleanOp("intersection", other), fileType);
+            empty.markEmpty();
+            return new CSG(empty, fileType);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the specified boolean operation.
+     * @param op boolean operation ({@code union}, {@code difference} or {@code intersection})
+     * @param other second operand
+     * @return operation
+     */
+    private Operation booleanOp(String op, CSG other) {
+        double fuzzy = getFuzzyValue();
+
+        return new Operation("csg:" + op, Arrays.asList(shape, other.shape), (in, out) -> {
+            if (Double.compare(fuzzy, 0) == 0) {
+                return new String[]{"--csg", op,
+                        in.get(0),
+                        in.get(1),
+                        out};
+            } else {
+                return new String[]{"--csg", op,
+                        in.get(0),
+                        in.get(1),
+                        out,
+                        "0.1",
+                        "" + fuzzy};
+            }
+        });
+    }
+
+    /**
+     * Returns a new CSG object that is created by the specified operation. The operation is executed
+     * immediately unless lazy evaluation is enabled.
+     * @param op operation that creates the CSG object
+     * @param fileType file type of the new CSG object
+     * @return new CSG object
+     */
+    private static CSG derive(Operation op, String fileType) {
+        CSG result = adopt(newShape(op, fileType), fileType);
+
+        if (!isLazyEvaluationEnabled()) {
+            result.evaluate();
         }
 
         return result;
     }
 
     /**
-     * Returns the union of this CSG object and the specified CSG object.
-     * @param other CSG object to unify with this CSG object
-     * @return the union of this CSG object and the specified CSG object
+     * Returns a new CSG object that is created by the specified operation. The operation is executed
+     * asynchronously (regardless of whether lazy evaluation is enabled).
+     * @param op operation that creates the CSG object
+     * @param fileType file type of the new CSG object
+     * @return future that completes with the new CSG object
+     */
+    private static CompletableFuture<CSG> deriveAsync(Operation op, String fileType) {
+        return adopt(newShape(op, fileType), fileType).evaluateAsync();
+    }
+
+    /**
+     * Returns a new deferred shape that is created by the specified operation. Primitives are
+     * looked up in the primitive cache first.
+     * @param op operation that creates the shape
+     * @param fileType file type of the shape
+     * @return new deferred shape or a cached primitive shape (retained for the caller)
+     */
+    private static Shape newShape(Operation op, String fileType) {
+        if (op.getInputs().isEmpty()) {
+            return primitiveCache.get(op, fileType);
+        }
+
+        Shape shape = new Shape(op, fileType);
+        shape.retain();
+        return shape;
+    }
+
+    /**
+     * Sets the maximum number of primitives (boxes, spheres, cylinders, cones, prisms and
+     * extrusions) that are kept in memory. Primitives with identical parameters share their
+     * geometry, i.e., occ-csg is called only once. A size of {@code 0} disables the primitive cache.
+     * @param maxSize maximum number of cached primitives (default: 256)
+     */
+    public static void setPrimitiveCacheSize(int maxSize) {
+        primitiveCache.setMaxSize(maxSize);
+    }
+
+    /**
+     * Returns the maximum number of primitives that are kept in memory.
+     * @return the maximum number of cached primitives
+     * @see #setPrimitiveCacheSize(int)
      */
-    public CSG union(CSG other) {
-
-        CSG result = new CSG(fileType);
-
-        String[] exeArgs;
+    public static int getPrimitiveCacheSize() {
+        return primitiveCache.getMaxSize();
+    }
 
-        if (Double.compare(getFuzzyValue(), 0) == 0) {
-            exeArgs = new String[]{"--csg", "union",
-                    getFile().getAbsolutePath(),
-                    other.getFile().getAbsolutePath(),
-                    result.getFile().getAbsolutePath()};
-        } else {
-            exeArgs = new String[]{"--csg", "union",
-                    getFile().getAbsolutePath(),
-                    other.getFile().getAbsolutePath(),
-                    result.getFile().getAbsolutePath(),
-                    "0.1",
-                    "" + getFuzzyValue()};
-        }
+    /**
+     * Removes all primitives from the primitive cache.
+     */
+    public static void clearPrimitiveCache() {
+        primitiveCache.clear();
+    }
 
-        int exitValue = VCSG.execute(exeArgs).print(null, System.err).getProcess().exitValue();
+    /**
+     * Returns the number of primitives that have been served by the primitive cache.
+     * @return the number of primitive cache hits
+     */
+    public static long getPrimitiveCacheHits() {
+        return primitiveCache.getHits();
+    }
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
-        }
+    /**
+     * Returns the number of primitives that have not been found in the primitive cache.
+     * @return the number of primitive cache misses
+     */
+    public static long getPrimitiveCacheMisses() {
+        return primitiveCache.getMisses();
+    }
 
-        return result;
+    /**
+     * Returns the number of operations that did not call occ-csg because an identical operation
+     * (same operation, parameters and inputs) was running concurrently. Such operations wait for
+     * the running operation and share its result.
+     * @return the number of coalesced operations
+     */
+    public static long getCoalescedOperations() {
+        return Shape.getCoalescedOperations();
     }
 
     /**
-     * Returns the intersection of this CSG object and the specified CSG object.
-     * @param other CSG objects to intersect with this CSG object
-     * @return the intersect of this CSG object and the specified CSG objects
+     * Warms up the primitive cache, e.g., at startup, with frequently used primitives. The primitives
+     * are created in parallel, e.g.,
+     * <pre>
+     * CSG.warmUpPrimitiveCache(Arrays.asList(
+     *     () -&gt; CSG.cyl(1.5, 10),
+     *     () -&gt; CSG.sphere(2.0)));
+     * </pre>
+     * @param primitives creates the primitives
+     * @return future that completes once all primitives have been created
      */
-    public CSG intersect(CSG other) {
+    public static CompletableFuture<Void> warmUpPrimitiveCache(List<Supplier<CSG>> primitives) {
+        Executor executor = VCSG.getExecutor();
 
-        CSG result = new CSG(fileType);
+        CompletableFuture<?>[] futures = primitives.stream().map(p ->
+                CompletableFuture.supplyAsync(p, executor).thenCompose(CSG::evaluateAsync)).
+                toArray(CompletableFuture<?>[]::new);
 
-        String[] exeArgs;
+        return CompletableFuture.allOf(futures);
+    }
 
-        if (Double.compare(getFuzzyValue(), 0) == 0) {
-            exeArgs = new String[]{"--csg", "intersection",
-                    getFile().getAbsolutePath(),
-                    other.getFile().getAbsolutePath(),
-                    result.getFile().getAbsolutePath()};
-        } else {
-            exeArgs = new String[]{"--csg", "intersection",
-                    getFile().getAbsolutePath(),
-                    other.getFile().getAbsolutePath(),
-                    result.getFile().getAbsolutePath(),
-                    "0.1",
-                    "" + getFuzzyValue()};
+    /**
+     * Waits for the specified future and rethrows its failure unwrapped.
+     * @param future future to wait for
+     * @return result of the specified future
+     */
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
         }
+    }
 
-        int exitValue = VCSG.execute(exeArgs).print(null, System.err).getProcess().exitValue();
-
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
-        }
+    /**
+     * Creates the exception for a failed occ-csg command. The end of the error
+     * output of the command is attached to the message.
+     * @param vcsg failed execution
+     * @param exeArgs arguments of the command
+     * @return exception that describes the failure
+     */
+    static RuntimeException commandFailed(VCSG vcsg, String[] exeArgs) {
+        String errorOutput = vcsg.getErrorOutput().trim();
 
-        return result;
+        return new RuntimeException("Error during CSG command, exit value: " + vcsg.getExitValue()
+                + ", command: occ-csg " + String.join(" ", exeArgs)
+                + (errorOutput.isEmpty() ? "" : ", error output:\n" + errorOutput));
     }
 
     File getFile() {
-        return file;
+        return shape.getFile();
     }
 
     /**
@@ -281,8 +1034,22 @@ public final class CSG {
      */
     public List<CSG> split() {
 
+        if (isLazyEvaluationEnabled() && !isEvaluated()) {
+            // the number of faces is unknown until this object has been evaluated
+            return new DeferredList<>(this::splitNow);
+        }
+
+        return splitNow();
+    }
+
+    private List<CSG> splitNow() {
+
+        ScratchFile scratchDir = null;
+
         try {
-            File tmpDir = Files.createTempDirectory("_vcsg").toFile();
+            scratchDir = getScratchSpace().newDirectory();
+
+            File tmpDir = scratchDir.getFile();
 
             File shapeF = new File(tmpDir, "shape." + getFileType());
 
@@ -291,23 +1058,35 @@ public final class CSG {
             String[] exeArgs = {"--edit", "split-shape",
                     shapeF.getAbsolutePath(), "brep"};
 
-            int exitValue = VCSG.execute(
+            VCSG vcsg = VCSG.execute(
                     tmpDir, exeArgs
-            ).print(null, System.err).getProcess().exitValue();
+            ).print(null, System.err);
 
-            if (exitValue != 0) {
-                throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+            if (vcsg.getExitValue() != 0) {
+                throw commandFailed(vcsg, exeArgs);
+            }
+
+            List<CSG> faces = new ArrayList<>();
+
+            try (Stream<Path> files = Files.list(tmpDir.toPath())) {
+                for (Path f : (Iterable<Path>) files.filter(p -> !p.equals(shapeF.toPath()))::iterator) {
+                    // faces are moved out of the folder, i.e., each face is released on its own
+                    ScratchFile face = Shape.newFile(getFileType());
+                    Files.move(f, face.getFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    face.seal();
+                    faces.add(new CSG(new Shape(face, getFileType()), getFileType()));
+                }
             }
 
-            return Files.list(tmpDir.toPath()).filter(f -> !f.equals(shapeF.toPath())).map(f -> new CSG(f.toFile(), getFileType())).
-                    collect(Collectors.toList());
+            return faces;
 
         } catch (IOException e) {
-            e.printStackTrace();
-            new RuntimeException("Cannot create tmp folder", e);
+            throw new UncheckedIOException("Cannot split shape into faces", e);
+        } finally {
+            if (scratchDir != null) {
+                scratchDir.delete();
+            }
         }
-
-        return Collections.emptyList();
     }
 
     /**
@@ -316,41 +1095,60 @@ public final class CSG {
      * @return a CSG with rounded edges
      */
     public CSG round(double radius) {
-        CSG result = new CSG(fileType);
-
-        String[] exeArgs = {"--edit", "round-edges",
-                "" + radius,
-                getFile().getAbsolutePath(),
-                result.getFile().getAbsolutePath()};
-
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+        return derive(roundOp(radius), fileType);
+    }
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
-        }
+    /**
+     * Asynchronously computes a CSG with rounded edges (rounding with specified radius).
+     * @param radius radius for edge rounding
+     * @return future that completes with a CSG with rounded edges
+     * @see #round(double)
+     */
+    public CompletableFuture<CSG> roundAsync(double radius) {
+        return deriveAsync(roundOp(radius), fileType);
+    }
 
-        return result;
+    private Operation roundOp(double radius) {
+        return new Operation("edit:round-edges", Collections.singletonList(shape),
+                (in, out) -> new String[]{"--edit", "round-edges",
+                        "" + radius,
+                        in.get(0),
+                        out});
     }
 
     /**
      * Returns the version string of the occ-csg binary used by this CSG object.
+     * The version is queried only once per executable and does not evaluate this CSG object.
      * @return version string
      */
     public String getVersion() {
+        File exe = VCSG.getExecutableFile();
+        String key = exe.getAbsolutePath() + ":" + exe.lastModified();
+
+        String version = versions.get(key);
+
+        if (version == null) {
+            version = computeVersion();
+            versions.put(key, version);
+        }
+
+        return version;
+    }
+
+    private static String computeVersion() {
         StringPrintStream ps = new StringPrintStream();
 
+        // occ-csg expects an argument but does not read it, i.e., the shape is not needed
         String[] exeArgs = {
                 "--version",
-                getFile().getAbsolutePath()};
+                "version"};
 
-        int exitValue = VCSG.execute(
+        VCSG vcsg = VCSG.execute(
                 exeArgs
-        ).print(ps, System.err).getProcess().exitValue();
+        ).print(ps, System.err);
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+        if (vcsg.getExitValue() != 0) {
+            throw commandFailed(vcsg, exeArgs);
         }
 
         String output = ps.toString();
@@ -361,23 +1159,40 @@ public final class CSG {
     }
 
     /**
-     * Returns the axis aligned bounding box of this CSg object.
+     * Returns the axis aligned bounding box of this CSg object. The bounds are computed only
+     * once and shared by all CSG objects with the same geometry. The bounds of primitives and
+     * their axis aligned transforms are known analytically and do not call occ-csg.
      * @return axis aligned bounding box
      */
     public Bounds getBounds() {
+        Bounds bounds = shape.getBounds();
+
+        if (bounds == null) {
+            bounds = computeBounds();
+            // also enables the bounds fast path for boolean operations
+            shape.setBounds(bounds);
+        }
+
+        return bounds;
+    }
+
+    private Bounds computeBounds() {
         StringPrintStream ps = new StringPrintStream();
 
         String[] exeArgs = {"--bounds",
                 getFile().getAbsolutePath()};
 
-        int exitValue = VCSG.execute(
+        VCSG vcsg = VCSG.execute(
                 exeArgs
-        ).print(ps, System.err).getProcess().exitValue();
+        ).print(ps, System.err);
+
+        // the shape file must not be reclaimed while occ-csg reads it
+        Reference.reachabilityFence(this);
 
-        System.out.println(ps);
+        Logger.getLogger(CSG.class.getName()).log(Level.FINE, "occ-csg bounds output: {0}", ps);
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+        if (vcsg.getExitValue() != 0) {
+            throw commandFailed(vcsg, exeArgs);
         }
 
         String output = ps.toString();
@@ -420,22 +1235,36 @@ public final class CSG {
      * @return box CSG
      */
     public static CSG box(Vector3d min, Vector3d max) {
-        CSG result = new CSG(defaultFileType);
-
-        String coords = min.x() + "," + min.y() + "," + min.z() + "," + max.x() + "," + max.y() + "," + max.z();
+        return derive(boxOp(min, max), defaultFileType);
+    }
 
-        String[] exeArgs = {"--create", "box", coords,
-                result.getFile().getAbsolutePath()};
+    /**
+     * Asynchronously creates a box CSG with the specified min and max coordinates.
+     * @param min minimum
+     * @param max maximum
+     * @return future that completes with the box CSG
+     * @see #box(Vector3d, Vector3d)
+     */
+    public static CompletableFuture<CSG> boxAsync(Vector3d min, Vector3d max) {
+        return deriveAsync(boxOp(min, max), defaultFileType);
+    }
 
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+    private static Operation boxOp(Vector3d min, Vector3d max) {
+        String coords = min.x() + "," + min.y() + "," + min.z() + "," + max.x() + "," + max.y() + "," + max.z();
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
-        }
+        return createOp("box", coords, AnalyticProperties.box(min, max));
+    }
 
-        return result;
+    /**
+     * Returns an operation that creates the specified primitive.
+     * @param primitive primitive type, e.g., {@code box}
+     * @param coords primitive parameters
+     * @param properties closed-form properties of the primitive
+     * @return operation
+     */
+    private static Operation createOp(String primitive, String coords, AnalyticProperties properties) {
+        return Operation.primitive("create:" + primitive,
+                (in, out) -> new String[]{"--create", primitive, coords, out}, properties);
     }
 
     /**
@@ -495,22 +1324,24 @@ public final class CSG {
      * @return sphere CSG
      */
     public static CSG sphere(Vector3d origin, double radius) {
-        CSG result = new CSG(defaultFileType);
-
-        String coords = origin.x() + "," + origin.y() + "," + origin.z() + "," + radius;
-
-        String[] exeArgs = {"--create", "sphere", coords,
-                result.getFile().getAbsolutePath()};
+        return derive(sphereOp(origin, radius), defaultFileType);
+    }
 
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+    /**
+     * Asynchronously creates a sphere CSG at the specified origin with the specified radius.
+     * @param origin center location of the sphere
+     * @param radius radius of the sphere
+     * @return future that completes with the sphere CSG
+     * @see #sphere(Vector3d, double)
+     */
+    public static CompletableFuture<CSG> sphereAsync(Vector3d origin, double radius) {
+        return deriveAsync(sphereOp(origin, radius), defaultFileType);
+    }
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
-        }
+    private static Operation sphereOp(Vector3d origin, double radius) {
+        String coords = origin.x() + "," + origin.y() + "," + origin.z() + "," + radius;
 
-        return result;
+        return createOp("sphere", coords, AnalyticProperties.sphere(origin, radius));
     }
 
     /**
@@ -531,22 +1362,25 @@ public final class CSG {
      * @return cylinder CSG
      */
     public static CSG cyl(Vector3d origin, double radius, double height) {
-        CSG result = new CSG(defaultFileType);
-
-        String coords = origin.x() + "," + origin.y() + "," + origin.z() + "," + radius + "," + height;
-
-        String[] exeArgs = {"--create", "cyl", coords,
-                result.getFile().getAbsolutePath()};
+        return derive(cylOp(origin, radius, height), defaultFileType);
+    }
 
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+    /**
+     * Asynchronously creates a cylinder CSG with the specified origin, radius and height.
+     * @param origin origin of the cylinder
+     * @param radius radius of the cylinder
+     * @param height height of the cylinder
+     * @return future that completes with the cylinder CSG
+     * @see #cyl(Vector3d, double, double)
+     */
+    public static CompletableFuture<CSG> cylAsync(Vector3d origin, double radius, double height) {
+        return deriveAsync(cylOp(origin, radius, height), defaultFileType);
+    }
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue);
-        }
+    private static Operation cylOp(Vector3d origin, double radius, double height) {
+        String coords = origin.x() + "," + origin.y() + "," + origin.z() + "," + radius + "," + height;
 
-        return result;
+        return createOp("cyl", coords, AnalyticProperties.cone(origin, radius, radius, height));
     }
 
     /**
@@ -557,22 +1391,11 @@ public final class CSG {
      * @return cylinder csg
      */
     public static CSG cyl(Vector3d origin, Vector3d stop, double radius) {
-        CSG result = new CSG(defaultFileType);
         double height = stop.distance(origin);
 
-        String coords = 0/*origin.x()*/ + "," + 0/*origin.y()*/ + "," + 0/*origin.z()*/ + "," + radius + "," + height;
-
-        int exitValue = VCSG.execute(
-                "--create", "cyl", coords,
-                result.getFile().getAbsolutePath()
-        ).print(null, System.err).getProcess().exitValue();
-
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue);
-        }
-
-        return result.transformed(Transform.unity().rot(Vector3d.z(height), stop.minus(origin)))
-                     .transformed(Transform.unity().translate(origin));
+        return cyl(Vector3d.ZERO, radius, height)
+                .transformed(Transform.unity().rot(Vector3d.z(height), stop.minus(origin)))
+                .transformed(Transform.unity().translate(origin));
     }
 
     /**
@@ -586,30 +1409,41 @@ public final class CSG {
     public static CSG cone(Vector3d origin, double r1, double r2, double height) {
 
         if (Double.compare(r1, r2) == 0) {
-            System.err.println("WARNING: radii of cone are identical. Converting it to a cylinder tp prevent OCC to crash.");
+            Logger.getLogger(CSG.class.getName()).log(Level.WARNING,
+                    "Radii of cone are identical. Converting it to a cylinder to prevent OCC from crashing.");
             return cyl(origin, r1, height);
         }
 
-        CSG result = new CSG(defaultFileType);
+        return derive(coneOp(origin, r1, r2, height), defaultFileType);
+    }
 
-        String coords = origin.x() + "," + origin.y() + "," + origin.z() + "," + r1 + "," + r2 + "," + height;
+    /**
+     * Asynchronously creates a (truncated) cone CSG with the specified origin, upper radius, lower radius and height
+     * @param origin origin of this cylinder
+     * @param r1 upper radius
+     * @param r2 lower radius
+     * @param height height of the cone
+     * @return future that completes with the cone CSG
+     * @see #cone(Vector3d, double, double, double)
+     */
+    public static CompletableFuture<CSG> coneAsync(Vector3d origin, double r1, double r2, double height) {
 
-        String[] exeArgs = {
-                "--create", "cone", coords,
-                result.getFile().getAbsolutePath()};
+        if (Double.compare(r1, r2) == 0) {
+            Logger.getLogger(CSG.class.getName()).log(Level.WARNING,
+                    "Radii of cone are identical. Converting it to a cylinder to prevent OCC from crashing.");
+            return cylAsync(origin, r1, height);
+        }
 
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+        return deriveAsync(coneOp(origin, r1, r2, height), defaultFileType);
+    }
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
-        }
+    private static Operation coneOp(Vector3d origin, double r1, double r2, double height) {
+        String coords = origin.x() + "," + origin.y() + "," + origin.z() + "," + r1 + "," + r2 + "," + height;
 
-        return result;
+        return createOp("cone", coords, AnalyticProperties.cone(origin, r1, r2, height));
     }
 
-        /**
+    /**
      * Returns a (truncated) cone CSG with the specified origin, upper radius, lower radius and height
      * @param origin origin of this cylinder
      * @param stop stop location
@@ -622,60 +1456,62 @@ public final class CSG {
         double height = stop.distance(origin);
 
         if (Double.compare(r1, r2) == 0) {
-            System.err.println("WARNING: radii of cone are identical. Converting it to a cylinder tp prevent OCC to crash.");
+            Logger.getLogger(CSG.class.getName()).log(Level.WARNING,
+                    "Radii of cone are identical. Converting it to a cylinder to prevent OCC from crashing.");
             return cyl(origin, r1, height);
         }
 
-        CSG result = new CSG(defaultFileType);
-
-        String coords = 0/*origin.x()*/ + "," + 0/*origin.y()*/ + "," + 0/*origin.z()*/ + "," + r1 + "," + r2 + "," + height;
-
-        String[] exeArgs = {
-                "--create", "cone", coords,
-                result.getFile().getAbsolutePath()};
-
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
-
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
-        }
-
-        return result.transformed(Transform.unity().rot(Vector3d.z(height), stop.minus(origin)))
-                     .transformed(Transform.unity().translate(origin));
+        return cone(Vector3d.ZERO, r1, r2, height)
+                .transformed(Transform.unity().rot(Vector3d.z(height), stop.minus(origin)))
+                .transformed(Transform.unity().translate(origin));
     }
 
     /**
-     * Returns a transformed copy of this CSG.
+     * Returns a transformed copy of this CSG. The transformation is not applied immediately.
+     * Consecutive transformations are composed and applied with a single occ-csg call once
+     * the geometry is needed, e.g., by a boolean operation or an export. Transformations
+     * that compose to the identity do not call occ-csg at all.
      * @param transform transform to apply
      * @return a transformed copy of this CSG
      */
     public CSG transformed(Transform transform) {
+        AffineMatrix matrix = AffineMatrix.of(transform);
+        Shape base = shape;
+        Shape fused = null;
+
+        Operation pending = shape.getOperation();
+
+        if (pending != null && pending.getMatrix() != null) {
+            Shape input = pending.getInputs().get(0);
+            // the input is released once this object has been evaluated (concurrently)
+            if (input.tryRetain()) {
+                // fuse with the pending transformation of this object
+                matrix = matrix.multiply(pending.getMatrix());
+                base = fused = input;
+            }
+        }
 
-        CSG result = new CSG(fileType);
-
-        double[] v = transform.to();
-
-        String values =
-                v[0] + "," + v[1] + "," + v[2] + "," + v[3] + "," +
-                        v[4] + "," + v[5] + "," + v[6] + "," + v[7] + "," +
-                        v[8] + "," + v[9] + "," + v[10] + "," + v[11];
-
-        String[] exeArgs = {
-                "--transform", "matrix", values,
-                this.getFile().getAbsolutePath(),
-                result.getFile().getAbsolutePath()};
-
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+        try {
+            if (matrix.isIdentity()) {
+                return new CSG(base, fileType);
+            }
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+            return new CSG(new Shape(Operation.transform(base, matrix), fileType), fileType);
+        } finally {
+            if (fused != null) {
+                fused.release();
+            }
         }
+    }
 
-        return result;
+    /**
+     * Asynchronously computes a transformed copy of this CSG.
+     * @param transform transform to apply
+     * @return future that completes with a transformed copy of this CSG
+     * @see #transformed(Transform)
+     */
+    public CompletableFuture<CSG> transformedAsync(Transform transform) {
+        return transformed(transform).evaluateAsync();
     }
 
     /**
@@ -694,12 +1530,12 @@ public final class CSG {
                 getFile().getAbsolutePath(),
                 f.getAbsolutePath()};
 
-        int exitValue = VCSG.execute(
+        VCSG vcsg = VCSG.execute(
                 exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+        ).print(null, System.err);
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+        if (vcsg.getExitValue() != 0) {
+            throw commandFailed(vcsg, exeArgs);
         }
 
         return this;
@@ -721,12 +1557,12 @@ public final class CSG {
                 getFile().getAbsolutePath(),
                 f.getAbsolutePath()};
 
-        int exitValue = VCSG.execute(
+        VCSG vcsg = VCSG.execute(
                 exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+        ).print(null, System.err);
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+        if (vcsg.getExitValue() != 0) {
+            throw commandFailed(vcsg, exeArgs);
         }
 
         return this;
@@ -749,12 +1585,12 @@ public final class CSG {
                 f.getAbsolutePath(),
                 "" + tol};
 
-        int exitValue = VCSG.execute(
+        VCSG vcsg = VCSG.execute(
                 exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+        ).print(null, System.err);
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+        if (vcsg.getExitValue() != 0) {
+            throw commandFailed(vcsg, exeArgs);
         }
 
         return this;
@@ -776,17 +1612,38 @@ public final class CSG {
                 getFile().getAbsolutePath(),
                 f.getAbsolutePath()};
 
-        int exitValue = VCSG.execute(
+        VCSG vcsg = VCSG.execute(
                 exeArgs
-        ).print(null, System.err).getProcess().exitValue();
+        ).print(null, System.err);
 
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+        if (vcsg.getExitValue() != 0) {
+            throw commandFailed(vcsg, exeArgs);
         }
 
         return this;
     }
 
+    /**
+     * Converts the specified file into a new shape file in the scratch space.
+     * @param f source file
+     * @param fileType file type of the resulting CSG object
+     * @return CSG object
+     */
+    private static CSG importFile(File f, String fileType) {
+        ScratchFile dest = Shape.newFile(defaultFileType);
+
+        try {
+            new CSG(f, defaultFileType).toSTEP(dest.getFile());
+        } catch (RuntimeException ex) {
+            dest.delete();
+            throw ex;
+        }
+
+        dest.seal();
+
+        return new CSG(new Shape(dest, fileType), fileType);
+    }
+
     /**
      * Creates a CSG object from the specified BREP file.
      * @param f source file (must end with {@code .brep})
@@ -797,13 +1654,7 @@ public final class CSG {
             throw new RuntimeException("Cannot convert file. File must end with '.brep'");
         }
 
-        try {
-            File dest = Files.createTempFile("_vcsg_", defaultFileType).toFile();
-            new CSG(f, defaultFileType).toSTEP(dest);
-            return new CSG(dest, "step");
-        } catch (IOException e) {
-            throw new RuntimeException("cannot create csg object because tmp file cannot be created", e);
-        }
+        return importFile(f, "step");
     }
 
     /**
@@ -816,13 +1667,7 @@ public final class CSG {
             throw new RuntimeException("Cannot convert file. File must end with '.stp'");
         }
 
-        try {
-            File dest = Files.createTempFile("_vcsg_", defaultFileType).toFile();
-            new CSG(f, defaultFileType).toSTEP(dest);
-            return new CSG(dest, defaultFileType);
-        } catch (IOException e) {
-            throw new RuntimeException("cannot create csg object because tmp file cannot be created", e);
-        }
+        return importFile(f, defaultFileType);
     }
 
     /**
@@ -838,13 +1683,7 @@ public final class CSG {
             throw new RuntimeException("Cannot convert file. File must end with '.stl'");
         }
 
-        try {
-            File dest = Files.createTempFile("_vcsg_", defaultFileType).toFile();
-            new CSG(f, defaultFileType).toSTEP(dest);
-            return new CSG(dest, defaultFileType);
-        } catch (IOException e) {
-            throw new RuntimeException("cannot create csg object because tmp file cannot be created", e);
-        }
+        return importFile(f, defaultFileType);
     }
 
     /**
@@ -864,30 +1703,29 @@ public final class CSG {
      * @return extruded polygon CSG
      */
     public static CSG extrude(Vector3d dir, List<Vector3d> vertices) {
+        return derive(extrudeOp(dir, vertices), defaultFileType);
+    }
 
-        CSG result = new CSG(defaultFileType);
+    /**
+     * Asynchronously extrudes the specified polygon.
+     * @param dir extrusion direction
+     * @param vertices polygon vertices
+     * @return future that completes with the extruded polygon CSG
+     * @see #extrude(Vector3d, List)
+     */
+    public static CompletableFuture<CSG> extrudeAsync(Vector3d dir, List<Vector3d> vertices) {
+        return deriveAsync(extrudeOp(dir, vertices), defaultFileType);
+    }
 
-        String coords = "";
+    private static Operation extrudeOp(Vector3d dir, List<Vector3d> vertices) {
+        StringBuilder coords = new StringBuilder();
 
         for (Vector3d v : vertices) {
-            coords += "," + v.x() + "," + v.y() + "," + v.z();
-        }
-
-        String[] exeArgs = {
-                "--create", "extrusion:polygon",
-                dir.x() + "," + dir.y() + "," + dir.z() + coords,
-                result.getFile().getAbsolutePath()
-        };
-
-        int exitValue = VCSG.execute(
-                exeArgs
-        ).print(null, System.err).getProcess().exitValue();
-
-        if (exitValue != 0) {
-            throw new RuntimeException("Error during CSG command, exit value: " + exitValue + ", command: occ-csg " + String.join("",exeArgs));
+            coords.append(",").append(v.x()).append(",").append(v.y()).append(",").append(v.z());
         }
 
-        return result;
+        return createOp("extrusion:polygon", dir.x() + "," + dir.y() + "," + dir.z() + coords,
+                AnalyticProperties.extrusion(dir, vertices));
     }
 
     /**
@@ -927,32 +1765,25 @@ public final class CSG {
 
     /**
      * Computes and returns the volume of this CSG based on a triangle mesh that approximates the 
-     * surface of this CSG.
+     * surface of this CSG. The volume of primitives and their affine transforms is computed
+     * analytically.
      * @param tol tolerance for the mesh approximation (double > 0, smaller values give more accurate results, default is 0.1)
      * @return volume of this csg
      */
     public double computeVolume(double tol) {
+        Double volume = shape.getVolume(tol);
 
-        File stlApprox;
-        try {
-            stlApprox = Files.createTempFile("_vcsg_", ".stl").toFile();
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            throw new RuntimeException("Cannot compute volume of CSG", ex);
+        if (volume == null) {
+            volume = computeVolumeFromMesh(tol);
+            shape.setVolume(tol, volume);
         }
 
-        toSTL(stlApprox, tol);
-
-        STLLoader loader = new STLLoader();
+        return volume;
+    }
 
-        Mesh mesh;
-        try {
-            mesh = loader.loadMesh(stlApprox);      
+    private double computeVolumeFromMesh(double tol) {
 
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            throw new RuntimeException("Cannot compute volume of CSG", ex);
-        }
+        Mesh mesh = toMesh(tol);
 
         // compute sum over signed volumes of triangles
         // we use parallel streams for larger meshes
@@ -976,6 +1807,76 @@ public final class CSG {
         return volume;    
     }
 
+    /**
+     * Computes and returns the surface area of this CSG based on a triangle mesh that approximates
+     * the surface of this CSG. The area of primitives and their similarity transforms is computed
+     * analytically.
+     * @return surface area of this csg
+     */
+    public double computeSurfaceArea() {
+        return computeSurfaceArea(0.1);
+    }
+
+    /**
+     * Computes and returns the surface area of this CSG based on a triangle mesh that approximates
+     * the surface of this CSG. The area of primitives and their similarity transforms is computed
+     * analytically.
+     * @param tol tolerance for the mesh approximation (double > 0, smaller values give more accurate results, default is 0.1)
+     * @return surface area of this csg
+     */
+    public double computeSurfaceArea(double tol) {
+        Double area = shape.getArea(tol);
+
+        if (area == null) {
+            Mesh mesh = toMesh(tol);
+
+            area = IntStream.range(0, mesh.getNumberOfTriangles()).
+                    mapToObj(mesh::getTriangle).mapToDouble(tri -> {
+                        Vector3d p1 = tri.getPoint1();
+                        Vector3d p2 = tri.getPoint2();
+                        Vector3d p3 = tri.getPoint3();
+
+                        return p2.minus(p1).crossed(p3.minus(p1)).magnitude() / 2.0;
+                    }).sum();
+
+            shape.setArea(tol, area);
+        }
+
+        return area;
+    }
+
+    /**
+     * Returns a triangle mesh that approximates the surface of this CSG.
+     * @param tol tolerance for the mesh approximation
+     * @return triangle mesh
+     */
+    private Mesh toMesh(double tol) {
+
+        ScratchFile stlApprox = Shape.newFile(".stl");
+
+        try {
+            toSTL(stlApprox.getFile(), tol);
+        } catch (RuntimeException ex) {
+            stlApprox.delete();
+            throw ex;
+        }
+
+        STLLoader loader = new STLLoader();
+
+        Mesh mesh;
+        try {
+            mesh = loader.loadMesh(stlApprox.getFile());
+
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            throw new RuntimeException("Cannot compute mesh of CSG", ex);
+        } finally {
+            stlApprox.delete();
+        }
+
+        return mesh;
+    }
+
 //    public CSG transformed(Transform t) {
 //        int exitValue = VCSG.execute(
 //                "--convert",
@@ -991,6 +1892,36 @@ public final class CSG {
 //    }
 }
 
+/**
+ * List whose elements are computed on first access.
+ */
+final class DeferredList<T> extends AbstractList<T> {
+
+    private final Supplier<List<T>> supplier;
+    private List<T> elements;
+
+    DeferredList(Supplier<List<T>> supplier) {
+        this.supplier = supplier;
+    }
+
+    private synchronized List<T> elements() {
+        if (elements == null) {
+            elements = supplier.get();
+        }
+        return elements;
+    }
+
+    @Override
+    public T get(int index) {
+        return elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements().size();
+    }
+}
+
 class Triangle {
     private Vector3d p1;
     private Vector3d p2;
@@ -0,0 +1,188 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vcsg.util.CancellationToken;
+import eu.mihosoft.vcsg.util.ProcessScheduler;
+import eu.mihosoft.vcsg.util.ResultCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An occ-csg operation that creates a shape from zero or more input shapes.
+ * Operations are recorded by deferred shapes and executed once the shape is
+ * evaluated.
+ */
+final class Operation {
+
+    /**
+     * Creates the occ-csg arguments of an operation.
+     */
+    @FunctionalInterface
+    interface Command {
+        /**
+         * Returns the occ-csg arguments for the specified input and output paths.
+         * @param inputs paths of the input shapes
+         * @param output path of the output shape
+         * @return occ-csg arguments
+         */
+        String[] toArgs(List<String> inputs, String output);
+    }
+
+    private final String name;
+    private final List<Shape> inputs;
+    private final Command command;
+    private final AffineMatrix matrix;
+    private final AnalyticProperties properties;
+
+    /**
+     * Constructor.
+     * @param name name of this operation, e.g., {@code csg:union}
+     * @param inputs input shapes
+     * @param command creates the occ-csg arguments
+     */
+    Operation(String name, List<Shape> inputs, Command command) {
+        this(name, inputs, command, null, null);
+    }
+
+    private Operation(String name, List<Shape> inputs, Command command,
+                      AffineMatrix matrix, AnalyticProperties properties) {
+        this.name = name;
+        this.inputs = Collections.unmodifiableList(new ArrayList<>(inputs));
+        this.command = command;
+        this.matrix = matrix;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns an operation that creates a primitive with the specified properties.
+     * @param name name of this operation, e.g., {@code create:box}
+     * @param command creates the occ-csg arguments
+     * @param properties closed-form properties of the primitive
+     * @return primitive operation
+     */
+    static Operation primitive(String name, Command command, AnalyticProperties properties) {
+        return new Operation(name, Collections.emptyList(), command, null, properties);
+    }
+
+    /**
+     * Returns an operation that transforms the specified shape.
+     * @param input shape to transform
+     * @param matrix transformation matrix
+     * @return transform operation
+     */
+    static Operation transform(Shape input, AffineMatrix matrix) {
+        String values = matrix.toArg();
+
+        return new Operation("transform:matrix", Collections.singletonList(input),
+                (in, out) -> new String[]{
+                        "--transform", "matrix", values,
+                        in.get(0),
+                        out}, matrix, null);
+    }
+
+    /**
+     * Returns the name of this operation.
+     * @return name of this operation
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the input shapes of this operation.
+     * @return input shapes of this operation
+     */
+    List<Shape> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Returns the transformation matrix of this operation.
+     * @return the transformation matrix or {@code null} if this is not a transform operation
+     */
+    AffineMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Returns the closed-form properties of the primitive created by this operation.
+     * @return the closed-form properties or {@code null} if this is not a primitive operation
+     */
+    AnalyticProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns the occ-csg arguments of this operation.
+     * @param inputFiles input files (one per input shape)
+     * @param output output file
+     * @return occ-csg arguments
+     */
+    String[] toArgs(List<File> inputFiles, File output) {
+        List<String> paths = new ArrayList<>(inputFiles.size());
+        for (File f : inputFiles) {
+            paths.add(f.getAbsolutePath());
+        }
+        return command.toArgs(paths, output.getAbsolutePath());
+    }
+
+    /**
+     * Returns the name and the parameters of this operation. The result does not
+     * depend on the paths of the input and output files.
+     * @return the name and the parameters of this operation
+     */
+    String getParameters() {
+        List<String> placeholders = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            placeholders.add("$in" + i);
+        }
+
+        return name + " " + String.join(" ", command.toArgs(placeholders, "$out"));
+    }
+
+    /**
+     * Returns the result cache key of this operation. The key depends on the name and
+     * the parameters of this operation, the file type of the result and the content of
+     * the input shapes, but not on the paths of the input and output files.
+     * @param cache result cache
+     * @param inputHashes content hashes of the input shapes
+     * @param fileType file type of the result
+     * @return result cache key of this operation
+     */
+    String toCacheKey(ResultCache cache, List<String> inputHashes, String fileType) {
+        return cache.key(getParameters(),
+                fileType,
+                String.join(",", inputHashes));
+    }
+
+    /**
+     * Executes this operation.
+     * @param inputFiles input files (one per input shape)
+     * @param output output file
+     * @param priority priority class of the occ-csg process
+     * @param token cancels the occ-csg process
+     * @return future that completes with the output file once occ-csg has terminated
+     */
+    CompletableFuture<File> executeAsync(List<File> inputFiles, File output, ProcessScheduler.Priority priority,
+                                         CancellationToken token) {
+        String[] exeArgs = toArgs(inputFiles, output);
+
+        return VCSG.executeAsync(priority, token, null, exeArgs).thenApply(vcsg -> {
+            if (vcsg.getExitValue() != 0) {
+                throw CSG.commandFailed(vcsg, exeArgs);
+            }
+            return output;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "Operation{" +
+                "name=" + name +
+                ", inputs=" + inputs.size() +
+                '}';
+    }
+}
@@ -0,0 +1,132 @@
+package eu.mihosoft.vcsg;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded in-memory cache of primitive shapes (box, sphere, cylinder, cone,
+ * extrusion) keyed by their canonicalized parameters. Shapes are immutable,
+ * i.e., identical primitives can share one shape and are computed only once.
+ * If the cache is full, the least recently used shape is dropped. Cached
+ * shapes are retained, i.e., their files are not released while they are cached.
+ */
+final class PrimitiveCache {
+
+    private static final Pattern NEGATIVE_ZERO = Pattern.compile("(?<![0-9.])-(0\\.0)(?![0-9])");
+
+    private final Map<String, Shape> shapes = new LinkedHashMap<String, Shape>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Shape> eldest) {
+            if (size() > maxSize) {
+                eldest.getValue().release();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // guarded by this
+    private int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param maxSize maximum number of cached shapes
+     */
+    PrimitiveCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the shape created by the specified primitive operation. If the cache
+     * contains a shape with identical parameters, it is returned instead of a new shape.
+     * The returned shape has been retained for the caller, i.e., the caller must release
+     * it (cached shapes might be evicted, and released, concurrently).
+     * @param op primitive operation (without inputs)
+     * @param fileType file type of the shape
+     * @return shape created by the specified operation (retained)
+     */
+    Shape get(Operation op, String fileType) {
+        // -0.0 and 0.0 describe the same primitive
+        String key = fileType + " " + NEGATIVE_ZERO.matcher(op.getParameters()).replaceAll("$1");
+
+        synchronized (this) {
+            if (maxSize == 0) {
+                Shape shape = new Shape(op, fileType);
+                shape.retain();
+                return shape;
+            }
+
+            Shape shape = shapes.get(key);
+
+            if (shape != null) {
+                hits.incrementAndGet();
+                // cached shapes are retained by the cache, i.e., they have not been released
+                shape.retain();
+                return shape;
+            }
+
+            misses.incrementAndGet();
+
+            shape = new Shape(op, fileType);
+            // one reference for the cache, one for the caller
+            shape.retain();
+            shape.retain();
+            shapes.put(key, shape);
+
+            return shape;
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached shapes. A size of {@code 0} disables the cache.
+     * @param maxSize maximum number of cached shapes
+     */
+    synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Max size must not be negative, got " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+
+        while (shapes.size() > maxSize) {
+            shapes.remove(shapes.keySet().iterator().next()).release();
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached shapes.
+     * @return the maximum number of cached shapes
+     */
+    synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Removes all shapes from this cache.
+     */
+    synchronized void clear() {
+        shapes.values().forEach(Shape::release);
+        shapes.clear();
+    }
+
+    /**
+     * Returns the number of cache hits.
+     * @return the number of cache hits
+     */
+    long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of cache misses.
+     * @return the number of cache misses
+     */
+    long getMisses() {
+        return misses.get();
+    }
+}
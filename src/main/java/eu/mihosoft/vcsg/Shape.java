@@ -0,0 +1,606 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vcsg.util.CancellationToken;
+import eu.mihosoft.vcsg.util.ProcessScheduler;
+import eu.mihosoft.vcsg.util.ResultCache;
+import eu.mihosoft.vcsg.util.ScratchFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Geometry of a CSG object. A shape is either backed by a file or deferred,
+ * i.e., it records the operation that creates it. Deferred shapes are
+ * evaluated on demand. Shapes are immutable (once evaluated) and can be shared
+ * by several CSG objects.
+ *
+ * <p>Shapes count their references (CSG objects, deferred operations that use
+ * them as input and the primitive cache). Once the last reference has been
+ * released, the scratch file of the shape is released as well and the shape
+ * cannot be retained anymore. Deferred shapes that are released before they
+ * have been evaluated release their inputs. Shapes that are never released
+ * explicitly free their scratch file once they are unreachable.</p>
+ */
+final class Shape {
+
+    // coalesced shapes share the output file, i.e., each of them owns a reference
+    private static final SingleFlight<String, ScratchFile> IN_FLIGHT = new SingleFlight<>(ScratchFile::retain, ScratchFile::delete);
+
+    // reference count of shapes whose last reference has been released
+    private static final int RELEASED = Integer.MIN_VALUE;
+
+    private final String fileType;
+
+    // guarded by this
+    private File file;
+    private ScratchFile scratch;
+    private boolean released;
+    private Operation operation;
+    private CompletableFuture<File> evaluation;
+    private String contentHash;
+
+    // conservative bounds (a superset of the actual bounds) or null if unknown
+    private volatile Bounds boundsHint;
+    // indicates whether this shape is known to be empty
+    private volatile boolean empty;
+
+    // memoized query results (shapes never change once evaluated)
+    private volatile Bounds bounds;
+    private final Map<Double, Double> volumes = new ConcurrentHashMap<>();
+    private final Map<Double, Double> areas = new ConcurrentHashMap<>();
+
+    // closed-form properties or null if unknown
+    private volatile AnalyticProperties properties;
+
+    private final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * Creates a shape that is backed by the specified file. The file is not
+     * owned by the shape, i.e., it is never deleted.
+     * @param file shape file
+     * @param fileType file type of the shape file
+     */
+    Shape(File file, String fileType) {
+        this.file = file;
+        this.fileType = fileType;
+    }
+
+    /**
+     * Creates a shape that is backed by the specified scratch file.
+     * @param scratch shape file (a reference is added)
+     * @param fileType file type of the shape file
+     */
+    Shape(ScratchFile scratch, String fileType) {
+        this.scratch = scratch.retain();
+        this.file = scratch.getFile();
+        this.fileType = fileType;
+    }
+
+    /**
+     * Creates a deferred shape.
+     * @param operation the operation that creates the shape
+     * @param fileType file type of the shape file
+     */
+    Shape(Operation operation, String fileType) {
+        this.operation = operation;
+        this.fileType = fileType;
+
+        // inputs are needed until this shape has been evaluated
+        for (Shape input : operation.getInputs()) {
+            input.retain();
+        }
+
+        this.boundsHint = propagateBounds(operation);
+        this.empty = operation.getMatrix() != null && operation.getInputs().get(0).isEmpty();
+
+        if (operation.getMatrix() != null) {
+            AnalyticProperties p = operation.getInputs().get(0).getProperties();
+            this.properties = p == null ? null : p.transformed(operation.getMatrix());
+        } else {
+            this.properties = operation.getProperties();
+        }
+
+        if (properties != null && properties.getBounds() != null) {
+            this.bounds = properties.getBounds();
+            this.boundsHint = bounds;
+        }
+    }
+
+    /**
+     * Adds a reference to this shape.
+     * @throws IllegalStateException if the last reference to this shape has already been released
+     */
+    void retain() {
+        if (!tryRetain()) {
+            throw new IllegalStateException("Shape has already been released");
+        }
+    }
+
+    /**
+     * Adds a reference to this shape unless its last reference has already been released.
+     * @return {@code true} if a reference has been added; {@code false} if this shape has been released
+     */
+    boolean tryRetain() {
+        while (true) {
+            int n = references.get();
+            if (n == RELEASED) {
+                return false;
+            }
+            if (references.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes a reference from this shape. Once the last reference has been
+     * removed, the scratch file of this shape is released and this shape cannot
+     * be used anymore. Deferred shapes release their inputs unless they are
+     * being evaluated (evaluation releases them).
+     * @throws IllegalStateException if this shape has not been retained
+     */
+    void release() {
+        while (true) {
+            int n = references.get();
+            if (n <= 0) {
+                throw new IllegalStateException("Shape has not been retained");
+            }
+            if (references.compareAndSet(n, n == 1 ? RELEASED : n - 1)) {
+                if (n > 1) {
+                    return;
+                }
+                break;
+            }
+        }
+
+        ScratchFile s;
+        Operation op = null;
+
+        synchronized (this) {
+            released = true;
+            s = scratch;
+            scratch = null;
+            if (s != null) {
+                // the file is about to be deleted
+                file = null;
+            }
+            if (evaluation == null) {
+                op = operation;
+                operation = null;
+            }
+        }
+
+        if (s != null) {
+            s.release();
+        }
+
+        if (op != null) {
+            for (Shape input : op.getInputs()) {
+                input.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the closed-form properties of this shape.
+     * @return the closed-form properties of this shape or {@code null} if unknown
+     */
+    AnalyticProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Computes conservative bounds of the shape created by the specified operation
+     * from the bounds of its inputs.
+     * @param op operation
+     * @return conservative bounds or {@code null} if unknown
+     */
+    private static Bounds propagateBounds(Operation op) {
+        if (op.getMatrix() != null) {
+            Bounds b = op.getInputs().get(0).getBoundsHint();
+            return b == null ? null : b.transformed(op.getMatrix());
+        }
+
+        if (op.getInputs().size() != 2) {
+            return null;
+        }
+
+        Bounds a = op.getInputs().get(0).getBoundsHint();
+        Bounds b = op.getInputs().get(1).getBoundsHint();
+
+        switch (op.getName()) {
+            case "csg:union":
+                return a == null || b == null ? null : a.union(b);
+            case "csg:difference":
+                return a;
+            case "csg:intersection":
+                if (a == null || b == null) {
+                    return a == null ? b : a;
+                }
+                return a.isDisjoint(b, 0) ? null : a.intersection(b);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns conservative bounds of this shape, i.e., bounds that contain the actual bounds.
+     * @return conservative bounds of this shape or {@code null} if unknown
+     */
+    Bounds getBoundsHint() {
+        return boundsHint;
+    }
+
+    /**
+     * Sets conservative bounds of this shape, e.g., after computing its actual bounds.
+     * @param bounds conservative bounds
+     */
+    void setBoundsHint(Bounds bounds) {
+        this.boundsHint = bounds;
+    }
+
+    /**
+     * Returns the memoized bounds of this shape.
+     * @return the bounds of this shape or {@code null} if they have not been computed yet
+     */
+    Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Memoizes the bounds of this shape.
+     * @param bounds the bounds of this shape
+     */
+    void setBounds(Bounds bounds) {
+        this.bounds = bounds;
+        this.boundsHint = bounds;
+    }
+
+    /**
+     * Returns the memoized volume of this shape.
+     * @param tol tolerance used for computing the volume
+     * @return the volume of this shape or {@code null} if it has not been computed for the specified tolerance
+     */
+    Double getVolume(double tol) {
+        AnalyticProperties p = properties;
+        if (p != null && !Double.isNaN(p.getVolume())) {
+            return p.getVolume();
+        }
+        return volumes.get(tol);
+    }
+
+    /**
+     * Memoizes the volume of this shape.
+     * @param tol tolerance used for computing the volume
+     * @param volume the volume of this shape
+     */
+    void setVolume(double tol, double volume) {
+        volumes.put(tol, volume);
+    }
+
+    /**
+     * Returns the memoized surface area of this shape.
+     * @param tol tolerance used for computing the surface area
+     * @return the surface area of this shape or {@code null} if it has not been computed for the specified tolerance
+     */
+    Double getArea(double tol) {
+        AnalyticProperties p = properties;
+        if (p != null && !Double.isNaN(p.getArea())) {
+            return p.getArea();
+        }
+        return areas.get(tol);
+    }
+
+    /**
+     * Memoizes the surface area of this shape.
+     * @param tol tolerance used for computing the surface area
+     * @param area the surface area of this shape
+     */
+    void setArea(double tol, double area) {
+        areas.put(tol, area);
+    }
+
+    /**
+     * Indicates whether this shape is known to be empty.
+     * @return {@code true} if this shape is known to be empty; {@code false} if unknown
+     */
+    boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Marks this shape as empty.
+     */
+    void markEmpty() {
+        this.empty = true;
+        this.properties = AnalyticProperties.empty();
+    }
+
+    /**
+     * Returns the file type of this shape.
+     * @return file type of this shape
+     */
+    String getFileType() {
+        return fileType;
+    }
+
+    /**
+     * Indicates whether this shape has been evaluated.
+     * @return {@code true} if this shape is backed by a file; {@code false} otherwise
+     */
+    synchronized boolean isEvaluated() {
+        return file != null;
+    }
+
+    /**
+     * Returns the operation that creates this shape.
+     * @return the operation that creates this shape or {@code null} if this shape has been evaluated
+     */
+    synchronized Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the content hash of this shape. Deferred shapes are evaluated first.
+     * @return the content hash of this shape
+     */
+    String getContentHash() {
+        File f = getFile();
+
+        synchronized (this) {
+            if (contentHash == null) {
+                contentHash = ResultCache.hash(f);
+            }
+            return contentHash;
+        }
+    }
+
+    /**
+     * Returns the file of this shape. Deferred shapes are evaluated first.
+     * @return file of this shape
+     */
+    File getFile() {
+        synchronized (this) {
+            if (file != null) {
+                return file;
+            }
+        }
+
+        return CSG.await(evaluateAsync(new AsyncLimiter(CSG.getMaxParallelism())));
+    }
+
+    /**
+     * Evaluates this shape. Input shapes that do not depend on each other are
+     * evaluated in parallel. Each shape is evaluated only once, even if it
+     * is shared by several operations.
+     * @param limiter limits the number of concurrent occ-csg processes
+     * @return future that completes with the file of this shape
+     */
+    CompletableFuture<File> evaluateAsync(AsyncLimiter limiter) {
+
+        Operation op;
+        CompletableFuture<File> result;
+        CompletableFuture<File> shared = null;
+
+        // inputs are evaluated on the calling thread, i.e., they inherit its priority and cancellation token
+        ProcessScheduler.Priority priority = ProcessScheduler.getCurrentPriority();
+        CancellationToken token = CancellationToken.current();
+
+        synchronized (this) {
+            if (file != null) {
+                return CompletableFuture.completedFuture(file);
+            }
+            if (evaluation != null) {
+                shared = evaluation;
+                op = null;
+                result = null;
+            } else if (released) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Shape has already been released"));
+            } else {
+                op = operation;
+                result = evaluation = new CompletableFuture<>();
+            }
+        }
+
+        if (shared != null) {
+            // the shared evaluation runs with the token of the caller that started it
+            return shared.handle((f, t) -> {
+                if (t == null) {
+                    return CompletableFuture.completedFuture(f);
+                }
+                if (isCancellation(t) && !token.isCancelled()) {
+                    // cancelled by the other caller, i.e., we evaluate again with our own token
+                    return ProcessScheduler.callWithPriority(priority, () -> token.call(() -> evaluateAsync(limiter)));
+                }
+                return CompletableFuture.<File>failedFuture(t);
+            }).thenCompose(f -> f);
+        }
+
+        List<CompletableFuture<File>> inputFiles = new ArrayList<>(op.getInputs().size());
+
+        for (Shape input : op.getInputs()) {
+            inputFiles.add(input.evaluateAsync(limiter));
+        }
+
+        CompletableFuture.allOf(inputFiles.toArray(new CompletableFuture<?>[0])).thenCompose(v -> {
+            List<File> files = new ArrayList<>(inputFiles.size());
+            for (CompletableFuture<File> f : inputFiles) {
+                files.add(f.join());
+            }
+
+            // identical operations on the same inputs are executed only once
+            String key = fileType + " " + op.getParameters() + " " + files;
+
+            // callers wait with their own token, the operation runs until all of them have been cancelled
+            return IN_FLIGHT.run(key, token, priority, flight -> {
+                ScratchFile output = newFile(fileType);
+
+                ResultCache cache = CSG.getResultCache();
+
+                // the priority is determined once the process starts, i.e., callers that join
+                // while the operation is queued raise its priority
+                CompletableFuture<File> f = cache == null
+                        ? limiter.submit(() -> op.executeAsync(files, output.getFile(), flight.getPriority(), flight.getToken()))
+                        : executeCachedAsync(cache, op, files, output.getFile(), limiter, flight);
+
+                return f.whenComplete((r, t) -> {
+                    // e.g., cancelled or failed operations
+                    if (t != null) {
+                        output.delete();
+                    } else {
+                        output.seal();
+                    }
+                }).thenApply(r -> output);
+            });
+        }).whenComplete((output, t) -> {
+            if (t != null) {
+                abortEvaluation(result, t);
+                return;
+            }
+
+            // the flight took a reference to the output file for this shape
+            boolean unused;
+
+            synchronized (this) {
+                unused = released;
+                if (!unused) {
+                    file = output.getFile();
+                    scratch = output;
+                }
+                // inputs are not needed anymore
+                operation = null;
+            }
+
+            if (unused) {
+                output.release();
+            }
+
+            for (Shape input : op.getInputs()) {
+                input.release();
+            }
+
+            result.complete(output.getFile());
+        });
+
+        return result;
+    }
+
+    /**
+     * Fails the current evaluation of this shape. Shapes that are still in use
+     * can be evaluated again. Shapes that have been released in the meantime
+     * release their inputs.
+     * @param result future of the current evaluation
+     * @param t cause
+     */
+    private void abortEvaluation(CompletableFuture<File> result, Throwable t) {
+        Operation op = null;
+
+        synchronized (this) {
+            // allow shared shapes to retry
+            evaluation = null;
+            if (released) {
+                op = operation;
+                operation = null;
+            }
+        }
+
+        if (op != null) {
+            for (Shape input : op.getInputs()) {
+                input.release();
+            }
+        }
+
+        result.completeExceptionally(t);
+    }
+
+    /**
+     * Indicates whether the specified failure is a cancellation.
+     * @param t failure (possibly wrapped)
+     * @return {@code true} if the specified failure is a cancellation; {@code false} otherwise
+     */
+    private static boolean isCancellation(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t instanceof CancellationException;
+    }
+
+    /**
+     * Executes the specified operation unless the result cache contains its result.
+     * @param cache result cache
+     * @param op operation to execute
+     * @param inputFiles input files (one per input shape)
+     * @param output output file
+     * @param limiter limits the number of concurrent occ-csg processes
+     * @param flight provides priority class and cancellation token of the occ-csg process
+     * @return future that completes with the output file
+     */
+    private CompletableFuture<File> executeCachedAsync(
+            ResultCache cache, Operation op, List<File> inputFiles, File output, AsyncLimiter limiter,
+            SingleFlight.Flight<?> flight) {
+
+        Executor executor = VCSG.getExecutor();
+
+        // hashing and copying files blocks, i.e., we do not use the completion thread
+        return CompletableFuture.supplyAsync(() -> {
+            List<String> inputHashes = new ArrayList<>(op.getInputs().size());
+            for (Shape input : op.getInputs()) {
+                inputHashes.add(input.getContentHash());
+            }
+
+            String key = op.toCacheKey(cache, inputHashes, fileType);
+            String hash = cache.lookup(key, output);
+
+            if (hash != null) {
+                synchronized (this) {
+                    contentHash = hash;
+                }
+            }
+
+            return hash != null ? null : key;
+        }, executor).thenCompose(key -> {
+            if (key == null) {
+                return CompletableFuture.completedFuture(output);
+            }
+
+            return limiter.submit(() -> op.executeAsync(inputFiles, output, flight.getPriority(), flight.getToken())).thenApplyAsync(f -> {
+                String hash = cache.store(key, f);
+                synchronized (this) {
+                    contentHash = hash;
+                }
+                return f;
+            }, executor);
+        });
+    }
+
+    /**
+     * Returns the number of operations that have been coalesced with a concurrent identical operation.
+     * @return the number of coalesced operations
+     */
+    static long getCoalescedOperations() {
+        return IN_FLIGHT.getCoalesced();
+    }
+
+    /**
+     * Creates a new shape file in the scratch space.
+     * @param fileType file type
+     * @return new shape file
+     * @see CSG#setScratchSpace(eu.mihosoft.vcsg.util.ScratchSpace)
+     */
+    static ScratchFile newFile(String fileType) {
+        try {
+            return CSG.getScratchSpace().newFile(fileType);
+        } catch (IOException e) {
+            throw new RuntimeException("cannot create csg object because tmp file cannot be created", e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vcsg.util.CancellationToken;
+import eu.mihosoft.vcsg.util.ProcessScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical tasks. The first caller runs the task, callers
+ * that submit a task with the same key while it is still running wait for the
+ * same result. Results that are owned by their callers (e.g., reference counted
+ * files) are shared once per caller before any caller receives the result.
+ *
+ * <p>Each caller keeps its own cancellation token and priority. A caller whose
+ * token is cancelled stops waiting, the task itself is cancelled only once all
+ * of its callers have been cancelled. The task runs with the highest priority
+ * of its remaining callers.</p>
+ *
+ * @param <K> key type
+ * @param <V> result type
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final Consumer<? super V> share;
+    private final Consumer<? super V> discard;
+
+    /**
+     * A running task and the callers waiting for its result.
+     *
+     * @param <V> result type
+     */
+    static final class Flight<V> {
+        private final CancellationToken token = CancellationToken.create();
+
+        // guarded by this
+        private final List<Caller<V>> callers = new ArrayList<>();
+        // guarded by this
+        private ProcessScheduler.Priority priority;
+        // guarded by this
+        private boolean done;
+
+        /**
+         * Returns the token of the task. The token is cancelled once all callers
+         * have been cancelled.
+         *
+         * @return the token of the task
+         */
+        CancellationToken getToken() {
+            return token;
+        }
+
+        /**
+         * Returns the highest priority of the callers that are still waiting.
+         *
+         * @return the priority of the task
+         */
+        synchronized ProcessScheduler.Priority getPriority() {
+            return priority;
+        }
+
+        // called while holding the lock of this flight
+        private void updatePriority() {
+            ProcessScheduler.Priority highest = null;
+            for (Caller<V> c : callers) {
+                if (highest == null || c.priority.compareTo(highest) < 0) {
+                    highest = c.priority;
+                }
+            }
+            if (highest != null) {
+                priority = highest;
+            }
+        }
+    }
+
+    private static final class Caller<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        final CancellationToken token;
+        final ProcessScheduler.Priority priority;
+
+        // guarded by the flight
+        Runnable registration;
+
+        Caller(CancellationToken token, ProcessScheduler.Priority priority) {
+            this.token = token;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Constructor. Results are not shared explicitly.
+     */
+    SingleFlight() {
+        this(v -> {}, v -> {});
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param share called once per caller with the result of a task (before the
+     *              result is passed to any caller), e.g., to take one reference per caller
+     * @param discard called with the result of a task whose callers have all been cancelled
+     */
+    SingleFlight(Consumer<? super V> share, Consumer<? super V> discard) {
+        this.share = share;
+        this.discard = discard;
+    }
+
+    /**
+     * Runs the specified task unless a task with the same key is already running.
+     * The task is not cancellable and runs with normal priority.
+     *
+     * @param key task key
+     * @param task task to run
+     * @return future that completes with the result of the (possibly shared) task
+     */
+    CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> task) {
+        return run(key, CancellationToken.none(), ProcessScheduler.Priority.NORMAL, flight -> task.get());
+    }
+
+    /**
+     * Runs the specified task unless a task with the same key is already running.
+     *
+     * @param key task key
+     * @param token token of the caller, cancels waiting for the result
+     * @param priority priority of the caller
+     * @param task task to run, receives the flight that provides its token and priority
+     * @return future that completes with the result of the (possibly shared) task
+     */
+    CompletableFuture<V> run(K key, CancellationToken token, ProcessScheduler.Priority priority,
+                             Function<Flight<V>, CompletableFuture<V>> task) {
+        Caller<V> caller = new Caller<>(token, priority);
+
+        Flight<V> flight = new Flight<>();
+        flight.callers.add(caller);
+        flight.priority = priority;
+
+        while (true) {
+            Flight<V> running = inFlight.putIfAbsent(key, flight);
+
+            if (running == null) {
+                break;
+            }
+
+            boolean joined;
+
+            synchronized (running) {
+                joined = !running.done;
+                if (joined) {
+                    running.callers.add(caller);
+                    running.updatePriority();
+                    coalesced.incrementAndGet();
+                }
+            }
+
+            if (joined) {
+                register(key, running, caller);
+                return caller.result;
+            }
+
+            // the running task has completed in the meantime, i.e., it has been removed already
+        }
+
+        register(key, flight, caller);
+
+        CompletableFuture<V> f;
+        try {
+            f = task.apply(flight);
+        } catch (Throwable t) {
+            f = new CompletableFuture<>();
+            f.completeExceptionally(t);
+        }
+
+        f.whenComplete((v, t) -> complete(key, flight, v, t));
+
+        return caller.result;
+    }
+
+    private void register(K key, Flight<V> flight, Caller<V> caller) {
+        // called immediately if the token has already been cancelled
+        Runnable registration = caller.token.onCancel(() -> leave(key, flight, caller));
+
+        synchronized (flight) {
+            if (flight.done) {
+                registration.run();
+            } else {
+                caller.registration = registration;
+            }
+        }
+    }
+
+    /**
+     * Removes a cancelled caller from the specified flight. The task is cancelled
+     * if no caller is left.
+     */
+    private void leave(K key, Flight<V> flight, Caller<V> caller) {
+        boolean abandoned;
+
+        synchronized (flight) {
+            if (flight.done || !flight.callers.remove(caller)) {
+                return;
+            }
+
+            abandoned = flight.callers.isEmpty();
+
+            if (abandoned) {
+                // later callers run the task again
+                flight.done = true;
+                inFlight.remove(key, flight);
+            } else {
+                flight.updatePriority();
+            }
+        }
+
+        caller.result.completeExceptionally(caller.token.toException());
+
+        if (abandoned) {
+            flight.token.cancel();
+        }
+    }
+
+    private void complete(K key, Flight<V> flight, V v, Throwable t) {
+        List<Caller<V>> callers;
+        List<Runnable> registrations = new ArrayList<>();
+
+        synchronized (flight) {
+            // later callers run the task again
+            flight.done = true;
+            inFlight.remove(key, flight);
+            callers = new ArrayList<>(flight.callers);
+            for (Caller<V> c : callers) {
+                if (c.registration != null) {
+                    registrations.add(c.registration);
+                }
+            }
+        }
+
+        // the callers do not wait anymore
+        registrations.forEach(Runnable::run);
+
+        if (t != null) {
+            for (Caller<V> c : callers) {
+                c.result.completeExceptionally(t);
+            }
+            return;
+        }
+
+        if (callers.isEmpty()) {
+            // all callers have been cancelled
+            discard.accept(v);
+            return;
+        }
+
+        // all callers own their share before the first caller can release its share
+        Throwable[] failures = new Throwable[callers.size()];
+
+        for (int i = 0; i < failures.length; i++) {
+            try {
+                share.accept(v);
+            } catch (Throwable ex) {
+                failures[i] = ex;
+            }
+        }
+
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] != null) {
+                callers.get(i).result.completeExceptionally(failures[i]);
+            } else {
+                callers.get(i).result.complete(v);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tasks that have been coalesced with a running task.
+     * @return the number of coalesced tasks
+     */
+    long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -5,10 +5,18 @@
  */
 package eu.mihosoft.vcsg;
 
+import eu.mihosoft.vcsg.util.CancellationToken;
+import eu.mihosoft.vcsg.util.ExecutionListener;
+import eu.mihosoft.vcsg.util.ExecutionStatistics;
+import eu.mihosoft.vcsg.util.MemoryMonitor;
+import eu.mihosoft.vcsg.util.ProcessScheduler;
 import eu.mihosoft.vcsg.util.VCSGImpl;
 
 import java.io.File;
 import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  *Executes native csg kernel
@@ -28,6 +36,23 @@ public interface VCSG {
      */
     Process getProcess();
 
+    /**
+     * Returns the exit value of the current vcsg execution.
+     * @return the exit value of the current vcsg execution
+     */
+    default int getExitValue() {
+        return getProcess().exitValue();
+    }
+
+    /**
+     * Returns the end of the error output of the current vcsg execution, e.g.,
+     * to attach it to exceptions.
+     * @return the most recent error output (at most a few kilobytes) or an empty string if not captured
+     */
+    default String getErrorOutput() {
+        return "";
+    }
+
     /**
      * Returns the working directory
      * @return the working directory
@@ -57,9 +82,13 @@ public interface VCSG {
     VCSG waitFor();
 
     /**
-     * Executes vcsg with the specified script.
+     * Executes vcsg with the specified script. Blocks until the maximum number
+     * of concurrent processes permits the process (see {@link #getScheduler()}).
+     * This is safe on threads of {@link #getExecutor()}, but tasks on bounded
+     * executors should prefer {@link #executeAsync(File, String...)}, which
+     * does not occupy a thread while waiting.
      *
-     * @param wd working directory (currently ignored)
+     * @param wd working directory (may be {@code null})
      * @param arguments arguments
      * @return this shell
      */
@@ -78,6 +107,141 @@ public interface VCSG {
         return VCSGImpl.execute(arguments);
     }
 
+    /**
+     * Executes vcsg asynchronously with the specified arguments. The process
+     * is started once it is admitted by the scheduler (see {@link #getScheduler()}). The
+     * returned future completes on the executor returned by {@link #getExecutor()}
+     * once the process has terminated, no thread is blocked while waiting for it. Standard output of the process is
+     * discarded and error output is forwarded to the error output of this JVM.
+     *
+     * @param arguments arguments
+     * @return future that completes with the terminated vcsg execution
+     */
+    static CompletableFuture<VCSG> executeAsync(String... arguments) {
+        return VCSGImpl.executeAsync(null, arguments);
+    }
+
+    /**
+     * Executes vcsg asynchronously with the specified arguments. The process is
+     * queued with the specified priority class if the maximum number of concurrent
+     * processes has been reached (see {@link #getScheduler()}).
+     *
+     * @param priority priority class
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the terminated vcsg execution
+     * @see #executeAsync(String...)
+     */
+    static CompletableFuture<VCSG> executeAsync(ProcessScheduler.Priority priority, File wd, String... arguments) {
+        return VCSGImpl.executeAsync(priority, wd, arguments);
+    }
+
+    /**
+     * Executes vcsg asynchronously with the specified arguments. If the specified
+     * token is cancelled, the process is removed from the queue or killed and the
+     * returned future completes with a {@link java.util.concurrent.CancellationException}.
+     *
+     * @param priority priority class
+     * @param token cancellation token
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the terminated vcsg execution
+     * @see #executeAsync(ProcessScheduler.Priority, File, String...)
+     */
+    static CompletableFuture<VCSG> executeAsync(ProcessScheduler.Priority priority, CancellationToken token,
+                                                File wd, String... arguments) {
+        return VCSGImpl.executeAsync(priority, token, wd, arguments);
+    }
+
+    /**
+     * Sets the default timeout of occ-csg processes. Processes that exceed the
+     * timeout are terminated (and killed forcibly if they do not terminate within
+     * the termination grace period). Deadlines of individual calls are specified
+     * via {@link CancellationToken#withTimeout(Duration)}.
+     *
+     * @param timeout default timeout ({@code null} or zero disables the default timeout)
+     */
+    static void setDefaultTimeout(Duration timeout) {
+        VCSGImpl.setDefaultTimeout(timeout);
+    }
+
+    /**
+     * Returns the default timeout of occ-csg processes.
+     *
+     * @return the default timeout ({@link Duration#ZERO} if disabled)
+     */
+    static Duration getDefaultTimeout() {
+        return VCSGImpl.getDefaultTimeout();
+    }
+
+    /**
+     * Sets the time terminated occ-csg processes get to exit before they are killed forcibly.
+     *
+     * @param gracePeriod termination grace period (default: 5 seconds)
+     */
+    static void setTerminationGracePeriod(Duration gracePeriod) {
+        VCSGImpl.setTerminationGracePeriod(gracePeriod);
+    }
+
+    /**
+     * Returns the time terminated occ-csg processes get to exit before they are killed forcibly.
+     *
+     * @return the termination grace period
+     */
+    static Duration getTerminationGracePeriod() {
+        return VCSGImpl.getTerminationGracePeriod();
+    }
+
+    /**
+     * Returns the process scheduler that limits the number of concurrently running
+     * vcsg processes (default: number of available processors). Processes that exceed
+     * the limit are queued by priority class. The priority class of the processes
+     * started by the current thread can be set via
+     * {@link ProcessScheduler#callWithPriority(ProcessScheduler.Priority, java.util.function.Supplier)}.
+     *
+     * @return the process scheduler
+     */
+    static ProcessScheduler getScheduler() {
+        return VCSGImpl.getScheduler();
+    }
+
+    /**
+     * Executes vcsg asynchronously with the specified arguments.
+     *
+     * @param wd working directory
+     * @param arguments arguments
+     * @return future that completes with the terminated vcsg execution
+     * @see #executeAsync(String...)
+     */
+    static CompletableFuture<VCSG> executeAsync(File wd, String... arguments) {
+        return VCSGImpl.executeAsync(wd, arguments);
+    }
+
+    /**
+     * Sets the executor used for completing the futures of asynchronous vcsg
+     * executions (default is the common fork/join pool). Processes are started
+     * on an internal thread, i.e., executions that have been admitted by the
+     * scheduler never wait for a (busy) executor thread. Synchronous CSG
+     * operations wait for futures that complete on this executor. Thus, tasks
+     * on a bounded executor must not call them if all its threads might be
+     * blocked this way (fork/join pools compensate blocked threads), they
+     * should use the asynchronous variants instead.
+     *
+     * @param executor executor to use
+     */
+    static void setExecutor(Executor executor) {
+        VCSGImpl.setExecutor(executor);
+    }
+
+    /**
+     * Returns the executor used for asynchronous vcsg executions.
+     *
+     * @return the executor used for asynchronous vcsg executions
+     */
+    static Executor getExecutor() {
+        return VCSGImpl.getExecutor();
+    }
+
     /**
      * Returns the vcsg installation folder.
      *
@@ -86,4 +250,130 @@ public interface VCSG {
     static File getVCSGInstallationFolder() {
         return VCSGImpl.getVCSGRootPath();
     }
+
+    /**
+     * Enables or disables the worker pool. If enabled, vcsg commands are executed
+     * by the specified number of long-lived occ-csg worker processes instead of
+     * spawning a new process per command. If the occ-csg binary does not support
+     * the worker protocol (see {@link eu.mihosoft.vcsg.util.WorkerPool}), commands
+     * are spawned as before.
+     *
+     * @param size number of worker processes ({@code 0} disables the worker pool)
+     */
+    static void setWorkerPoolSize(int size) {
+        VCSGImpl.setWorkerPoolSize(size);
+    }
+
+    /**
+     * Enables or disables launcher mode. If enabled, occ-csg is spawned by small
+     * launcher processes that are started once (see {@link eu.mihosoft.vcsg.util.Launcher}).
+     * This avoids forking the host JVM for every command, which is expensive for
+     * JVMs with large heaps. Launcher mode and the worker pool are mutually exclusive.
+     *
+     * @param size number of launcher processes, i.e., the maximum number of concurrent
+     * occ-csg processes ({@code 0} disables launcher mode)
+     */
+    static void setLauncherPoolSize(int size) {
+        VCSGImpl.setLauncherPoolSize(size);
+    }
+
+    /**
+     * Adds a listener that is notified about every terminated occ-csg process,
+     * including its wall time, CPU time, peak memory, input and output sizes and
+     * exit value.
+     *
+     * @param listener listener to add
+     */
+    static void addExecutionListener(ExecutionListener listener) {
+        VCSGImpl.addExecutionListener(listener);
+    }
+
+    /**
+     * Removes the specified execution listener.
+     *
+     * @param listener listener to remove
+     * @return {@code true} if the listener has been removed; {@code false} otherwise
+     */
+    static boolean removeExecutionListener(ExecutionListener listener) {
+        return VCSGImpl.removeExecutionListener(listener);
+    }
+
+    /**
+     * Returns the resource usage of occ-csg processes aggregated per kind of operation.
+     *
+     * @return the aggregated resource usage
+     */
+    static ExecutionStatistics getExecutionStatistics() {
+        return VCSGImpl.getExecutionStatistics();
+    }
+
+    /**
+     * Sets the memory budget of concurrently running occ-csg processes. New
+     * processes are held back if their estimated peak memory (based on the peak
+     * memory of previous processes of the same kind and the size of the input
+     * files) does not fit into the budget. By default, the budget is 75% of the
+     * cgroup memory limit (if any).
+     *
+     * @param bytes memory budget (in bytes), {@code -1} disables the budget
+     */
+    static void setMemoryBudget(long bytes) {
+        VCSGImpl.getScheduler().setMemoryBudget(bytes);
+    }
+
+    /**
+     * Returns the memory budget of concurrently running occ-csg processes.
+     *
+     * @return the memory budget (in bytes) or {@code -1} if disabled
+     */
+    static long getMemoryBudget() {
+        return VCSGImpl.getScheduler().getMemoryBudget();
+    }
+
+    /**
+     * Returns the monitor that records the peak memory of occ-csg processes per kind of operation.
+     *
+     * @return the memory monitor
+     */
+    static MemoryMonitor getMemoryMonitor() {
+        return VCSGImpl.getMemoryMonitor();
+    }
+
+    /**
+     * Enables or disables the adaptive limit for the number of concurrent occ-csg
+     * processes. The limit is derived from the cgroup CPU and memory quotas and
+     * adjusted based on observed latencies and throughput. The current limit is
+     * available via {@code getScheduler().getMaxConcurrency()}.
+     *
+     * @param enabled {@code true} to enable the adaptive limit
+     */
+    static void setAdaptiveConcurrencyEnabled(boolean enabled) {
+        VCSGImpl.setAdaptiveConcurrencyEnabled(enabled);
+    }
+
+    /**
+     * Indicates whether the adaptive limit for the number of concurrent occ-csg processes is enabled.
+     *
+     * @return {@code true} if the adaptive limit is enabled; {@code false} otherwise
+     */
+    static boolean isAdaptiveConcurrencyEnabled() {
+        return VCSGImpl.isAdaptiveConcurrencyEnabled();
+    }
+
+    /**
+     * Returns the number of worker processes.
+     *
+     * @return the number of worker processes ({@code 0} if the worker pool is disabled or not supported)
+     */
+    static int getWorkerPoolSize() {
+        return VCSGImpl.getWorkerPoolSize();
+    }
+
+    /**
+     * Returns the occ-csg executable.
+     *
+     * @return the occ-csg executable
+     */
+    static File getExecutableFile() {
+        return VCSGImpl.getExecutableFile();
+    }
 }
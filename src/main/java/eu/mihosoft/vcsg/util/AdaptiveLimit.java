@@ -0,0 +1,259 @@
+package eu.mihosoft.vcsg.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adaptive concurrency limit (additive increase, multiplicative decrease).
+ *
+ * <p>The latency of occ-csg processes varies by orders of magnitude between
+ * operations and operand sizes. Therefore, each latency sample is compared to
+ * the baseline latency of its kind of operation (e.g., {@code "--csg union"})
+ * and size class (input sizes within a factor of two). The baseline is the
+ * long-term average of these latencies, i.e., latencies that vary without
+ * contention average out. If processes take considerably longer than their
+ * baseline, i.e., they compete for CPU or memory, the limit is decreased
+ * multiplicatively. The limit is also decreased if the throughput drops after
+ * the limit has been increased. Otherwise, the limit is increased by one per
+ * round trip as long as it is actually used.</p>
+ */
+public final class AdaptiveLimit {
+
+    // assumed peak memory of one occ-csg process if the memory limit is known
+    private static final long PROCESS_MEMORY = 256L * 1024 * 1024;
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_SMOOTHING = 0.05;
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final double THROUGHPUT_DROP = 0.8;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    // guarded by this
+    private final Map<String, Double> baselines = new HashMap<>();
+    private double limit;
+    private double latencyRatio = 1;
+    private long samples;
+    private long lastDecrease;
+    private long decreases;
+
+    // throughput windows (a window spans a number of samples)
+    private long windowStart = System.nanoTime();
+    private int windowSamples;
+    private double windowStartLimit;
+    private double throughput = Double.NaN;
+
+    /**
+     * Constructor.
+     *
+     * @param initialLimit initial limit
+     * @param minLimit minimum limit
+     * @param maxLimit maximum limit
+     * @param tolerance latency ratio (sample latency divided by baseline latency)
+     * that is tolerated before the limit is decreased, e.g., {@code 2.0}
+     */
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit range: [" + minLimit + ", " + maxLimit + "]");
+        }
+        if (!(tolerance > 1)) {
+            throw new IllegalArgumentException("Tolerance must be greater than 1, got " + tolerance);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = clamp(initialLimit);
+        this.windowStartLimit = limit;
+    }
+
+    /**
+     * Creates an adaptive limit for the specified container quotas. The limit
+     * starts at the number of usable processors and may grow up to twice that
+     * number. If the memory limit is known, the limit does not exceed the number
+     * of processes that fit into memory.
+     *
+     * @param limits container quotas
+     * @return adaptive limit
+     */
+    public static AdaptiveLimit forLimits(CgroupLimits limits) {
+        int processors = limits.getProcessors();
+        int max = 2 * processors;
+
+        if (limits.getMemoryLimit() > 0) {
+            max = (int) Math.max(1, Math.min(max, limits.getMemoryLimit() / PROCESS_MEMORY));
+        }
+
+        return new AdaptiveLimit(Math.min(processors, max), 1, max, 2.0);
+    }
+
+    /**
+     * Records the latency of a terminated process with unknown input size and updates the limit.
+     *
+     * @param kind kind of operation, e.g., {@code "--csg union"}
+     * @param latencyNanos latency of the process (in nanoseconds)
+     * @param inFlight number of processes that were running when the process terminated (including itself)
+     * @return the updated limit
+     */
+    public int onSample(String kind, long latencyNanos, int inFlight) {
+        return onSample(kind, latencyNanos, -1, inFlight);
+    }
+
+    /**
+     * Records the latency of a terminated process and updates the limit.
+     *
+     * @param kind kind of operation, e.g., {@code "--csg union"}
+     * @param latencyNanos latency of the process (in nanoseconds)
+     * @param inputBytes total size of the input files (in bytes, {@code -1} if unknown)
+     * @param inFlight number of processes that were running when the process terminated (including itself)
+     * @return the updated limit
+     */
+    public synchronized int onSample(String kind, long latencyNanos, long inputBytes, int inFlight) {
+        samples++;
+
+        double latency = Math.max(1, latencyNanos);
+
+        // latencies are only comparable for similar input sizes
+        String key = inputBytes > 0 ? kind + " #" + (63 - Long.numberOfLeadingZeros(inputBytes)) : kind;
+
+        // the baseline follows the average, e.g., if inputs grow
+        Double baseline = baselines.get(key);
+        double ratio = baseline == null ? 1 : latency / baseline;
+        baselines.put(key, baseline == null ? latency : baseline + (latency - baseline) * BASELINE_SMOOTHING);
+
+        latencyRatio += (ratio - latencyRatio) * SMOOTHING;
+
+        if (latencyRatio > tolerance) {
+            decrease();
+        } else if (inFlight >= (int) limit) {
+            // additive increase: one per round trip
+            limit = clamp(limit + 1 / limit);
+        }
+
+        updateThroughput();
+
+        return getLimit();
+    }
+
+    private void updateThroughput() {
+        windowSamples++;
+
+        if (windowSamples < Math.max(MIN_WINDOW_SAMPLES, 2 * (int) limit)) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        double current = windowSamples / Math.max(1e-9, (now - windowStart) / 1e9);
+
+        // a larger limit that does not pay off is treated as congestion
+        if (!Double.isNaN(throughput) && (int) limit > (int) windowStartLimit
+                && current < throughput * THROUGHPUT_DROP) {
+            decrease();
+        }
+
+        throughput = current;
+        windowStart = now;
+        windowSamples = 0;
+        windowStartLimit = limit;
+    }
+
+    private void decrease() {
+        // decrease at most once per round trip
+        if (samples - lastDecrease < (long) limit) {
+            return;
+        }
+
+        limit = clamp(limit * DECREASE_FACTOR);
+        lastDecrease = samples;
+        decreases++;
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * Sets the current limit, e.g., if the limit is configured explicitly.
+     *
+     * @param limit new limit (clamped to the limit range)
+     */
+    public synchronized void setLimit(int limit) {
+        this.limit = clamp(limit);
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the minimum limit.
+     *
+     * @return the minimum limit
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Returns the maximum limit.
+     *
+     * @return the maximum limit
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Returns the smoothed ratio between observed latencies and baseline latencies.
+     *
+     * @return the smoothed latency ratio ({@code 1} means no contention)
+     */
+    public synchronized double getLatencyRatio() {
+        return latencyRatio;
+    }
+
+    /**
+     * Returns the throughput measured in the last complete window.
+     *
+     * @return the throughput (processes per second) or {@link Double#NaN} if unknown
+     */
+    public synchronized double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return the number of samples
+     */
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the number of times the limit has been decreased.
+     *
+     * @return the number of decreases
+     */
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveLimit{" +
+                "limit=" + limit +
+                ", range=[" + minLimit + ", " + maxLimit + "]" +
+                ", latencyRatio=" + latencyRatio +
+                ", throughput=" + throughput +
+                '}';
+    }
+}
@@ -0,0 +1,283 @@
+package eu.mihosoft.vcsg.util;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Token that cancels occ-csg processes, e.g., if the user aborts an operation or
+ * if a deadline is exceeded. Processes started while a token is current (see
+ * {@link #call(Supplier)}) are killed as soon as the token is cancelled. Queued
+ * processes are removed from the scheduler queue. Composite operations, e.g.,
+ * {@code union(List)}, propagate the token of the calling thread to all
+ * processes they start.
+ *
+ * <p>Example:</p>
+ * <pre>
+ * CSG result = CancellationToken.withTimeout(Duration.ofSeconds(30)).
+ *     call(() -&gt; base.difference(cutters));
+ * </pre>
+ */
+public final class CancellationToken {
+
+    private static final int ACTIVE = 0;
+    private static final int CANCELLED = 1;
+    private static final int TIMED_OUT = 2;
+
+    private static final CancellationToken NONE = new CancellationToken(Long.MAX_VALUE, false);
+
+    private static final ThreadLocal<CancellationToken> CURRENT = ThreadLocal.withInitial(() -> NONE);
+
+    private static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
+    private final AtomicInteger state = new AtomicInteger(ACTIVE);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final long deadline;
+    private final boolean cancellable;
+    private volatile ScheduledFuture<?> timeout;
+
+    private CancellationToken(long deadline, boolean cancellable) {
+        this.deadline = deadline;
+        this.cancellable = cancellable;
+    }
+
+    private static ScheduledThreadPoolExecutor newTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "vcsg-cancellation-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        // most deadlines are not reached, i.e., their timeouts are cancelled
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    /**
+     * Creates a new token without deadline.
+     *
+     * @return new token
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Creates a new token that is cancelled once the specified timeout has elapsed.
+     *
+     * @param timeout timeout
+     * @return new token
+     */
+    public static CancellationToken withTimeout(Duration timeout) {
+        long nanos = timeout.toNanos();
+
+        CancellationToken token = new CancellationToken(System.nanoTime() + nanos, true);
+        token.timeout = schedule(() -> token.cancel(TIMED_OUT), nanos);
+
+        return token;
+    }
+
+    /**
+     * Returns a token that is never cancelled.
+     *
+     * @return a token that is never cancelled
+     */
+    public static CancellationToken none() {
+        return NONE;
+    }
+
+    /**
+     * Returns the token of the current thread.
+     *
+     * @return the token of the current thread ({@link #none()} if no token is current)
+     */
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Creates a child token. The child token is cancelled if this token is
+     * cancelled. Cancelling the child token does not cancel this token.
+     *
+     * @param timeout timeout of the child token ({@code null} for no additional timeout)
+     * @return new child token
+     */
+    public CancellationToken child(Duration timeout) {
+        CancellationToken child = timeout == null ? create() : withTimeout(timeout);
+
+        if (cancellable) {
+            Runnable registration = onCancel(() -> child.cancel(state.get()));
+            // do not keep cancelled children reachable from long-living parents
+            child.listeners.add(registration);
+        }
+
+        return child;
+    }
+
+    /**
+     * Runs the specified task with this token as current token, i.e., processes
+     * started by the task on the current thread are cancelled with this token.
+     *
+     * @param task task to run
+     * @param <T> result type
+     * @return the result of the task
+     * @throws CancellationException if this token is cancelled before the task starts
+     */
+    public <T> T call(Supplier<T> task) {
+        throwIfCancelled();
+
+        CancellationToken prev = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(prev);
+        }
+    }
+
+    /**
+     * Cancels this token. Cancelling a token more than once has no effect.
+     *
+     * @throws UnsupportedOperationException if this token is {@link #none()}
+     */
+    public void cancel() {
+        if (!cancellable) {
+            throw new UnsupportedOperationException("This token cannot be cancelled");
+        }
+        cancel(CANCELLED);
+    }
+
+    private void cancel(int reason) {
+        if (!state.compareAndSet(ACTIVE, reason)) {
+            return;
+        }
+
+        ScheduledFuture<?> t = timeout;
+        if (t != null) {
+            t.cancel(false);
+        }
+
+        for (Runnable l : listeners) {
+            try {
+                l.run();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(CancellationToken.class.getName()).log(Level.WARNING, "cancellation listener failed", ex);
+            }
+        }
+
+        listeners.clear();
+    }
+
+    /**
+     * Registers a listener that is called once this token is cancelled. The
+     * listener is called immediately if this token has already been cancelled.
+     *
+     * @param listener listener to register
+     * @return registration, i.e., runnable that removes the listener
+     */
+    public Runnable onCancel(Runnable listener) {
+        if (!cancellable) {
+            return () -> { };
+        }
+
+        Runnable once = new Runnable() {
+            private final AtomicInteger called = new AtomicInteger();
+
+            @Override
+            public void run() {
+                if (called.compareAndSet(0, 1)) {
+                    listener.run();
+                }
+            }
+        };
+
+        listeners.add(once);
+
+        // cancelled concurrently
+        if (isCancelled()) {
+            listeners.remove(once);
+            once.run();
+        }
+
+        return () -> removeListener(once);
+    }
+
+    private void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Indicates whether this token has been cancelled (explicitly or because its deadline has been exceeded).
+     *
+     * @return {@code true} if this token has been cancelled; {@code false} otherwise
+     */
+    public boolean isCancelled() {
+        return state.get() != ACTIVE;
+    }
+
+    /**
+     * Indicates whether this token has been cancelled because its deadline has been exceeded.
+     *
+     * @return {@code true} if the deadline has been exceeded; {@code false} otherwise
+     */
+    public boolean isTimedOut() {
+        return state.get() == TIMED_OUT;
+    }
+
+    /**
+     * Returns the deadline of this token (see {@link System#nanoTime()}).
+     *
+     * @return the deadline of this token or {@link Long#MAX_VALUE} if this token has no deadline
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns the exception that describes why this token has been cancelled.
+     *
+     * @return the exception that describes the cancellation
+     */
+    public CancellationException toException() {
+        return new CancellationException(isTimedOut() ? "deadline exceeded" : "cancelled");
+    }
+
+    /**
+     * Throws a {@link CancellationException} if this token has been cancelled.
+     *
+     * @throws CancellationException if this token has been cancelled
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw toException();
+        }
+    }
+
+    /**
+     * Runs the specified task after the specified delay on the shared timer thread.
+     *
+     * @param task task to run (must return quickly)
+     * @param delayNanos delay (in nanoseconds)
+     * @return future of the scheduled task
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long delayNanos) {
+        return TIMER.schedule(task, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "CancellationToken{" +
+                "cancelled=" + isCancelled() +
+                ", timedOut=" + isTimedOut() +
+                ", remainingMillis=" + (deadline == Long.MAX_VALUE ? "unlimited"
+                : Long.toString((deadline - System.nanoTime()) / 1_000_000)) +
+                '}';
+    }
+}
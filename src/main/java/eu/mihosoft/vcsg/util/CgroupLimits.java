@@ -0,0 +1,217 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * CPU and memory quotas of the control group (cgroup v1 or v2) of this JVM.
+ * Quotas of parent groups are taken into account, i.e., the most restrictive
+ * quota applies. Missing or unreadable files are treated as "no quota".
+ */
+public final class CgroupLimits {
+
+    // cgroup v1 reports "no limit" as a page-aligned Long.MAX_VALUE
+    private static final long UNLIMITED_THRESHOLD = Long.MAX_VALUE / 2;
+
+    private final double cpuLimit;
+    private final long memoryLimit;
+
+    private CgroupLimits(double cpuLimit, long memoryLimit) {
+        this.cpuLimit = cpuLimit;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Reads the quotas of the control group of this JVM.
+     *
+     * @return the quotas of the control group of this JVM
+     */
+    public static CgroupLimits detect() {
+        return read(Paths.get("/sys/fs/cgroup"), Paths.get("/proc/self/cgroup"));
+    }
+
+    /**
+     * Reads the quotas of a control group.
+     *
+     * @param cgroupRoot mount point of the cgroup file system, e.g., {@code /sys/fs/cgroup}
+     * @param procCgroup cgroup membership file, e.g., {@code /proc/self/cgroup}
+     * @return the quotas of the control group
+     */
+    public static CgroupLimits read(Path cgroupRoot, Path procCgroup) {
+        List<String> membership = readLines(procCgroup);
+
+        if (Files.isRegularFile(cgroupRoot.resolve("cgroup.controllers"))) {
+            // unified hierarchy (cgroup v2)
+            List<Path> dirs = hierarchy(cgroupRoot, groupPath(membership, ""));
+
+            double cpu = Double.NaN;
+            long memory = -1;
+
+            for (Path dir : dirs) {
+                String[] cpuMax = readValue(dir.resolve("cpu.max")).split("\\s+");
+                if (cpuMax.length == 2 && !"max".equals(cpuMax[0])) {
+                    cpu = min(cpu, ratio(cpuMax[0], cpuMax[1]));
+                }
+                memory = min(memory, parseLong(readValue(dir.resolve("memory.max"))));
+            }
+
+            return new CgroupLimits(cpu, memory);
+        }
+
+        // cgroup v1
+        double cpu = Double.NaN;
+        for (Path dir : hierarchy(controllerRoot(cgroupRoot, "cpu"), groupPath(membership, "cpu"))) {
+            long quota = parseLong(readValue(dir.resolve("cpu.cfs_quota_us")));
+            if (quota > 0) {
+                cpu = min(cpu, ratio(Long.toString(quota), readValue(dir.resolve("cpu.cfs_period_us"))));
+            }
+        }
+
+        long memory = -1;
+        for (Path dir : hierarchy(controllerRoot(cgroupRoot, "memory"), groupPath(membership, "memory"))) {
+            memory = min(memory, parseLong(readValue(dir.resolve("memory.limit_in_bytes"))));
+        }
+
+        return new CgroupLimits(cpu, memory);
+    }
+
+    /**
+     * Returns the path of the group of the specified controller (cgroup v1) or of the
+     * unified hierarchy (empty controller name).
+     */
+    private static String groupPath(List<String> membership, String controller) {
+        for (String line : membership) {
+            // format: hierarchy-ID:controller-list:cgroup-path
+            String[] fields = line.split(":", 3);
+            if (fields.length != 3) {
+                continue;
+            }
+            if (controller.isEmpty() ? "0".equals(fields[0]) && fields[1].isEmpty()
+                    : Arrays.asList(fields[1].split(",")).contains(controller)) {
+                return fields[2];
+            }
+        }
+        return "/";
+    }
+
+    private static Path controllerRoot(Path cgroupRoot, String controller) {
+        Path dir = cgroupRoot.resolve(controller);
+        if (Files.isDirectory(dir)) {
+            return dir;
+        }
+
+        // controllers might be co-mounted, e.g., "cpu,cpuacct"
+        try (Stream<Path> dirs = Files.list(cgroupRoot)) {
+            return dirs.filter(d -> Arrays.asList(d.getFileName().toString().split(",")).contains(controller)).
+                    findFirst().orElse(dir);
+        } catch (IOException ex) {
+            return dir;
+        }
+    }
+
+    /**
+     * Returns the group folder and its parents (up to the mount point). Inside
+     * containers, the mount point usually is the group itself, i.e., the group
+     * path does not exist below the mount point.
+     */
+    private static List<Path> hierarchy(Path mountPoint, String groupPath) {
+        List<Path> dirs = new ArrayList<>();
+
+        Path dir = mountPoint.resolve(groupPath.replaceFirst("^/+", "")).normalize();
+
+        if (!dir.startsWith(mountPoint) || !Files.isDirectory(dir)) {
+            return Collections.singletonList(mountPoint);
+        }
+
+        while (dir != null && dir.startsWith(mountPoint)) {
+            dirs.add(dir);
+            dir = dir.getParent();
+        }
+
+        return dirs;
+    }
+
+    private static double ratio(String quota, String period) {
+        double p = parseLong(period);
+        return p > 0 ? parseLong(quota) / p : Double.NaN;
+    }
+
+    private static double min(double a, double b) {
+        return Double.isNaN(a) ? b : Double.isNaN(b) ? a : Math.min(a, b);
+    }
+
+    private static long min(long a, long b) {
+        return a < 0 ? b : b < 0 ? a : Math.min(a, b);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            long v = Long.parseLong(value);
+            return v >= UNLIMITED_THRESHOLD ? -1 : v;
+        } catch (NumberFormatException ex) {
+            // e.g., "max"
+            return -1;
+        }
+    }
+
+    private static String readValue(Path file) {
+        List<String> lines = readLines(file);
+        return lines.isEmpty() ? "" : lines.get(0).trim();
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException | SecurityException ex) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the CPU quota in cores, e.g., {@code 1.5}.
+     *
+     * @return the CPU quota in cores or {@link Double#NaN} if unlimited
+     */
+    public double getCpuLimit() {
+        return cpuLimit;
+    }
+
+    /**
+     * Returns the memory limit.
+     *
+     * @return the memory limit (in bytes) or {@code -1} if unlimited
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Returns the number of processors this JVM may use, i.e., the number of
+     * available processors capped by the CPU quota.
+     *
+     * @return the number of usable processors (at least 1)
+     */
+    public int getProcessors() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (!Double.isNaN(cpuLimit)) {
+            processors = Math.min(processors, (int) Math.ceil(cpuLimit));
+        }
+        return Math.max(1, processors);
+    }
+
+    @Override
+    public String toString() {
+        return "CgroupLimits{" +
+                "cpuLimit=" + cpuLimit +
+                ", memoryLimit=" + memoryLimit +
+                '}';
+    }
+}
@@ -0,0 +1,17 @@
+package eu.mihosoft.vcsg.util;
+
+/**
+ * Listener that is notified about terminated occ-csg processes, e.g., to
+ * export resource usage to a monitoring system. Listeners are called on the
+ * thread that observes the termination and should return quickly.
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+
+    /**
+     * Called after an occ-csg process has terminated.
+     *
+     * @param record resource usage of the process
+     */
+    void executed(ExecutionRecord record);
+}
@@ -0,0 +1,158 @@
+package eu.mihosoft.vcsg.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resource usage of one terminated occ-csg process. CPU time and peak memory
+ * are sampled while the process runs, i.e., they are approximations and are
+ * unknown for very short processes and for processes executed by a worker pool.
+ */
+public final class ExecutionRecord {
+
+    private final String kind;
+    private final List<String> arguments;
+    private final long wallNanos;
+    private final long userCpuNanos;
+    private final long systemCpuNanos;
+    private final long cpuNanos;
+    private final long peakMemory;
+    private final long inputBytes;
+    private final long outputBytes;
+    private final int exitValue;
+
+    /**
+     * Constructor.
+     *
+     * @param kind kind of operation, e.g., {@code "--csg union"}
+     * @param arguments arguments of the process
+     * @param wallNanos wall time (in nanoseconds)
+     * @param userCpuNanos user CPU time (in nanoseconds) or {@code -1} if unknown
+     * @param systemCpuNanos system CPU time (in nanoseconds) or {@code -1} if unknown
+     * @param cpuNanos total CPU time (in nanoseconds) or {@code -1} if unknown
+     * @param peakMemory peak resident set size (in bytes) or {@code 0} if unknown
+     * @param inputBytes total size of the input files (in bytes)
+     * @param outputBytes total size of the output files (in bytes)
+     * @param exitValue exit value of the process
+     */
+    public ExecutionRecord(String kind, String[] arguments, long wallNanos,
+                           long userCpuNanos, long systemCpuNanos, long cpuNanos,
+                           long peakMemory, long inputBytes, long outputBytes, int exitValue) {
+        this.kind = kind;
+        this.arguments = Collections.unmodifiableList(
+                Arrays.asList(arguments == null ? new String[0] : arguments.clone()));
+        this.wallNanos = wallNanos;
+        this.userCpuNanos = userCpuNanos;
+        this.systemCpuNanos = systemCpuNanos;
+        this.cpuNanos = cpuNanos;
+        this.peakMemory = peakMemory;
+        this.inputBytes = inputBytes;
+        this.outputBytes = outputBytes;
+        this.exitValue = exitValue;
+    }
+
+    /**
+     * Returns the kind of operation, e.g., {@code "--csg union"}.
+     *
+     * @return the kind of operation
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the arguments of the process.
+     *
+     * @return the arguments of the process (unmodifiable)
+     */
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Returns the wall time of the process (excluding the time it was queued).
+     *
+     * @return the wall time (in nanoseconds)
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * Returns the user CPU time of the process.
+     *
+     * @return the user CPU time (in nanoseconds) or {@code -1} if unknown
+     */
+    public long getUserCpuNanos() {
+        return userCpuNanos;
+    }
+
+    /**
+     * Returns the system CPU time of the process.
+     *
+     * @return the system CPU time (in nanoseconds) or {@code -1} if unknown
+     */
+    public long getSystemCpuNanos() {
+        return systemCpuNanos;
+    }
+
+    /**
+     * Returns the total CPU time of the process.
+     *
+     * @return the total CPU time (in nanoseconds) or {@code -1} if unknown
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Returns the peak resident set size of the process.
+     *
+     * @return the peak resident set size (in bytes) or {@code 0} if unknown
+     */
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+
+    /**
+     * Returns the total size of the input files.
+     *
+     * @return the total size of the input files (in bytes)
+     */
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    /**
+     * Returns the total size of the output files.
+     *
+     * @return the total size of the output files (in bytes)
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    /**
+     * Returns the exit value of the process.
+     *
+     * @return the exit value of the process
+     */
+    public int getExitValue() {
+        return exitValue;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionRecord{" +
+                "kind='" + kind + '\'' +
+                ", wallMillis=" + wallNanos / 1_000_000 +
+                ", userCpuMillis=" + (userCpuNanos < 0 ? -1 : userCpuNanos / 1_000_000) +
+                ", systemCpuMillis=" + (systemCpuNanos < 0 ? -1 : systemCpuNanos / 1_000_000) +
+                ", peakMemory=" + peakMemory +
+                ", inputBytes=" + inputBytes +
+                ", outputBytes=" + outputBytes +
+                ", exitValue=" + exitValue +
+                '}';
+    }
+}
@@ -0,0 +1,229 @@
+package eu.mihosoft.vcsg.util;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates the resource usage of occ-csg processes per kind of operation,
+ * e.g., to find the operations that consume most of the CPU time.
+ */
+public final class ExecutionStatistics implements ExecutionListener {
+
+    // guarded by this
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Aggregated resource usage of one kind of operation. Entries are snapshots,
+     * i.e., they do not change once returned.
+     */
+    public static final class Entry {
+        private final String kind;
+        private long executions;
+        private long failures;
+        private long totalWallNanos;
+        private long maxWallNanos;
+        private long totalUserCpuNanos;
+        private long totalSystemCpuNanos;
+        private long totalCpuNanos;
+        private long maxPeakMemory;
+        private long totalInputBytes;
+        private long totalOutputBytes;
+
+        private Entry(String kind) {
+            this.kind = kind;
+        }
+
+        private Entry copy() {
+            Entry e = new Entry(kind);
+            e.executions = executions;
+            e.failures = failures;
+            e.totalWallNanos = totalWallNanos;
+            e.maxWallNanos = maxWallNanos;
+            e.totalUserCpuNanos = totalUserCpuNanos;
+            e.totalSystemCpuNanos = totalSystemCpuNanos;
+            e.totalCpuNanos = totalCpuNanos;
+            e.maxPeakMemory = maxPeakMemory;
+            e.totalInputBytes = totalInputBytes;
+            e.totalOutputBytes = totalOutputBytes;
+            return e;
+        }
+
+        private void add(ExecutionRecord r) {
+            executions++;
+            if (r.getExitValue() != 0) {
+                failures++;
+            }
+            totalWallNanos += r.getWallNanos();
+            maxWallNanos = Math.max(maxWallNanos, r.getWallNanos());
+            totalUserCpuNanos += Math.max(0, r.getUserCpuNanos());
+            totalSystemCpuNanos += Math.max(0, r.getSystemCpuNanos());
+            totalCpuNanos += Math.max(0, r.getCpuNanos());
+            maxPeakMemory = Math.max(maxPeakMemory, r.getPeakMemory());
+            totalInputBytes += r.getInputBytes();
+            totalOutputBytes += r.getOutputBytes();
+        }
+
+        /**
+         * Returns the kind of operation.
+         *
+         * @return the kind of operation
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the number of executions.
+         *
+         * @return the number of executions
+         */
+        public long getExecutions() {
+            return executions;
+        }
+
+        /**
+         * Returns the number of executions with a non-zero exit value.
+         *
+         * @return the number of failed executions
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the total wall time.
+         *
+         * @return the total wall time (in nanoseconds)
+         */
+        public long getTotalWallNanos() {
+            return totalWallNanos;
+        }
+
+        /**
+         * Returns the average wall time.
+         *
+         * @return the average wall time (in nanoseconds)
+         */
+        public double getAverageWallNanos() {
+            return executions == 0 ? 0 : totalWallNanos / (double) executions;
+        }
+
+        /**
+         * Returns the maximum wall time.
+         *
+         * @return the maximum wall time (in nanoseconds)
+         */
+        public long getMaxWallNanos() {
+            return maxWallNanos;
+        }
+
+        /**
+         * Returns the total user CPU time (of executions with known CPU time).
+         *
+         * @return the total user CPU time (in nanoseconds)
+         */
+        public long getTotalUserCpuNanos() {
+            return totalUserCpuNanos;
+        }
+
+        /**
+         * Returns the total system CPU time (of executions with known CPU time).
+         *
+         * @return the total system CPU time (in nanoseconds)
+         */
+        public long getTotalSystemCpuNanos() {
+            return totalSystemCpuNanos;
+        }
+
+        /**
+         * Returns the total CPU time (of executions with known CPU time).
+         *
+         * @return the total CPU time (in nanoseconds)
+         */
+        public long getTotalCpuNanos() {
+            return totalCpuNanos;
+        }
+
+        /**
+         * Returns the maximum peak memory.
+         *
+         * @return the maximum peak memory (in bytes)
+         */
+        public long getMaxPeakMemory() {
+            return maxPeakMemory;
+        }
+
+        /**
+         * Returns the total size of the input files.
+         *
+         * @return the total size of the input files (in bytes)
+         */
+        public long getTotalInputBytes() {
+            return totalInputBytes;
+        }
+
+        /**
+         * Returns the total size of the output files.
+         *
+         * @return the total size of the output files (in bytes)
+         */
+        public long getTotalOutputBytes() {
+            return totalOutputBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "kind='" + kind + '\'' +
+                    ", executions=" + executions +
+                    ", failures=" + failures +
+                    ", totalWallMillis=" + totalWallNanos / 1_000_000 +
+                    ", totalCpuMillis=" + totalCpuNanos / 1_000_000 +
+                    ", maxPeakMemory=" + maxPeakMemory +
+                    '}';
+        }
+    }
+
+    @Override
+    public synchronized void executed(ExecutionRecord record) {
+        entries.computeIfAbsent(record.getKind(), Entry::new).add(record);
+    }
+
+    /**
+     * Returns the aggregated resource usage of the specified kind of operation.
+     *
+     * @param kind kind of operation, e.g., {@code "--csg union"}
+     * @return the aggregated resource usage or {@code null} if no process of the specified kind has terminated
+     */
+    public synchronized Entry get(String kind) {
+        Entry e = entries.get(kind);
+        return e == null ? null : e.copy();
+    }
+
+    /**
+     * Returns the aggregated resource usage of all kinds of operations, sorted
+     * by total wall time (most expensive first).
+     *
+     * @return the aggregated resource usage of all kinds of operations
+     */
+    public synchronized List<Entry> getEntries() {
+        return entries.values().stream().map(Entry::copy).
+                sorted(Comparator.comparingLong(Entry::getTotalWallNanos).reversed()).
+                collect(Collectors.toList());
+    }
+
+    /**
+     * Removes all aggregated values.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ExecutionStatistics" + getEntries();
+    }
+}
@@ -0,0 +1,150 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight launcher process that spawns occ-csg on request. The launcher is
+ * a small JVM that is started once and speaks the worker protocol (see
+ * {@link WorkerPool}). Each {@code RUN} command spawns the executable with the
+ * specified arguments. Thus, the cost of spawning occ-csg does not depend on
+ * the heap size of the host JVM, which would otherwise have to be forked for
+ * every operation.
+ */
+public final class Launcher {
+
+    private Launcher() {
+        throw new AssertionError("Don't instantiate me!");
+    }
+
+    /**
+     * Returns the command that starts a launcher for the specified executable.
+     *
+     * @param executable executable to launch
+     * @return the command that starts a launcher
+     */
+    public static List<String> command(File executable) {
+        List<String> cmd = new ArrayList<>();
+
+        cmd.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getAbsolutePath());
+        // keep the launcher small
+        cmd.add("-Xmx16m");
+        cmd.add("-Xss256k");
+        cmd.add("-XX:+UseSerialGC");
+        cmd.add("-XX:TieredStopAtLevel=1");
+        cmd.add("-cp");
+        cmd.add(getClassPath());
+        cmd.add(Launcher.class.getName());
+        cmd.add(executable.getAbsolutePath());
+
+        return cmd;
+    }
+
+    private static String getClassPath() {
+        try {
+            return new File(Launcher.class.getProtectionDomain().
+                    getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (URISyntaxException | NullPointerException | SecurityException ex) {
+            return System.getProperty("java.class.path");
+        }
+    }
+
+    /**
+     * Runs the launcher.
+     *
+     * @param args executable to launch
+     * @throws IOException if the communication with the host process fails
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 1) {
+            System.err.println("usage: Launcher <executable>");
+            System.exit(1);
+        }
+
+        String executable = args[0];
+
+        PrintStream out = new PrintStream(System.out, true, "UTF-8");
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        out.println("READY\t" + WorkerPool.PROTOCOL_VERSION);
+
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            List<String> fields = WorkerPool.split(line);
+
+            switch (fields.get(0)) {
+                case "PING":
+                    out.println("PONG");
+                    break;
+                case "QUIT":
+                    return;
+                case "RUN":
+                    run(executable, fields, out);
+                    break;
+                default:
+                    // ignore unknown messages
+            }
+        }
+    }
+
+    private static void run(String executable, List<String> fields, PrintStream out) {
+        List<String> cmd = new ArrayList<>(fields.size());
+        cmd.add(executable);
+        cmd.addAll(fields.subList(2, fields.size()));
+
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+
+        String wd = fields.get(1);
+        if (!wd.isEmpty()) {
+            pb.directory(new File(wd));
+        }
+
+        int exitValue;
+
+        try {
+            Process p = pb.start();
+            p.getOutputStream().close();
+
+            Thread errPump = new Thread(() -> pump(p.getErrorStream(), "ERR", out));
+            errPump.start();
+
+            pump(p.getInputStream(), "OUT", out);
+
+            exitValue = p.waitFor();
+            errPump.join();
+        } catch (IOException | InterruptedException ex) {
+            synchronized (out) {
+                out.println("ERR\t" + WorkerPool.escape("cannot launch " + executable + ": " + ex.getMessage()));
+            }
+            exitValue = 127;
+        }
+
+        synchronized (out) {
+            out.println("EXIT\t" + exitValue);
+        }
+    }
+
+    private static void pump(InputStream is, String type, PrintStream out) {
+        try {
+            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+            while ((line = br.readLine()) != null) {
+                synchronized (out) {
+                    out.println(type + "\t" + WorkerPool.escape(line));
+                }
+            }
+        } catch (IOException ex) {
+            // process terminated
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Samples the resident set size (RSS) and CPU time of occ-csg processes and
+ * records the peak memory per kind of operation (e.g., {@code "--csg union"}).
+ * The peak memory is used to estimate the memory a new process will need based
+ * on the size of its input files.
+ *
+ * <p>All processes are sampled by one shared daemon thread. Sampling reads
+ * {@code /proc/<pid>/status} and {@code /proc/<pid>/stat}. On other platforms,
+ * only the total CPU time is sampled via {@link ProcessHandle.Info}. Values are
+ * the last sampled values, i.e., processes that terminate before the first
+ * sample report no usage.</p>
+ */
+public final class MemoryMonitor {
+
+    private static final long MB = 1024L * 1024;
+    // added to the input size, i.e., operations without input files get a non-zero estimate
+    private static final long INPUT_FLOOR = MB;
+    // estimate for unknown operations: 64 MB plus 64 bytes per input byte
+    private static final double DEFAULT_RATIO = 64;
+    private static final double RATIO_DECAY = 0.1;
+    // clock ticks per second of /proc/<pid>/stat (USER_HZ), 100 on all common Linux ABIs
+    private static final long CLOCK_TICKS = 100;
+
+    private final long intervalMillis;
+    private final boolean supported;
+
+    private final Map<Long, Usage> tracked = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private final Map<String, KindStats> stats = new HashMap<>();
+    private ScheduledExecutorService sampler;
+
+    /**
+     * Resource usage of a sampled process.
+     */
+    public static final class Usage {
+        private final String kind;
+        private final long inputBytes;
+        private final Process process;
+        private final LongConsumer onUsage;
+        private volatile long peak;
+        private volatile long userCpuNanos = -1;
+        private volatile long systemCpuNanos = -1;
+        private volatile long cpuNanos = -1;
+
+        private Usage(String kind, long inputBytes, Process process, LongConsumer onUsage) {
+            this.kind = kind;
+            this.inputBytes = inputBytes;
+            this.process = process;
+            this.onUsage = onUsage;
+        }
+
+        /**
+         * Returns the peak resident set size.
+         *
+         * @return the peak resident set size (in bytes) or {@code 0} if unknown
+         */
+        public long getPeakMemory() {
+            return peak;
+        }
+
+        /**
+         * Returns the user CPU time.
+         *
+         * @return the user CPU time (in nanoseconds) or {@code -1} if unknown
+         */
+        public long getUserCpuNanos() {
+            return userCpuNanos;
+        }
+
+        /**
+         * Returns the system CPU time.
+         *
+         * @return the system CPU time (in nanoseconds) or {@code -1} if unknown
+         */
+        public long getSystemCpuNanos() {
+            return systemCpuNanos;
+        }
+
+        /**
+         * Returns the total CPU time.
+         *
+         * @return the total CPU time (in nanoseconds) or {@code -1} if unknown
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+    }
+
+    private static final class KindStats {
+        long maxPeak;
+        long processes;
+        double ratio;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param intervalMillis sampling interval (in milliseconds)
+     */
+    public MemoryMonitor(long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Interval must be greater than 0, got " + intervalMillis);
+        }
+        this.intervalMillis = intervalMillis;
+        this.supported = Files.isReadable(Paths.get("/proc/self/status"));
+    }
+
+    /**
+     * Indicates whether memory sampling is supported on this platform (CPU time
+     * is sampled on all platforms).
+     *
+     * @return {@code true} if memory sampling is supported; {@code false} otherwise
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Estimates the peak memory of a process.
+     *
+     * @param kind kind of operation
+     * @param inputBytes total size of the input files (in bytes)
+     * @return estimated peak memory (in bytes)
+     */
+    public synchronized long estimate(String kind, long inputBytes) {
+        KindStats s = stats.get(kind);
+        double ratio = s == null ? DEFAULT_RATIO : s.ratio;
+        return (long) (ratio * (Math.max(0, inputBytes) + INPUT_FLOOR));
+    }
+
+    /**
+     * Samples the specified process until it terminates. Its peak memory is
+     * recorded once it has terminated.
+     *
+     * @param kind kind of operation
+     * @param inputBytes total size of the input files (in bytes)
+     * @param process process to sample
+     * @param onUsage consumer that is notified about the current memory usage (in bytes), may be {@code null}
+     * @return the resource usage of the process (updated until the process terminates)
+     */
+    public Usage track(String kind, long inputBytes, Process process, LongConsumer onUsage) {
+        Usage u = new Usage(kind, inputBytes, process, onUsage);
+
+        long pid;
+        try {
+            pid = process.pid();
+        } catch (UnsupportedOperationException ex) {
+            return u;
+        }
+
+        tracked.put(pid, u);
+
+        startSampler();
+
+        process.onExit().whenComplete((p, ex) -> {
+            tracked.remove(pid);
+            if (u.peak > 0) {
+                record(u.kind, u.inputBytes, u.peak);
+            }
+        });
+
+        return u;
+    }
+
+    private synchronized void startSampler() {
+        if (sampler != null) {
+            return;
+        }
+
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vcsg-memory-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        sampler.scheduleWithFixedDelay(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        for (Map.Entry<Long, Usage> e : tracked.entrySet()) {
+            long pid = e.getKey();
+            Usage u = e.getValue();
+
+            if (!supported) {
+                u.process.info().totalCpuDuration().ifPresent(d -> u.cpuNanos = d.toNanos());
+                continue;
+            }
+
+            long[] usage = readUsage(pid);
+            if (usage == null) {
+                // terminated
+                continue;
+            }
+
+            long[] cpu = readCpuTimes(pid);
+            if (cpu != null) {
+                u.userCpuNanos = cpu[0];
+                u.systemCpuNanos = cpu[1];
+                u.cpuNanos = cpu[0] + cpu[1];
+            }
+
+            u.peak = Math.max(u.peak, Math.max(usage[0], usage[1]));
+
+            if (u.onUsage != null) {
+                try {
+                    u.onUsage.accept(usage[0]);
+                } catch (RuntimeException ex) {
+                    // must not stop the sampler
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the peak memory of a terminated process.
+     *
+     * @param kind kind of operation
+     * @param inputBytes total size of the input files (in bytes)
+     * @param peak peak memory (in bytes)
+     */
+    synchronized void record(String kind, long inputBytes, long peak) {
+        KindStats s = stats.computeIfAbsent(kind, k -> new KindStats());
+
+        double ratio = peak / (double) (Math.max(0, inputBytes) + INPUT_FLOOR);
+
+        // conservative: follows increases immediately and decreases slowly
+        if (s.processes == 0 || ratio > s.ratio) {
+            s.ratio = ratio;
+        } else {
+            s.ratio += (ratio - s.ratio) * RATIO_DECAY;
+        }
+
+        s.maxPeak = Math.max(s.maxPeak, peak);
+        s.processes++;
+    }
+
+    /**
+     * Returns the current resident set size and the peak resident set size of the specified process.
+     *
+     * @param pid process id
+     * @return {@code [rss, peak]} (in bytes) or {@code null} if the process does not exist
+     */
+    static long[] readUsage(long pid) {
+        Path status = Paths.get("/proc", Long.toString(pid), "status");
+
+        long rss = 0;
+        long hwm = 0;
+
+        try {
+            for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    rss = parseKiloBytes(line);
+                } else if (line.startsWith("VmHWM:")) {
+                    hwm = parseKiloBytes(line);
+                }
+            }
+        } catch (IOException | SecurityException ex) {
+            return null;
+        }
+
+        return new long[]{rss, hwm};
+    }
+
+    /**
+     * Returns the user and system CPU time of the specified process.
+     *
+     * @param pid process id
+     * @return {@code [user, system]} (in nanoseconds) or {@code null} if the process does not exist
+     */
+    static long[] readCpuTimes(long pid) {
+        String stat;
+        try {
+            stat = new String(Files.readAllBytes(Paths.get("/proc", Long.toString(pid), "stat")),
+                    StandardCharsets.UTF_8);
+        } catch (IOException | SecurityException ex) {
+            return null;
+        }
+
+        // the command name (field 2) may contain spaces, fields are counted from its closing parenthesis
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 1).trim().split("\\s+");
+
+        // utime and stime are fields 14 and 15, i.e., fields 12 and 13 after the command name
+        if (fields.length < 13) {
+            return null;
+        }
+
+        try {
+            return new long[]{
+                    Long.parseLong(fields[11]) * 1_000_000_000L / CLOCK_TICKS,
+                    Long.parseLong(fields[12]) * 1_000_000_000L / CLOCK_TICKS
+            };
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static long parseKiloBytes(String line) {
+        // format: "VmRSS:	  123456 kB"
+        String[] fields = line.trim().split("\\s+");
+        try {
+            return fields.length < 2 ? 0 : Long.parseLong(fields[1]) * 1024;
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the peak memory of the specified kind of operation.
+     *
+     * @param kind kind of operation
+     * @return the peak memory (in bytes) or {@code 0} if no process of the specified kind has been recorded
+     */
+    public synchronized long getPeakMemory(String kind) {
+        KindStats s = stats.get(kind);
+        return s == null ? 0 : s.maxPeak;
+    }
+
+    /**
+     * Returns the peak memory per kind of operation.
+     *
+     * @return the peak memory (in bytes) per kind of operation
+     */
+    public synchronized Map<String, Long> getPeakMemory() {
+        Map<String, Long> result = new HashMap<>();
+        stats.forEach((kind, s) -> result.put(kind, s.maxPeak));
+        return result;
+    }
+
+    /**
+     * Returns the number of recorded processes of the specified kind of operation.
+     *
+     * @param kind kind of operation
+     * @return the number of recorded processes
+     */
+    public synchronized long getProcesses(String kind) {
+        KindStats s = stats.get(kind);
+        return s == null ? 0 : s.processes;
+    }
+
+    /**
+     * Returns the number of processes that are currently sampled.
+     *
+     * @return the number of sampled processes
+     */
+    public int getTracked() {
+        return tracked.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("MemoryMonitor{");
+        String sep = "";
+        for (Map.Entry<String, KindStats> e : stats.entrySet()) {
+            sb.append(sep).append(e.getKey()).append("=").append(e.getValue().maxPeak / MB).append("MB");
+            sep = ", ";
+        }
+        return sb.append('}').toString();
+    }
+}
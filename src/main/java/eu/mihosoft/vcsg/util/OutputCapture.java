@@ -0,0 +1,110 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives the output of a process stream from the {@link OutputPump}. Output
+ * is buffered (up to a limit) until a target stream is attached, i.e., the
+ * process never stalls on a full pipe, even if its output is printed late or
+ * not at all. Optionally, the most recent output is kept in an
+ * {@link OutputTail}.
+ */
+final class OutputCapture extends OutputStream {
+
+    private final int pendingLimit;
+    private final OutputTail tail;
+
+    // guarded by this
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private boolean attached;
+    private OutputStream target;
+    private long dropped;
+
+    /**
+     * Constructor.
+     *
+     * @param pendingLimit maximum number of bytes that are buffered until a target is attached
+     * @param tail keeps the most recent output (may be {@code null})
+     */
+    OutputCapture(int pendingLimit, OutputTail tail) {
+        this.pendingLimit = pendingLimit;
+        this.tail = tail;
+    }
+
+    /**
+     * Attaches the target stream. Buffered output is written to the target
+     * right away, subsequent output as it arrives. Attaching {@code null}
+     * discards the output. Only the first call has an effect.
+     *
+     * @param target target stream (may be {@code null})
+     */
+    synchronized void attach(OutputStream target) {
+        if (attached) {
+            return;
+        }
+
+        attached = true;
+        this.target = target;
+
+        if (target != null && dropped > 0) {
+            Logger.getLogger(OutputCapture.class.getName()).log(Level.WARNING,
+                    dropped + " bytes of vcsg output have been dropped (printed too late)");
+        }
+
+        if (target != null) {
+            try {
+                pending.writeTo(target);
+                target.flush();
+            } catch (IOException ex) {
+                // PrintStreams do not throw
+            }
+        }
+
+        pending = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (tail != null) {
+            tail.write(b, off, len);
+        }
+
+        synchronized (this) {
+            if (attached) {
+                if (target != null) {
+                    target.write(b, off, len);
+                }
+            } else if (pending.size() + len <= pendingLimit) {
+                pending.write(b, off, len);
+            } else {
+                dropped += len;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (target != null) {
+            target.flush();
+        }
+    }
+
+    /**
+     * Returns the number of bytes that have been dropped because the buffer
+     * limit was exceeded before a target was attached.
+     *
+     * @return the number of dropped bytes
+     */
+    synchronized long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,209 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copies the output of processes to output streams. All streams are pumped by
+ * one shared daemon thread, i.e., no thread is started per process. The pump
+ * only reads bytes that are available ({@link InputStream#available()}) and
+ * polls with an exponential back-off while no stream has output. Once their
+ * process has terminated, streams are read until no more output is available
+ * (never blocking, since descendants of the process might keep the pipe open).
+ */
+final class OutputPump {
+
+    private static final OutputPump SHARED = new OutputPump("vcsg-output-pump");
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final int MAX_EMPTY_POLLS_AFTER_EXIT = 3;
+
+    private final String name;
+    private final Queue<Channel> registrations = new ConcurrentLinkedQueue<>();
+
+    // guarded by this
+    private Thread thread;
+
+    private static final class Channel {
+        final Process process;
+        final InputStream in;
+        final OutputStream sink;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Channel(Process process, InputStream in, OutputStream sink) {
+            this.process = process;
+            this.in = in;
+            this.sink = sink;
+        }
+
+        // number of polls without output after the process has terminated
+        int emptyPollsAfterExit;
+
+        /**
+         * Copies available bytes to the sink without blocking. Once the process
+         * has terminated, the stream is closed after a few polls without output:
+         * a descendant of the process might still hold the pipe, i.e., reading
+         * until end of stream could block forever.
+         *
+         * @return number of copied bytes or {@code -1} if the stream has been closed
+         */
+        int pump(byte[] buffer) throws IOException {
+            int available = in.available();
+
+            if (available == 0) {
+                if (process.isAlive()) {
+                    return 0;
+                }
+                return ++emptyPollsAfterExit < MAX_EMPTY_POLLS_AFTER_EXIT ? 0 : -1;
+            }
+
+            int n = in.read(buffer, 0, Math.min(available, buffer.length));
+
+            if (n > 0) {
+                emptyPollsAfterExit = 0;
+                sink.write(buffer, 0, n);
+            }
+
+            return n;
+        }
+
+        /**
+         * Indicates whether the process has terminated, i.e., whether the
+         * remaining output is being drained.
+         */
+        boolean isDraining() {
+            return emptyPollsAfterExit > 0;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name name of the pump thread
+     */
+    OutputPump(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the pump shared by all vcsg processes.
+     *
+     * @return the shared pump
+     */
+    static OutputPump shared() {
+        return SHARED;
+    }
+
+    /**
+     * Copies the specified process stream to the specified sink until end of stream.
+     * The stream is closed afterwards.
+     *
+     * @param process process that writes to the stream
+     * @param in process stream, i.e., {@link Process#getInputStream()} or {@link Process#getErrorStream()}
+     * @param sink output stream that receives the output (called by the pump thread)
+     * @return future that completes once the stream has been copied entirely
+     */
+    CompletableFuture<Void> pump(Process process, InputStream in, OutputStream sink) {
+        Channel c = new Channel(process, in, sink);
+
+        registrations.add(c);
+
+        Thread t = start();
+        LockSupport.unpark(t);
+
+        // the remaining output is copied right away instead of waiting for the next poll
+        process.onExit().thenRun(() -> LockSupport.unpark(t));
+
+        return c.done;
+    }
+
+    private synchronized Thread start() {
+        if (thread == null) {
+            thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return thread;
+    }
+
+    private void run() {
+        List<Channel> channels = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long idle = MIN_IDLE_NANOS;
+
+        while (true) {
+            for (Channel c; (c = registrations.poll()) != null; ) {
+                channels.add(c);
+            }
+
+            if (channels.isEmpty()) {
+                LockSupport.park(this);
+                idle = MIN_IDLE_NANOS;
+                continue;
+            }
+
+            boolean progress = false;
+            boolean draining = false;
+
+            for (Iterator<Channel> it = channels.iterator(); it.hasNext(); ) {
+                Channel c = it.next();
+
+                int n;
+                try {
+                    n = c.pump(buffer);
+                } catch (IOException | RuntimeException ex) {
+                    // e.g., stream closed by the process owner or failing sink
+                    Logger.getLogger(OutputPump.class.getName()).log(Level.FINE, "cannot copy process output", ex);
+                    n = -1;
+                }
+
+                if (n < 0) {
+                    it.remove();
+                    close(c);
+                } else if (n > 0) {
+                    progress = true;
+                } else if (c.isDraining()) {
+                    draining = true;
+                }
+            }
+
+            if (progress) {
+                idle = MIN_IDLE_NANOS;
+            } else if (draining) {
+                // streams of terminated processes are closed without back-off
+                LockSupport.parkNanos(this, MIN_IDLE_NANOS);
+                idle = MIN_IDLE_NANOS;
+            } else {
+                LockSupport.parkNanos(this, idle);
+                idle = Math.min(MAX_IDLE_NANOS, idle * 2);
+            }
+        }
+    }
+
+    private static void close(Channel c) {
+        try {
+            c.in.close();
+        } catch (IOException ex) {
+            // nothing to do
+        }
+        try {
+            c.sink.flush();
+        } catch (IOException | RuntimeException ex) {
+            // nothing to do
+        }
+        c.done.complete(null);
+    }
+}
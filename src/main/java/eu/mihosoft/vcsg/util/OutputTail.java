@@ -0,0 +1,105 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded ring buffer that keeps the most recent bytes written to it, e.g.,
+ * the end of the error output of a process that is attached to exceptions.
+ */
+final class OutputTail extends OutputStream {
+
+    private final byte[] buffer;
+
+    // guarded by this
+    private int position;
+    private long written;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum number of bytes to keep
+     */
+    OutputTail(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be greater than 0, got " + capacity);
+        }
+        this.buffer = new byte[capacity];
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        buffer[position] = (byte) b;
+        position = (position + 1) % buffer.length;
+        written++;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        written += len;
+
+        // only the last bytes fit into the buffer
+        if (len > buffer.length) {
+            off += len - buffer.length;
+            len = buffer.length;
+        }
+
+        int first = Math.min(len, buffer.length - position);
+        System.arraycopy(b, off, buffer, position, first);
+        System.arraycopy(b, off + first, buffer, 0, len - first);
+
+        position = (position + len) % buffer.length;
+    }
+
+    /**
+     * Returns the total number of bytes written to this buffer.
+     *
+     * @return the total number of bytes written
+     */
+    synchronized long getWritten() {
+        return written;
+    }
+
+    /**
+     * Returns the most recent bytes.
+     *
+     * @return the most recent bytes (at most the capacity of this buffer)
+     */
+    synchronized byte[] toByteArray() {
+        int size = (int) Math.min(written, buffer.length);
+        byte[] result = new byte[size];
+
+        int start = (position - size + buffer.length) % buffer.length;
+        int first = Math.min(size, buffer.length - start);
+        System.arraycopy(buffer, start, result, 0, first);
+        System.arraycopy(buffer, 0, result, first, size - first);
+
+        return result;
+    }
+
+    /**
+     * Returns the most recent output as text. If older output has been
+     * overwritten, the text starts with the first complete line.
+     *
+     * @return the most recent output (UTF-8)
+     */
+    @Override
+    public String toString() {
+        boolean truncated;
+        byte[] bytes;
+
+        synchronized (this) {
+            truncated = written > buffer.length;
+            bytes = toByteArray();
+        }
+
+        String text = new String(bytes, StandardCharsets.UTF_8);
+
+        if (truncated) {
+            int nl = text.indexOf('\n');
+            text = "..." + (nl < 0 ? text : text.substring(nl + 1));
+        }
+
+        return text;
+    }
+}
@@ -0,0 +1,149 @@
+package eu.mihosoft.vcsg.util;
+
+import eu.mihosoft.vcsg.VCSG;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * vcsg execution that has been performed by a worker process. The output of
+ * the execution has been captured and is printed on request.
+ */
+class PooledVCSG implements VCSG {
+
+    private final WorkerPool.Result result;
+    private final File wd;
+
+    PooledVCSG(WorkerPool.Result result, File wd) {
+        this.result = result;
+        this.wd = wd;
+    }
+
+    /**
+     * Does nothing since the execution has already terminated.
+     */
+    @Override
+    public void destroy() {
+        // nothing to destroy
+    }
+
+    /**
+     * Returns a stand-in for the process since the execution has been performed
+     * by a worker process. The stand-in has already terminated, it provides the
+     * exit value and the captured output. It does not have a pid.
+     * @return terminated stand-in process
+     */
+    @Override
+    public Process getProcess() {
+        return new CompletedProcess(result);
+    }
+
+    @Override
+    public int getExitValue() {
+        return result.getExitValue();
+    }
+
+    @Override
+    public String getErrorOutput() {
+        OutputTail tail = new OutputTail(4096);
+        byte[] newline = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        for (String line : result.getErr()) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            tail.write(bytes, 0, bytes.length);
+            tail.write(newline, 0, newline.length);
+        }
+        return tail.toString();
+    }
+
+    @Override
+    public File getWorkingDirectory() {
+        return wd;
+    }
+
+    @Override
+    public VCSG print(PrintStream out, PrintStream err) {
+        if (out != null) {
+            result.getOut().forEach(out::println);
+        }
+        if (err != null) {
+            result.getErr().forEach(err::println);
+        }
+        return this;
+    }
+
+    @Override
+    public VCSG print() {
+        return print(System.out, System.err);
+    }
+
+    @Override
+    public VCSG waitFor() {
+        return this;
+    }
+
+    /**
+     * Terminated process that provides the result of a worker execution.
+     */
+    private static final class CompletedProcess extends Process {
+
+        private final WorkerPool.Result result;
+
+        private CompletedProcess(WorkerPool.Result result) {
+            this.result = result;
+        }
+
+        private static InputStream toStream(List<String> lines) {
+            StringBuilder sb = new StringBuilder();
+            for (String line : lines) {
+                sb.append(line).append(System.lineSeparator());
+            }
+            return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return toStream(result.getOut());
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return toStream(result.getErr());
+        }
+
+        @Override
+        public int waitFor() {
+            return result.getExitValue();
+        }
+
+        @Override
+        public int exitValue() {
+            return result.getExitValue();
+        }
+
+        @Override
+        public boolean isAlive() {
+            return false;
+        }
+
+        @Override
+        public CompletableFuture<Process> onExit() {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public void destroy() {
+            // already terminated
+        }
+    }
+}
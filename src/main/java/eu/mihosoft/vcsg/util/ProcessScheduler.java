@@ -0,0 +1,503 @@
+package eu.mihosoft.vcsg.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrently running occ-csg processes. Processes
+ * that exceed the limit are queued. Queued processes are started in priority
+ * order (interactive before normal before batch) and in submission order
+ * within one priority class. No thread is blocked while a process is queued
+ * unless the caller waits for the permit.
+ *
+ * <p>The limit is either fixed or managed by an {@link AdaptiveLimit}, which is
+ * updated whenever a permit is released.</p>
+ *
+ * <p>Optionally, processes are admitted only if their estimated memory fits into
+ * a memory budget. Each permit reserves the estimated memory of its process (or
+ * its actual memory usage if that is larger). A process is always admitted if
+ * no other process is running, i.e., processes that exceed the budget on their
+ * own still run (one at a time). Memory that is used outside of the processes
+ * but counts against the same limit, e.g., files in a tmpfs, reduces the
+ * budget (see {@link #setExternalMemoryUsage(LongSupplier)}).</p>
+ */
+public final class ProcessScheduler {
+
+    /**
+     * Priority classes.
+     */
+    public enum Priority {
+        /**
+         * Interactive requests, e.g., previews.
+         */
+        INTERACTIVE,
+        /**
+         * Default priority.
+         */
+        NORMAL,
+        /**
+         * Batch jobs, e.g., regeneration of models.
+         */
+        BATCH
+    }
+
+    private static final ThreadLocal<Priority> CURRENT_PRIORITY = ThreadLocal.withInitial(() -> Priority.NORMAL);
+
+    private final Map<Priority, Deque<Waiter>> queues = new EnumMap<>(Priority.class);
+
+    // guarded by this
+    private int maxConcurrency;
+    private AdaptiveLimit adaptiveLimit;
+    private int running;
+    private long memoryBudget = -1;
+    private LongSupplier externalMemoryUsage = () -> 0;
+    private long reservedMemory;
+    private long memoryDeferrals;
+    private long admitted;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * Permit to run one process. Must be released once the process has terminated.
+     */
+    public final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final String kind;
+        private final long inputBytes;
+        private final long admittedAt = System.nanoTime();
+        // guarded by ProcessScheduler.this
+        private long reservation;
+
+        private Permit(String kind, long inputBytes, long reservation) {
+            this.kind = kind;
+            this.inputBytes = inputBytes;
+            this.reservation = reservation;
+        }
+
+        /**
+         * Updates the memory usage of the process. If the process uses more
+         * memory than reserved, the reservation is increased accordingly.
+         *
+         * @param bytes current memory usage (in bytes)
+         */
+        public void updateMemoryUsage(long bytes) {
+            synchronized (ProcessScheduler.this) {
+                if (!released.get() && bytes > reservation) {
+                    reservedMemory += bytes - reservation;
+                    reservation = bytes;
+                }
+            }
+        }
+
+        /**
+         * Releases this permit. Releasing a permit more than once has no effect.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                ProcessScheduler.this.release(this, true);
+            }
+        }
+
+        /**
+         * Releases this permit without reporting the latency of the process to
+         * the adaptive limit, e.g., because the process has been cancelled.
+         * Releasing a permit more than once has no effect.
+         */
+        public void discard() {
+            if (released.compareAndSet(false, true)) {
+                ProcessScheduler.this.release(this, false);
+            }
+        }
+    }
+
+    private final class Waiter {
+        final CompletableFuture<Permit> permit = new CompletableFuture<>();
+        final long enqueued = System.nanoTime();
+        final String kind;
+        final long inputBytes;
+        final long memoryEstimate;
+
+        Waiter(String kind, long inputBytes, long memoryEstimate) {
+            this.kind = kind;
+            this.inputBytes = inputBytes;
+            this.memoryEstimate = memoryEstimate;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrency maximum number of concurrently running processes
+     */
+    public ProcessScheduler(int maxConcurrency) {
+        for (Priority p : Priority.values()) {
+            queues.put(p, new ArrayDeque<>());
+        }
+        setMaxConcurrency(maxConcurrency);
+    }
+
+    /**
+     * Requests a permit to run a process.
+     *
+     * @param priority priority class of the process
+     * @return future that completes with the permit as soon as the process may run
+     */
+    public CompletableFuture<Permit> acquire(Priority priority) {
+        return acquire(priority, "");
+    }
+
+    /**
+     * Requests a permit to run a process.
+     *
+     * @param priority priority class of the process
+     * @param kind kind of operation, e.g., {@code "--csg union"}; the adaptive
+     * limit compares latencies of processes of the same kind
+     * @return future that completes with the permit as soon as the process may run
+     */
+    public CompletableFuture<Permit> acquire(Priority priority, String kind) {
+        return acquire(priority, kind, 0);
+    }
+
+    /**
+     * Requests a permit to run a process.
+     *
+     * @param priority priority class of the process
+     * @param kind kind of operation, e.g., {@code "--csg union"}
+     * @param memoryEstimate estimated peak memory of the process (in bytes)
+     * @return future that completes with the permit as soon as the process may run
+     */
+    public CompletableFuture<Permit> acquire(Priority priority, String kind, long memoryEstimate) {
+        return acquire(priority, kind, -1, memoryEstimate);
+    }
+
+    /**
+     * Requests a permit to run a process.
+     *
+     * @param priority priority class of the process
+     * @param kind kind of operation, e.g., {@code "--csg union"}
+     * @param inputBytes total size of the input files (in bytes, {@code -1} if unknown); the
+     * adaptive limit compares latencies of processes with similar input sizes
+     * @param memoryEstimate estimated peak memory of the process (in bytes)
+     * @return future that completes with the permit as soon as the process may run
+     */
+    public CompletableFuture<Permit> acquire(Priority priority, String kind, long inputBytes, long memoryEstimate) {
+        Waiter w = new Waiter(kind, inputBytes, Math.max(0, memoryEstimate));
+
+        synchronized (this) {
+            queues.get(priority).add(w);
+        }
+
+        // cancelled requests leave the queue immediately
+        w.permit.whenComplete((p, t) -> {
+            if (t != null) {
+                synchronized (this) {
+                    queues.get(priority).remove(w);
+                }
+                dispatch();
+            }
+        });
+
+        dispatch();
+
+        return w.permit;
+    }
+
+    private void release(Permit permit, boolean sample) {
+        synchronized (this) {
+            if (sample && adaptiveLimit != null) {
+                maxConcurrency = adaptiveLimit.onSample(
+                        permit.kind, System.nanoTime() - permit.admittedAt, permit.inputBytes, running);
+            }
+            running--;
+            reservedMemory -= permit.reservation;
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Hands out permits to queued waiters while the limit permits it.
+     */
+    private void dispatch() {
+        List<Permit> permits = new ArrayList<>();
+        List<Waiter> admittedWaiters = new ArrayList<>();
+
+        synchronized (this) {
+            while (running < maxConcurrency) {
+                Deque<Waiter> queue = nextQueue();
+                if (queue == null) {
+                    break;
+                }
+
+                // the head of the queue must fit, i.e., large processes are not starved by small ones
+                long estimate = queue.peek().memoryEstimate;
+                if (memoryBudget >= 0 && running > 0
+                        && reservedMemory + estimate > memoryBudget - externalMemoryUsage.getAsLong()) {
+                    memoryDeferrals++;
+                    break;
+                }
+
+                Waiter w = queue.poll();
+
+                running++;
+                admitted++;
+                reservedMemory += estimate;
+                permits.add(new Permit(w.kind, w.inputBytes, estimate));
+
+                long wait = System.nanoTime() - w.enqueued;
+                totalWaitNanos += wait;
+                maxWaitNanos = Math.max(maxWaitNanos, wait);
+
+                admittedWaiters.add(w);
+            }
+        }
+
+        // complete outside of the lock, completion may run dependent tasks
+        for (int i = 0; i < admittedWaiters.size(); i++) {
+            if (!admittedWaiters.get(i).permit.complete(permits.get(i))) {
+                // cancelled concurrently
+                permits.get(i).discard();
+            }
+        }
+    }
+
+    private Deque<Waiter> nextQueue() {
+        for (Priority p : Priority.values()) {
+            Deque<Waiter> q = queues.get(p);
+            if (!q.isEmpty()) {
+                return q;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the maximum number of concurrently running processes. If an adaptive
+     * limit is set, the specified value is clamped to its range and adjusted
+     * as processes terminate.
+     *
+     * @param maxConcurrency maximum number of concurrently running processes
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be greater than 0, got " + maxConcurrency);
+        }
+
+        synchronized (this) {
+            if (adaptiveLimit != null) {
+                adaptiveLimit.setLimit(maxConcurrency);
+                this.maxConcurrency = adaptiveLimit.getLimit();
+            } else {
+                this.maxConcurrency = maxConcurrency;
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Sets the adaptive limit that manages the maximum number of concurrently
+     * running processes.
+     *
+     * @param adaptiveLimit adaptive limit ({@code null} keeps the current limit fixed)
+     */
+    public void setAdaptiveLimit(AdaptiveLimit adaptiveLimit) {
+        synchronized (this) {
+            this.adaptiveLimit = adaptiveLimit;
+            if (adaptiveLimit != null) {
+                this.maxConcurrency = adaptiveLimit.getLimit();
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Returns the adaptive limit that manages the maximum number of concurrently
+     * running processes.
+     *
+     * @return the adaptive limit or {@code null} if the limit is fixed
+     */
+    public synchronized AdaptiveLimit getAdaptiveLimit() {
+        return adaptiveLimit;
+    }
+
+    /**
+     * Returns the maximum number of concurrently running processes, i.e., the
+     * current (possibly adaptive) limit.
+     *
+     * @return the maximum number of concurrently running processes
+     */
+    public synchronized int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets the memory budget of concurrently running processes.
+     *
+     * @param bytes memory budget (in bytes), {@code -1} disables the budget
+     */
+    public void setMemoryBudget(long bytes) {
+        if (bytes < -1) {
+            throw new IllegalArgumentException("Memory budget must not be negative, got " + bytes);
+        }
+
+        synchronized (this) {
+            this.memoryBudget = bytes;
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Sets the memory that is used outside of the processes but counts against
+     * the same memory limit, e.g., files in a tmpfs. The memory budget is reduced
+     * accordingly whenever a process is admitted.
+     *
+     * @param usage supplies the external memory usage (in bytes), must return quickly
+     */
+    public void setExternalMemoryUsage(LongSupplier usage) {
+        synchronized (this) {
+            this.externalMemoryUsage = Objects.requireNonNull(usage);
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Returns the memory budget of concurrently running processes.
+     *
+     * @return the memory budget (in bytes) or {@code -1} if disabled
+     */
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Returns the memory reserved by currently running processes, i.e., the
+     * projected memory usage.
+     *
+     * @return the reserved memory (in bytes)
+     */
+    public synchronized long getReservedMemory() {
+        return reservedMemory;
+    }
+
+    /**
+     * Returns how often admission has been deferred because the memory budget was exhausted.
+     *
+     * @return the number of memory deferrals
+     */
+    public synchronized long getMemoryDeferrals() {
+        return memoryDeferrals;
+    }
+
+    /**
+     * Returns the number of currently running processes.
+     *
+     * @return the number of currently running processes
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of queued processes.
+     *
+     * @return the number of queued processes
+     */
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (Deque<Waiter> q : queues.values()) {
+            depth += q.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of queued processes of the specified priority class.
+     *
+     * @param priority priority class
+     * @return the number of queued processes of the specified priority class
+     */
+    public synchronized int getQueueDepth(Priority priority) {
+        return queues.get(priority).size();
+    }
+
+    /**
+     * Returns the number of processes that have been admitted so far.
+     *
+     * @return the number of admitted processes
+     */
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Returns the average time admitted processes have been waiting in the queue.
+     *
+     * @return the average wait time (in milliseconds)
+     */
+    public synchronized double getAverageWaitMillis() {
+        return admitted == 0 ? 0 : totalWaitNanos / 1e6 / admitted;
+    }
+
+    /**
+     * Returns the maximum time an admitted process has been waiting in the queue.
+     *
+     * @return the maximum wait time (in milliseconds)
+     */
+    public synchronized double getMaxWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    /**
+     * Returns the priority class of processes started by the current thread.
+     *
+     * @return the priority class of the current thread (default is {@link Priority#NORMAL})
+     */
+    public static Priority getCurrentPriority() {
+        return CURRENT_PRIORITY.get();
+    }
+
+    /**
+     * Runs the specified task with the specified priority class, i.e., processes
+     * started by the task on the current thread use that priority class.
+     *
+     * @param priority priority class
+     * @param task task to run
+     * @param <T> result type
+     * @return the result of the task
+     */
+    public static <T> T callWithPriority(Priority priority, Supplier<T> task) {
+        Priority prev = CURRENT_PRIORITY.get();
+        CURRENT_PRIORITY.set(priority);
+        try {
+            return task.get();
+        } finally {
+            CURRENT_PRIORITY.set(prev);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProcessScheduler{" +
+                "maxConcurrency=" + maxConcurrency +
+                ", adaptive=" + (adaptiveLimit != null) +
+                ", running=" + running +
+                ", reservedMemory=" + reservedMemory +
+                ", memoryBudget=" + memoryBudget +
+                ", queueDepth=" + getQueueDepth() +
+                ", averageWaitMillis=" + getAverageWaitMillis() +
+                '}';
+    }
+}
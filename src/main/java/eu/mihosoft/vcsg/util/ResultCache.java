@@ -0,0 +1,363 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent, content-addressed cache for the results of occ-csg operations.
+ *
+ * <p>Results are stored once per content hash in the {@code objects} folder. The
+ * {@code keys} folder maps operation keys to objects. Entries are published via
+ * atomic rename and the cache folder can be shared by several JVMs on one host.
+ * Stores and evictions are serialized via a lock file. If the cache exceeds its
+ * maximum size, the least recently used objects are evicted.</p>
+ */
+public final class ResultCache {
+
+    private static final String TMP_PREFIX = ".tmp-";
+    private static final long STALE_TMP_AGE = 60 * 60 * 1000;
+
+    private final File directory;
+    private final File objectsDir;
+    private final File keysDir;
+    private final File lockFile;
+    private final long maxSize;
+    private final String distVersion;
+
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ResultCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.objectsDir = new File(directory, "objects");
+        this.keysDir = new File(directory, "keys");
+        this.lockFile = new File(directory, "cache.lock");
+        this.maxSize = maxSize;
+        this.distVersion = getDistVersion();
+    }
+
+    /**
+     * Opens (and creates if necessary) the result cache in the specified folder.
+     * @param directory cache folder
+     * @param maxSize maximum size of the cached results (in bytes)
+     * @return result cache
+     */
+    public static ResultCache open(File directory, long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be greater than 0, got " + maxSize);
+        }
+
+        ResultCache cache = new ResultCache(directory.getAbsoluteFile(), maxSize);
+
+        try {
+            Files.createDirectories(cache.objectsDir.toPath());
+            Files.createDirectories(cache.keysDir.toPath());
+            if (!cache.lockFile.exists()) {
+                // the lock file must exist, otherwise access is not synchronized
+                cache.lockFile.createNewFile();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("cannot open result cache: " + directory, ex);
+        }
+
+        cache.size.set(cache.computeSize());
+
+        return cache;
+    }
+
+    /**
+     * Computes the cache key for the specified parts, e.g., operation name, parameters,
+     * file type and content hashes of the input shapes. Keys include the version of the
+     * occ-csg distribution, i.e., updating occ-csg invalidates the cached results.
+     * @param parts parts of the key
+     * @return cache key
+     */
+    public String key(String... parts) {
+        StringBuilder sb = new StringBuilder(distVersion);
+        for (String p : parts) {
+            sb.append('\0').append(p);
+        }
+        return IOUtil.generateSHA256Sum(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the content hash of the specified file.
+     * @param f file
+     * @return content hash of the specified file
+     */
+    public static String hash(File f) {
+        String hash = IOUtil.generateSHA256um(f);
+        if (hash.isEmpty()) {
+            throw new RuntimeException("cannot compute content hash of " + f);
+        }
+        return hash;
+    }
+
+    /**
+     * Looks up the result with the specified key. On a hit, the cached result is
+     * linked (or copied) to the specified target file.
+     * @param key cache key
+     * @param target target file
+     * @return content hash of the result or {@code null} if the cache contains no result for the specified key
+     */
+    public String lookup(String key, File target) {
+        try {
+            File keyFile = new File(keysDir, key);
+            if (!keyFile.exists()) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            String objectName = new String(Files.readAllBytes(keyFile.toPath()), StandardCharsets.UTF_8).trim();
+            Path object = new File(objectsDir, objectName).toPath();
+
+            Files.deleteIfExists(target.toPath());
+            try {
+                Files.createLink(target.toPath(), object);
+            } catch (NoSuchFileException ex) {
+                // object has been evicted
+                misses.incrementAndGet();
+                return null;
+            } catch (IOException | UnsupportedOperationException ex) {
+                // e.g., cache and target are on different file systems
+                Files.copy(object, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // least recently used objects are evicted first
+            object.toFile().setLastModified(System.currentTimeMillis());
+
+            hits.incrementAndGet();
+
+            return contentHash(objectName);
+        } catch (NoSuchFileException ex) {
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException ex) {
+            Logger.getLogger(ResultCache.class.getName()).log(Level.WARNING, "cannot read cached result " + key, ex);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the specified result. Identical results are stored only once.
+     * @param key cache key
+     * @param result result to store
+     * @return content hash of the result
+     */
+    public String store(String key, File result) {
+        String hash = hash(result);
+        String objectName = hash + extension(result);
+
+        try {
+            SynchronizedFileAccess.access(f -> {
+                try {
+                    File object = new File(objectsDir, objectName);
+                    if (object.exists()) {
+                        object.setLastModified(System.currentTimeMillis());
+                    } else {
+                        Path tmp = Files.createTempFile(objectsDir.toPath(), TMP_PREFIX, "");
+                        Files.copy(result.toPath(), tmp, StandardCopyOption.REPLACE_EXISTING);
+                        move(tmp, object.toPath());
+                        size.addAndGet(object.length());
+                    }
+
+                    Path tmpKey = Files.createTempFile(keysDir.toPath(), TMP_PREFIX, "");
+                    Files.write(tmpKey, objectName.getBytes(StandardCharsets.UTF_8));
+                    move(tmpKey, new File(keysDir, key).toPath());
+
+                    if (size.get() > maxSize) {
+                        evict();
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, lockFile);
+        } catch (IOException | UncheckedIOException ex) {
+            Logger.getLogger(ResultCache.class.getName()).log(Level.WARNING, "cannot store result " + key, ex);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Evicts least recently used objects until the cache size does not exceed
+     * the maximum size. Must be called while holding the cache lock.
+     */
+    private void evict() {
+        File[] objects = listObjects();
+
+        // other JVMs might have added objects as well
+        long total = 0;
+        for (File o : objects) {
+            total += o.length();
+        }
+
+        Arrays.sort(objects, Comparator.comparingLong(File::lastModified));
+
+        boolean evicted = false;
+
+        for (int i = 0; i < objects.length && total > maxSize; i++) {
+            long length = objects[i].length();
+            if (objects[i].delete()) {
+                total -= length;
+                evicted = true;
+                evictions.incrementAndGet();
+            }
+        }
+
+        size.set(total);
+
+        if (evicted) {
+            // remove keys of evicted objects
+            File[] keys = keysDir.listFiles();
+            for (File k : keys == null ? new File[0] : keys) {
+                try {
+                    String objectName = new String(Files.readAllBytes(k.toPath()), StandardCharsets.UTF_8).trim();
+                    if (!new File(objectsDir, objectName).exists()) {
+                        k.delete();
+                    }
+                } catch (IOException ex) {
+                    // ignore, key might have been replaced concurrently
+                }
+            }
+        }
+    }
+
+    private long computeSize() {
+        long total = 0;
+        for (File o : listObjects()) {
+            total += o.length();
+        }
+        return total;
+    }
+
+    private File[] listObjects() {
+        File[] files = objectsDir.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+
+        List<File> objects = new ArrayList<>(files.length);
+        long now = System.currentTimeMillis();
+
+        for (File f : files) {
+            if (f.getName().startsWith(TMP_PREFIX)) {
+                // left over by a crashed JVM
+                if (now - f.lastModified() > STALE_TMP_AGE) {
+                    f.delete();
+                }
+                continue;
+            }
+            objects.add(f);
+        }
+
+        return objects.toArray(new File[0]);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String extension(File f) {
+        String name = f.getName();
+        int i = name.lastIndexOf('.');
+        return i < 0 ? "" : name.substring(i);
+    }
+
+    private static String contentHash(String objectName) {
+        int i = objectName.lastIndexOf('.');
+        return i < 0 ? objectName : objectName.substring(0, i);
+    }
+
+    private static String getDistVersion() {
+        try {
+            Class<?> buildInfoCls = Class.forName("eu.mihosoft.vcsg.vcsgdist.BuildInfo");
+            Field timestampFromDistField = buildInfoCls.getDeclaredField("TIMESTAMP");
+            timestampFromDistField.setAccessible(true);
+            return String.valueOf(timestampFromDistField.get(buildInfoCls));
+        } catch (ReflectiveOperationException ex) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Returns the cache folder.
+     * @return the cache folder
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the maximum size of the cached results (in bytes).
+     * @return the maximum size of the cached results
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the size of the cached results (in bytes) as seen by this JVM.
+     * @return the size of the cached results
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the number of cache hits.
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of cache misses.
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of objects evicted by this JVM.
+     * @return the number of evicted objects
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{" +
+                "directory=" + directory +
+                ", size=" + size.get() +
+                ", maxSize=" + maxSize +
+                ", hits=" + hits.get() +
+                ", misses=" + misses.get() +
+                '}';
+    }
+}
@@ -0,0 +1,179 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handle of a file (or folder) in a {@link ScratchSpace}. The file is deleted
+ * once its handle becomes unreachable, or earlier if the last reference is
+ * released (see {@link #retain()} and {@link #release()}) or if it is deleted
+ * explicitly. Deletion is asynchronous, i.e., it never blocks the caller.
+ *
+ * <p>Files that exceed the spill threshold of their scratch space are moved
+ * to the overflow space once they have been written completely (see
+ * {@link #seal()}), i.e., the file of a handle may change until it is sealed.</p>
+ */
+public final class ScratchFile {
+
+    private final State state;
+    private final Cleaner.Cleanable cleanable;
+    private final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param space scratch space that contains the file
+     * @param file the file
+     * @param reservation size reserved in the scratch space until the file is sealed (in bytes)
+     * @param cleaner reclaims the file once this handle is unreachable
+     */
+    ScratchFile(ScratchSpace space, File file, long reservation, Cleaner cleaner) {
+        // the state must not reference this handle, otherwise it never becomes unreachable
+        this.state = new State(space, file, reservation);
+        this.cleanable = cleaner.register(this, state);
+    }
+
+    /**
+     * Returns the file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return state.file;
+    }
+
+    /**
+     * Adds a reference to this file.
+     *
+     * @return this handle
+     * @throws IllegalStateException if this file has already been deleted
+     */
+    public ScratchFile retain() {
+        if (state.deleted.get()) {
+            throw new IllegalStateException("Scratch file has already been deleted: " + getFile());
+        }
+
+        references.incrementAndGet();
+
+        return this;
+    }
+
+    /**
+     * Removes a reference from this file. The file is deleted once the last
+     * reference has been removed.
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+
+        if (remaining < 0) {
+            throw new IllegalStateException("Scratch file has not been retained: " + getFile());
+        }
+
+        if (remaining == 0) {
+            delete();
+        }
+    }
+
+    /**
+     * Records the size of the file in the usage of its scratch space (instead
+     * of the size reserved for it). Files that exceed the spill threshold are
+     * moved to the overflow space. Should
+     * be called once the file has been written completely, before the file
+     * is shared. Subsequent calls have no effect.
+     */
+    public void seal() {
+        state.seal();
+    }
+
+    /**
+     * Returns the scratch space that contains the file.
+     *
+     * @return the scratch space that contains the file
+     */
+    public ScratchSpace getSpace() {
+        return state.space;
+    }
+
+    /**
+     * Deletes this file regardless of its references (asynchronously).
+     * Subsequent calls have no effect.
+     */
+    public void delete() {
+        cleanable.clean();
+    }
+
+    /**
+     * Indicates whether this file has been deleted (or is about to be deleted).
+     *
+     * @return {@code true} if this file has been deleted; {@code false} otherwise
+     */
+    public boolean isDeleted() {
+        return state.deleted.get();
+    }
+
+    @Override
+    public String toString() {
+        return getFile().toString();
+    }
+
+    /**
+     * Location and size of the file. Deletes the file if run, which happens
+     * once, either explicitly or by the cleaner.
+     */
+    private static final class State implements Runnable {
+
+        // guarded by this (volatile for unsynchronized reads)
+        private volatile ScratchSpace space;
+        private volatile File file;
+        private long size;
+        private long reservation;
+        private boolean sealed;
+
+        private final AtomicBoolean deleted = new AtomicBoolean();
+
+        private State(ScratchSpace space, File file, long reservation) {
+            this.space = space;
+            this.file = file;
+            this.reservation = reservation;
+        }
+
+        private synchronized void seal() {
+            if (sealed || deleted.get()) {
+                return;
+            }
+
+            sealed = true;
+            size = file.length();
+
+            space.unreserve(reservation);
+            reservation = 0;
+
+            ScratchSpace target = space.getSpillTarget(size);
+
+            if (target != space) {
+                try {
+                    file = target.spill(file, space);
+                    space = target;
+                } catch (IOException ex) {
+                    Logger.getLogger(ScratchFile.class.getName()).log(Level.WARNING,
+                            "cannot move scratch file " + file + " to " + target.getRoot(), ex);
+                }
+            }
+
+            space.allocated(size);
+        }
+
+        @Override
+        public synchronized void run() {
+            deleted.set(true);
+            space.unreserve(reservation);
+            reservation = 0;
+            space.delete(file, size);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Folder for intermediate shape files. Each JVM uses its own root folder
+ * ({@code vcsg-scratch-<pid>-...}) that is split into shard folders, i.e., no
+ * folder contains a huge number of files. Files are handed out as
+ * {@link ScratchFile} handles and are deleted (asynchronously) once they are
+ * not needed anymore.
+ *
+ * <p>The total size of the files is limited by a quota. Files that are still
+ * being written count with an estimated size (the spill threshold if set, the
+ * average size of the completed files otherwise) until they are completed. If
+ * the quota is exceeded, new files are created in the overflow space (if any).
+ * Completed files that exceed the spill threshold are moved to the overflow
+ * space, i.e., small files stay in the (fast) scratch space and large files
+ * do not exhaust it. The default scratch space uses a tmpfs
+ * ({@code /dev/shm}) if it has enough free space and the default temp folder
+ * as overflow, i.e., small intermediate shapes are kept in memory and never
+ * touch the disk.</p>
+ *
+ * <p>Files in memory-backed spaces count against the memory limit of the
+ * container. The memory budget of the process scheduler is reduced by their
+ * size (see {@link #getOpenMemorySize()}).</p>
+ */
+public final class ScratchSpace {
+
+    private static final String ROOT_PREFIX = "vcsg-scratch-";
+    private static final int SHARDS = 64;
+    private static final File TMPFS = new File("/dev/shm");
+    // minimum free space of the tmpfs (the quota is half of the free space)
+    private static final long MIN_TMPFS_SPACE = 256L * 1024 * 1024;
+    // default spill threshold of the tmpfs
+    private static final long TMPFS_SPILL_THRESHOLD = 16L * 1024 * 1024;
+
+    private static final Cleaner CLEANER = Cleaner.create(r -> {
+        Thread t = new Thread(r, "vcsg-scratch-cleaner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // deletes files off the hot path
+    private static final ExecutorService DELETER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "vcsg-scratch-deleter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // spaces whose root folders are deleted on shutdown
+    private static final Set<ScratchSpace> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        // one hook for all spaces
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                () -> OPEN.forEach(ScratchSpace::deleteRoot), "vcsg-scratch-shutdown"));
+    }
+
+    private final File root;
+    private final long quota;
+    private final ScratchSpace overflow;
+    private final boolean inMemory;
+    private final AtomicIntegerArray shards = new AtomicIntegerArray(SHARDS);
+    private volatile long spillThreshold = Long.MAX_VALUE;
+
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+
+    private volatile boolean closed;
+
+    private ScratchSpace(File root, long quota, ScratchSpace overflow, boolean inMemory) {
+        this.root = root;
+        this.quota = quota;
+        this.overflow = overflow;
+        this.inMemory = inMemory;
+    }
+
+    /**
+     * Opens a scratch space in the specified folder. The folder may be shared
+     * by several JVMs, each of them uses its own root folder. Root folders of
+     * terminated JVMs are deleted.
+     *
+     * @param directory parent folder of the root folder
+     * @param quota maximum size of the files (in bytes)
+     * @param overflow scratch space used if the quota or the spill threshold is exceeded (may be {@code null})
+     * @return scratch space
+     */
+    public static ScratchSpace open(File directory, long quota, ScratchSpace overflow) {
+        if (quota < 1) {
+            throw new IllegalArgumentException("Quota must be greater than 0, got " + quota);
+        }
+
+        long pid = ProcessHandle.current().pid();
+
+        File root;
+        String type;
+        try {
+            Files.createDirectories(directory.toPath());
+            root = Files.createTempDirectory(directory.toPath(), ROOT_PREFIX + pid + "-").toFile();
+            type = Files.getFileStore(root.toPath()).type();
+        } catch (IOException ex) {
+            throw new RuntimeException("cannot open scratch space: " + directory, ex);
+        }
+
+        ScratchSpace space = new ScratchSpace(root, quota, overflow, "tmpfs".equals(type) || "ramfs".equals(type));
+
+        OPEN.add(space);
+
+        DELETER.execute(() -> deleteStaleRoots(directory));
+
+        return space;
+    }
+
+    /**
+     * Opens the default scratch space. It uses {@code /dev/shm} (quota: half of
+     * its free space, spill threshold: 16 MB) if it has enough free space and
+     * the default temp folder otherwise. The temp folder is also used as
+     * overflow of the tmpfs.
+     *
+     * @return the default scratch space
+     */
+    public static ScratchSpace openDefault() {
+        ScratchSpace disk = open(new File(System.getProperty("java.io.tmpdir")), Long.MAX_VALUE, null);
+
+        if (TMPFS.isDirectory() && TMPFS.canWrite() && TMPFS.getUsableSpace() >= MIN_TMPFS_SPACE) {
+            try {
+                ScratchSpace tmpfs = open(TMPFS, TMPFS.getUsableSpace() / 2, disk);
+                tmpfs.setSpillThreshold(TMPFS_SPILL_THRESHOLD);
+                return tmpfs;
+            } catch (RuntimeException ex) {
+                Logger.getLogger(ScratchSpace.class.getName()).log(Level.FINE, "cannot use " + TMPFS, ex);
+            }
+        }
+
+        return disk;
+    }
+
+    /**
+     * Creates a new (empty) file.
+     *
+     * @param suffix file name suffix, e.g., {@code .brep}
+     * @return handle of the new file
+     * @throws IOException if the file cannot be created or if the quota is exceeded and there is no overflow space
+     */
+    public ScratchFile newFile(String suffix) throws IOException {
+        ScratchSpace space = select();
+        long reservation = space.reserve();
+        long id = space.created.getAndIncrement();
+
+        File f;
+        try {
+            f = Files.createFile(space.shard(id).resolve("_vcsg_" + id + suffix)).toFile();
+        } catch (IOException ex) {
+            space.unreserve(reservation);
+            throw ex;
+        }
+
+        space.files.incrementAndGet();
+
+        return new ScratchFile(space, f, reservation, CLEANER);
+    }
+
+    /**
+     * Creates a new (empty) folder. The folder is deleted with its content.
+     *
+     * @return handle of the new folder
+     * @throws IOException if the folder cannot be created or if the quota is exceeded and there is no overflow space
+     */
+    public ScratchFile newDirectory() throws IOException {
+        ScratchSpace space = select();
+        long reservation = space.reserve();
+        long id = space.created.getAndIncrement();
+
+        File f;
+        try {
+            f = Files.createDirectory(space.shard(id).resolve("_vcsg_" + id)).toFile();
+        } catch (IOException ex) {
+            space.unreserve(reservation);
+            throw ex;
+        }
+
+        space.files.incrementAndGet();
+
+        return new ScratchFile(space, f, reservation, CLEANER);
+    }
+
+    /**
+     * Returns the space for a new file, i.e., this space or the overflow space.
+     *
+     * @return the space for a new file
+     * @throws IOException if the quota is exceeded and there is no overflow space
+     */
+    private ScratchSpace select() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Scratch space has been closed: " + root);
+        }
+
+        // files that are still being written count with their estimated size
+        if (size.get() + reserved.get() < quota) {
+            return this;
+        }
+
+        if (overflow != null) {
+            overflows.incrementAndGet();
+            return overflow.select();
+        }
+
+        // released files are accounted for immediately, i.e., waiting does not help
+        // (unless unreachable handles are reclaimed, which happens at the discretion of the gc)
+        throw new IOException("Scratch space quota exceeded: " + (size.get() + reserved.get()) + " of " + quota
+                + " bytes used in " + root + " (close CSG objects that are not needed anymore)");
+    }
+
+    /**
+     * Reserves the estimated size of a new file, i.e., the spill threshold (larger
+     * files are moved to the overflow space once completed) or the average size of
+     * the completed files if there is no spill threshold.
+     *
+     * @return the reserved size (in bytes)
+     */
+    private long reserve() {
+        long bytes = spillThreshold;
+
+        if (overflow == null || bytes == Long.MAX_VALUE) {
+            long n = files.get();
+            bytes = n > 0 ? Math.max(0, size.get()) / n : 0;
+        }
+
+        reserved.addAndGet(bytes);
+
+        return bytes;
+    }
+
+    /**
+     * Releases the reservation of a file that has been completed or deleted.
+     *
+     * @param bytes reserved size (in bytes)
+     */
+    void unreserve(long bytes) {
+        reserved.addAndGet(-bytes);
+    }
+
+    /**
+     * Returns the space for a completed file of the specified size, i.e.,
+     * this space or the overflow space if the file exceeds the spill threshold.
+     *
+     * @param bytes size of the file
+     * @return the space for the file
+     */
+    ScratchSpace getSpillTarget(long bytes) {
+        return overflow != null && bytes > spillThreshold && !closed ? overflow : this;
+    }
+
+    /**
+     * Moves the specified file from the specified space to this space.
+     *
+     * @param f file to move
+     * @param from space that contains the file
+     * @return the moved file
+     * @throws IOException if the file cannot be moved
+     */
+    File spill(File f, ScratchSpace from) throws IOException {
+        long id = created.getAndIncrement();
+
+        String name = f.getName();
+        int dot = name.indexOf('.');
+
+        Path target = shard(id).resolve("_vcsg_" + id + (dot < 0 ? "" : name.substring(dot)));
+
+        // copies the file if the spaces are on different file systems
+        Files.move(f.toPath(), target);
+
+        files.incrementAndGet();
+        from.files.decrementAndGet();
+        from.spills.incrementAndGet();
+
+        return target.toFile();
+    }
+
+    /**
+     * Returns the shard folder for the specified file id (creates it if necessary).
+     *
+     * @param id file id
+     * @return shard folder
+     * @throws IOException if the folder cannot be created
+     */
+    private Path shard(long id) throws IOException {
+        int i = (int) (id % SHARDS);
+
+        Path dir = root.toPath().resolve(String.format("%02x", i));
+
+        if (shards.get(i) == 0) {
+            Files.createDirectories(dir);
+            shards.set(i, 1);
+        }
+
+        return dir;
+    }
+
+    /**
+     * Records the size of a completed file.
+     *
+     * @param bytes size of the file
+     */
+    void allocated(long bytes) {
+        size.addAndGet(bytes);
+    }
+
+    /**
+     * Deletes the specified file (asynchronously).
+     *
+     * @param f file or folder to delete
+     * @param bytes recorded size of the file
+     */
+    void delete(File f, long bytes) {
+        size.addAndGet(-bytes);
+        files.decrementAndGet();
+        deleted.incrementAndGet();
+
+        DELETER.execute(() -> {
+            if (f.isDirectory() ? !IOUtil.deleteDirectory(f) : !f.delete() && f.exists()) {
+                Logger.getLogger(ScratchSpace.class.getName()).log(Level.WARNING, "cannot delete scratch file " + f);
+            }
+        });
+    }
+
+    /**
+     * Closes this scratch space and deletes its root folder (asynchronously).
+     * Files of this scratch space must not be used anymore.
+     */
+    public void close() {
+        closed = true;
+        OPEN.remove(this);
+        DELETER.execute(this::deleteRoot);
+    }
+
+    private void deleteRoot() {
+        if (root.exists()) {
+            IOUtil.deleteDirectory(root);
+        }
+    }
+
+    /**
+     * Deletes root folders of terminated JVMs in the specified folder.
+     *
+     * @param directory parent folder of the root folders
+     */
+    private static void deleteStaleRoots(File directory) {
+        try (DirectoryStream<Path> roots = Files.newDirectoryStream(directory.toPath(), ROOT_PREFIX + "*")) {
+            for (Path r : roots) {
+                String name = r.getFileName().toString();
+                int end = name.indexOf('-', ROOT_PREFIX.length());
+
+                long pid;
+                try {
+                    pid = Long.parseLong(name.substring(ROOT_PREFIX.length(), end));
+                } catch (NumberFormatException | StringIndexOutOfBoundsException ex) {
+                    continue;
+                }
+
+                if (!ProcessHandle.of(pid).isPresent()) {
+                    IOUtil.deleteDirectory(r.toFile());
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(ScratchSpace.class.getName()).log(Level.FINE, "cannot delete stale scratch folders", ex);
+        }
+    }
+
+    /**
+     * Returns the root folder of this scratch space.
+     * @return the root folder
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the quota of this scratch space.
+     * @return the maximum size of the files (in bytes)
+     */
+    public long getQuota() {
+        return quota;
+    }
+
+    /**
+     * Returns the overflow space.
+     * @return the overflow space or {@code null} if this space has no overflow
+     */
+    public ScratchSpace getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * Returns the size of the completed files (not including the overflow space).
+     * @return the size of the files (in bytes)
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Returns the estimated size of the files that are still being written (not including the overflow space).
+     * @return the reserved size (in bytes)
+     */
+    public long getReserved() {
+        return reserved.get();
+    }
+
+    /**
+     * Returns the number of files that have not been deleted yet (not including the overflow space).
+     * @return the number of files
+     */
+    public long getFiles() {
+        return files.get();
+    }
+
+    /**
+     * Returns the number of created files (not including the overflow space).
+     * @return the number of created files
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Returns the number of deleted files (not including the overflow space).
+     * @return the number of deleted files
+     */
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    /**
+     * Returns the number of files that have been created in the overflow space because the quota was exceeded.
+     * @return the number of overflows
+     */
+    public long getOverflows() {
+        return overflows.get();
+    }
+
+    /**
+     * Sets the spill threshold. Completed files that exceed the threshold are
+     * moved to the overflow space (if any).
+     * @param bytes spill threshold (in bytes)
+     */
+    public void setSpillThreshold(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Spill threshold must not be negative, got " + bytes);
+        }
+        this.spillThreshold = bytes;
+    }
+
+    /**
+     * Returns the spill threshold.
+     * @return the spill threshold (in bytes)
+     * @see #setSpillThreshold(long)
+     */
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Returns the number of files that have been moved to the overflow space because they exceeded the spill threshold.
+     * @return the number of spilled files
+     */
+    public long getSpills() {
+        return spills.get();
+    }
+
+    /**
+     * Indicates whether this space is backed by memory (tmpfs or ramfs).
+     * @return {@code true} if this space is backed by memory; {@code false} otherwise
+     */
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    /**
+     * Returns the size of the completed files in memory-backed spaces (this space and its overflow spaces).
+     * @return the size of the files in memory (in bytes)
+     */
+    public long getMemorySize() {
+        return (inMemory ? size.get() : 0) + (overflow == null ? 0 : overflow.getMemorySize());
+    }
+
+    /**
+     * Returns the size of the files in all open memory-backed spaces, including
+     * the estimated size of files that are still being written. Memory-backed
+     * files count against the memory limit of the container, i.e., they reduce
+     * the memory available to occ-csg processes.
+     * @return the size of the files in memory (in bytes)
+     */
+    public static long getOpenMemorySize() {
+        long bytes = 0;
+        for (ScratchSpace s : OPEN) {
+            if (s.inMemory) {
+                bytes += s.size.get() + s.reserved.get();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the size of the completed files in disk-backed spaces (this space and its overflow spaces).
+     * @return the size of the files on disk (in bytes)
+     */
+    public long getDiskSize() {
+        return (inMemory ? 0 : size.get()) + (overflow == null ? 0 : overflow.getDiskSize());
+    }
+
+    /**
+     * Returns the number of files in memory-backed spaces (this space and its overflow spaces).
+     * @return the number of files in memory
+     */
+    public long getMemoryFiles() {
+        return (inMemory ? files.get() : 0) + (overflow == null ? 0 : overflow.getMemoryFiles());
+    }
+
+    /**
+     * Returns the number of files in disk-backed spaces (this space and its overflow spaces).
+     * @return the number of files on disk
+     */
+    public long getDiskFiles() {
+        return (inMemory ? 0 : files.get()) + (overflow == null ? 0 : overflow.getDiskFiles());
+    }
+
+    @Override
+    public String toString() {
+        return "[root: " + root + (inMemory ? " (memory)" : "") + ", size: " + size.get() + "/" + quota
+                + ", reserved: " + reserved.get()
+                + ", files: " + files.get() + ", created: " + created.get() + ", deleted: " + deleted.get()
+                + ", overflows: " + overflows.get() + ", spills: " + spills.get()
+                + (overflow == null ? "" : ", overflow: " + overflow) + "]";
+    }
+}
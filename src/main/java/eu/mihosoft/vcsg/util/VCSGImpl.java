@@ -1,21 +1,40 @@
 package eu.mihosoft.vcsg.util;
 
 import eu.mihosoft.vcsg.VCSG;
+import eu.mihosoft.vcsg.vcsgdist.DistManifest;
 import eu.mihosoft.vcsg.vcsgdist.VCSGDist;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.lang.reflect.Field;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,23 +44,108 @@ public class VCSGImpl implements VCSG {
     private static File executableFile;
     private static File vcsgRootPath;
     private final Process vcsgProcess;
-    private static boolean initialized;
-    private StreamGobbler errorGobbler;
-    private StreamGobbler stdGobbler;
+    private static volatile boolean initialized;
+    private static final Object INIT_LOCK = new Object();
+    // another JVM might be extracting the distribution (2 minutes)
+    private static final int LOCK_RETRIES = 240;
+    private static final long LOCK_RETRY_DELAY = 500;
+    private static final String INSTALL_MARKER = "installed.txt";
+    private static volatile Executor executor = ForkJoinPool.commonPool();
+    // starts admitted processes, i.e., admitted processes never wait for a (blocked) executor thread
+    private static final ExecutorService STARTER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "vcsg-starter");
+        t.setDaemon(true);
+        return t;
+    });
+    private static volatile WorkerPool workerPool;
+    private static final ProcessScheduler scheduler = newScheduler();
+    private static final MemoryMonitor memoryMonitor = new MemoryMonitor(100);
+    private static final ExecutionStatistics statistics = new ExecutionStatistics();
+    private static final List<ExecutionListener> listeners = new CopyOnWriteArrayList<>();
+    // 0 disables the default timeout
+    private static volatile long defaultTimeoutNanos;
+    private static volatile long terminationGraceNanos = TimeUnit.SECONDS.toNanos(5);
+    // end of the error output that is attached to exceptions
+    private static final int ERROR_TAIL_SIZE = 4096;
+    // output that is buffered until it is printed (or discarded)
+    private static final int PENDING_OUTPUT_LIMIT = 16 * 1024 * 1024;
 
 
     static {
         // static init
     }
     private final File wd;
-
-    private VCSGImpl(Process proc, File wd) {
+    // completes exceptionally if the process has been cancelled or timed out
+    private final CompletableFuture<Process> supervision;
+    // captured output streams (null if not captured)
+    private final OutputCapture stdOut;
+    private final OutputCapture stdErr;
+    private final OutputTail errorTail;
+    // completes once the captured streams have been copied entirely
+    private final CompletableFuture<Void> drained;
+
+    private VCSGImpl(Process proc, File wd, CompletableFuture<Process> supervision,
+                     OutputCapture stdOut, OutputCapture stdErr, OutputTail errorTail) {
         this.vcsgProcess = proc;
         this.wd = wd;
+        this.supervision = supervision;
+        this.stdOut = stdOut;
+        this.stdErr = stdErr;
+        this.errorTail = errorTail;
+        this.drained = pump(proc, stdOut, stdErr);
+    }
+
+    /**
+     * Copies the output of the specified process via the shared output pump.
+     *
+     * @param proc process
+     * @param stdOut receives the standard output ({@code null} if not captured)
+     * @param stdErr receives the error output ({@code null} if not captured)
+     * @return future that completes once the captured streams have been copied entirely
+     */
+    private static CompletableFuture<Void> pump(Process proc, OutputCapture stdOut, OutputCapture stdErr) {
+        OutputPump pump = OutputPump.shared();
+
+        CompletableFuture<Void> out = stdOut == null ? CompletableFuture.completedFuture(null)
+                : pump.pump(proc, proc.getInputStream(), stdOut);
+        CompletableFuture<Void> err = stdErr == null ? CompletableFuture.completedFuture(null)
+                : pump.pump(proc, proc.getErrorStream(), stdErr);
+
+        return CompletableFuture.allOf(out, err);
+    }
+
+    /**
+     * Creates the process scheduler. The number of concurrent processes is
+     * limited to the number of usable processors. If the JVM runs with a cgroup
+     * memory limit, 75% of that limit are used as memory budget. Scratch files
+     * in a tmpfs count against the same limit, i.e., they reduce the budget.
+     *
+     * @return the process scheduler
+     */
+    private static ProcessScheduler newScheduler() {
+        CgroupLimits limits = CgroupLimits.detect();
+
+        ProcessScheduler s = new ProcessScheduler(limits.getProcessors());
+
+        if (limits.getMemoryLimit() > 0) {
+            s.setMemoryBudget(limits.getMemoryLimit() / 4 * 3);
+            s.setExternalMemoryUsage(ScratchSpace::getOpenMemorySize);
+        }
+
+        return s;
     }
 
     /**
-     * Initializes property folder and executable.
+     * Initializes property folder and executable. Each version of the vcsg
+     * distribution is installed into its own folder, e.g.,
+     * {@code ~/.vcsg/vcsg-dist/<timestamp>}. The distribution is extracted into
+     * a staging folder which is moved to the version folder atomically, i.e.,
+     * an existing version folder is always complete and never modified.
+     * Concurrent installations (threads and JVMs) are serialized via a lock
+     * file, i.e., the distribution is extracted only once. Subsequent JVMs read
+     * the executable path from a plain text install marker. Each version folder
+     * contains a manifest (see {@link DistManifest}) that allows to check its
+     * integrity cheaply and to reuse unchanged files if a new version is installed.
      */
     private static void initialize() {
 
@@ -50,88 +154,276 @@ public class VCSGImpl implements VCSG {
             return;
         }
 
-        try {
+        synchronized (INIT_LOCK) {
+
+            if (initialized) {
+                return;
+            }
+
+            try {
+
+                Path confDir
+                        = Paths.get(System.getProperty("user.home"), ".vcsg").
+                        toAbsolutePath();
+                Path distDir = Paths.get(confDir.toString(), "vcsg-dist");
+
+                String timestampFromDist = getDistTimestamp();
+
+                // fast path: installed by a previous JVM
+                File installed = readInstallMarker(distDir, timestampFromDist);
+
+                // the manifest check only compares file sizes, i.e., it does not read the files
+                if (installed != null && isIntact(installed.getParentFile().getParentFile().toPath())) {
+                    executableFile = installed;
+                    vcsgRootPath = installed.getParentFile().getParentFile();
+                    initialized = true;
+                    return;
+                }
+
+                Files.createDirectories(distDir);
 
-            Path confDir
-                    = Paths.get(System.getProperty("user.home"), ".vcsg").
-                    toAbsolutePath();
-            Path distDir = Paths.get(confDir.toString(), "vcsg-dist");
-            File base = confDir.toFile();
+                Path versionDir = distDir.resolve(versionFolderName(timestampFromDist));
 
-            if (!Files.exists(confDir)) {
-                Files.createDirectory(confDir);
+                // complete versions are never modified, i.e., no lock is needed
+                if (!Files.isDirectory(versionDir) || !isIntact(versionDir)) {
+                    install(confDir, distDir, versionDir);
+                }
+
+                executableFile = getExecutablePath(versionDir);
+
+                writeInstallMarker(distDir, timestampFromDist, executableFile);
+
+            } catch (IOException ex) {
+                Logger.getLogger(VCSGImpl.class.getName()).log(Level.SEVERE, null, ex);
+                throw new RuntimeException("Cannot install vcsg distribution", ex);
             }
 
-            if (!Files.exists(distDir)) {
-                Files.createDirectory(distDir);
+            initialized = true;
+        }
+    }
+
+    /**
+     * Returns the timestamp of the vcsg distribution on the classpath.
+     *
+     * @return the timestamp of the vcsg distribution
+     */
+    private static String getDistTimestamp() {
+        try {
+            Class<?> buildInfoCls = Class.forName("eu.mihosoft.vcsg.vcsgdist.BuildInfo");
+            Field timestampFromDistField = buildInfoCls.getDeclaredField("TIMESTAMP");
+            timestampFromDistField.setAccessible(true);
+            return (String) timestampFromDistField.get(buildInfoCls);
+        } catch (ClassNotFoundException ex) {
+            Logger.getLogger(VCSGImpl.class.getName()).log(Level.SEVERE, null, ex);
+            throw new RuntimeException(
+                    "VCSG distribution for \"" + VSysUtil.getPlatformInfo()
+                            + "\" not available on the classpath!", ex);
+        } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex) {
+            Logger.getLogger(VCSGImpl.class.getName()).log(Level.SEVERE, null, ex);
+            throw new RuntimeException(
+                    "VCSG distribution for \"" + VSysUtil.getPlatformInfo()
+                            + "\" does not contain valid build info!", ex);
+        }
+    }
+
+    /**
+     * Reads the install marker, i.e., a plain text file with the timestamp of
+     * the installed distribution (first line) and the path of its executable
+     * (second line).
+     *
+     * @param distDir folder that contains the installed versions
+     * @param timestamp timestamp of the distribution on the classpath
+     * @return the executable or {@code null} if the marker does not exist, is
+     * outdated or if the executable does not exist
+     */
+    private static File readInstallMarker(Path distDir, String timestamp) {
+        List<String> lines;
+
+        try {
+            lines = Files.readAllLines(distDir.resolve(INSTALL_MARKER), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            return null;
+        }
+
+        if (lines.size() < 2 || !Objects.equals(lines.get(0), String.valueOf(timestamp))) {
+            return null;
+        }
+
+        File executable = new File(lines.get(1));
+
+        return executable.isFile() ? executable : null;
+    }
+
+    /**
+     * Writes the install marker (see {@link #readInstallMarker(Path, String)}).
+     * The marker is replaced atomically, i.e., concurrent readers never see a
+     * partially written marker.
+     *
+     * @param distDir folder that contains the installed versions
+     * @param timestamp timestamp of the installed distribution
+     * @param executable executable of the installed distribution
+     */
+    private static void writeInstallMarker(Path distDir, String timestamp, File executable) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(distDir, ".marker-", ".tmp");
+            Files.write(tmp, (timestamp + "\n" + executable.getAbsolutePath() + "\n").
+                    getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, distDir.resolve(INSTALL_MARKER),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            // the next JVM takes the slow path
+            Logger.getLogger(VCSGImpl.class.getName()).log(Level.WARNING, "cannot write install marker", ex);
+            if (tmp != null) {
+                tmp.toFile().delete();
             }
+        }
+    }
+
+    /**
+     * Installs the vcsg distribution into the specified version folder unless
+     * another thread or JVM has installed it already.
+     *
+     * @param confDir property folder
+     * @param distDir folder that contains the installed versions
+     * @param versionDir version folder to install
+     * @throws IOException if the distribution cannot be installed
+     */
+    private static void install(Path confDir, Path distDir, Path versionDir) throws IOException {
+
+        File lockFile = new File(confDir.toFile(), "vcsg-dist.lock");
 
-            ConfigurationFile confFile
-                    = IOUtil.newConfigurationFile(new File(base, "config.xml"));
-            confFile.load();
-            String timestamp = confFile.getProperty("timestamp");
-            File vcsgFolder = distDir.toFile();//, "vcsg");
+        // unlocked access if the lock file does not exist
+        try {
+            Files.createFile(lockFile.toPath());
+        } catch (FileAlreadyExistsException ex) {
+            // created by another JVM
+        }
 
-            String timestampFromDist;
+        IOException[] failure = {null};
+        boolean[] performed = {false};
 
+        SynchronizedFileAccess.access(f -> {
+            performed[0] = true;
             try {
-                Class<?> buildInfoCls = Class.forName("eu.mihosoft.vcsg.vcsgdist.BuildInfo");
-                Field timestampFromDistField = buildInfoCls.getDeclaredField("TIMESTAMP");
-                timestampFromDistField.setAccessible(true);
-                timestampFromDist = (String) timestampFromDistField.get(buildInfoCls);
-            } catch (ClassNotFoundException ex) {
-                Logger.getLogger(VCSGImpl.class.getName()).log(Level.SEVERE, null, ex);
-                throw new RuntimeException(
-                        "VCSG distribution for \"" + VSysUtil.getPlatformInfo()
-                                + "\" not available on the classpath!", ex);
-            } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex) {
-                Logger.getLogger(VCSGImpl.class.getName()).log(Level.SEVERE, null, ex);
-                throw new RuntimeException(
-                        "VCSG distribution for \"" + VSysUtil.getPlatformInfo()
-                                + "\" does not contain valid build info!", ex);
-            }
+                if (Files.isDirectory(versionDir)) {
+                    // installed by another JVM while we were waiting for the lock
+                    if (isIntact(versionDir)) {
+                        return;
+                    }
+
+                    // damaged, e.g., by a user or a virus scanner
+                    Path broken = Files.createTempDirectory(distDir, ".broken-");
+                    Files.move(versionDir, broken.resolve("dist"), StandardCopyOption.ATOMIC_MOVE);
+                    IOUtil.deleteDirectory(broken.toFile());
+                }
+
+                // unchanged files are taken from the most recent installed version
+                Path previous = findPreviousVersion(distDir, versionDir);
 
-            // if no previous timestamp exists or if no vcsg folder exists
-            if (timestamp == null || !vcsgFolder.exists()) {
-                System.out.println("ts: " + timestamp + ", " + vcsgFolder);
                 System.out.println(
-                        " -> installing vcsg to \"" + distDir + "\"");
-                VCSGDist.extractTo(distDir.toFile());
-                confFile.setProperty("timestamp", timestampFromDist);
-                confFile.save();
-            } else // we need to update the vcsg distribution
-                if (!Objects.equals(timestamp, timestampFromDist)) {
-                    System.out.println(
-                            " -> updating vcsg in \"" + distDir + "\"");
-                    System.out.println(" --> current version: " + timestamp);
-                    System.out.println(" --> new     version: " + timestampFromDist);
-                    VCSGDist.extractTo(distDir.toFile());
-                    confFile.setProperty("timestamp", timestampFromDist);
-                    confFile.save();
-                } else {
-                /*System.out.println(
-                        " -> vcsg up to date in \"" + distDir + "\""
-                );*/
+                        " -> installing vcsg to \"" + versionDir + "\""
+                                + (previous == null ? "" : " (updating \"" + previous + "\")"));
+
+                Path staging = Files.createTempDirectory(distDir, ".staging-");
+
+                try {
+                    VCSGDist.extractTo(staging.toFile(), previous == null ? null : previous.toFile());
+
+                    // the version folder must be usable as soon as it exists
+                    makeExecutable(new File(staging.toFile(), executableName()));
+
+                    Files.move(staging, versionDir, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    if (Files.exists(staging)) {
+                        IOUtil.deleteDirectory(staging.toFile());
+                    }
                 }
+            } catch (IOException ex) {
+                failure[0] = ex;
+            }
+        }, lockFile, LOCK_RETRIES, LOCK_RETRY_DELAY);
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+
+        if (!performed[0]) {
+            throw new IOException("Cannot lock \"" + lockFile + "\", another installation is still running");
+        }
+    }
 
-            executableFile = getExecutablePath(distDir);
+    /**
+     * Indicates whether the specified version folder is intact, i.e., whether
+     * all files listed in its manifest exist and have the expected size.
+     * Folders without manifest are considered intact.
+     *
+     * @param versionDir version folder
+     * @return {@code true} if the version folder is intact; {@code false} otherwise
+     */
+    private static boolean isIntact(Path versionDir) {
+        try {
+            DistManifest manifest = DistManifest.read(versionDir);
+
+            List<String> broken = manifest == null ? Collections.emptyList() : manifest.verify(versionDir);
+
+            if (!broken.isEmpty()) {
+                Logger.getLogger(VCSGImpl.class.getName()).log(Level.WARNING,
+                        "vcsg distribution \"" + versionDir + "\" is damaged: " + broken);
+            }
 
+            return broken.isEmpty();
         } catch (IOException ex) {
-            Logger.getLogger(VCSGImpl.class.getName()).log(Level.SEVERE, null, ex);
+            Logger.getLogger(VCSGImpl.class.getName()).log(Level.WARNING, "cannot read manifest", ex);
+            return false;
         }
+    }
 
-        initialized = true;
+    /**
+     * Returns the most recently installed intact version with manifest.
+     *
+     * @param distDir folder that contains the installed versions
+     * @param versionDir version folder to install (excluded)
+     * @return the most recently installed version or {@code null} if no such version exists
+     */
+    private static Path findPreviousVersion(Path distDir, Path versionDir) {
+        try (Stream<Path> dirs = Files.list(distDir)) {
+            return dirs.filter(d -> !d.getFileName().toString().startsWith(".") && !d.equals(versionDir)
+                    && Files.isRegularFile(d.resolve(DistManifest.FILE_NAME))).
+                    max(Comparator.comparingLong(d -> d.resolve(DistManifest.FILE_NAME).toFile().lastModified())).
+                    filter(VCSGImpl::isIntact).
+                    orElse(null);
+        } catch (IOException ex) {
+            return null;
+        }
     }
 
+    /**
+     * Returns the name of the folder of the specified distribution version.
+     *
+     * @param timestamp timestamp of the distribution
+     * @return folder name
+     */
+    private static String versionFolderName(String timestamp) {
+        return timestamp == null ? "unknown" : timestamp.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Prints the output of the process to the specified streams and waits until
+     * the process has terminated. Output that has been produced before this
+     * method is called is buffered, i.e., it is printed as well.
+     *
+     * @param out standard output stream ({@code null} discards the standard output)
+     * @param err error output stream ({@code null} discards the error output)
+     * @return this execution
+     */
     @Override
     public VCSGImpl print(PrintStream out, PrintStream err) {
-        if(err!=null) {
-            errorGobbler = new StreamGobbler(err, vcsgProcess.getErrorStream(), "");
-            errorGobbler.start();
+        if (stdOut != null) {
+            stdOut.attach(out);
         }
-        if(out!=null) {
-            stdGobbler = new StreamGobbler(out, vcsgProcess.getInputStream(), "");
-            stdGobbler.start();
+        if (stdErr != null) {
+            stdErr.attach(err);
         }
 
         return waitFor();
@@ -139,53 +431,654 @@ public class VCSGImpl implements VCSG {
 
     @Override
     public VCSGImpl print() {
-        errorGobbler = new StreamGobbler(System.err, vcsgProcess.getErrorStream(), "");
-        errorGobbler.start();
-
-        stdGobbler = new StreamGobbler(System.out, vcsgProcess.getInputStream(), "");
-        stdGobbler.start();
+        return print(System.out, System.err);
+    }
 
-        return waitFor();
+    /**
+     * Returns the end of the error output of the process.
+     *
+     * @return the most recent error output (at most a few kilobytes)
+     */
+    @Override
+    public String getErrorOutput() {
+        return errorTail == null ? "" : errorTail.toString();
     }
 
+    /**
+     * Waits until the process has terminated. Cancelled processes and processes
+     * that exceed their deadline are killed, i.e., this method does not wait
+     * longer than the deadline (plus the termination grace period).
+     *
+     * @return this execution
+     * @throws java.util.concurrent.CancellationException if the process has been cancelled or timed out
+     */
     @Override
     public VCSGImpl waitFor() {
         try {
             vcsgProcess.waitFor();
-            if(errorGobbler!=null) {
-                errorGobbler.join();
-            }
-            if(stdGobbler!=null) {
-                stdGobbler.join();
-            }
+            // the pump copies the remaining output right after termination
+            drained.get();
+        } catch (ExecutionException ex) {
+            // the pump never fails its futures
+            throw new RuntimeException("Cannot copy process output", ex);
         } catch (InterruptedException ex) {
+            // nobody waits for the result anymore
+            terminate(vcsgProcess);
+            Thread.currentThread().interrupt();
             Logger.getLogger(VCSGImpl.class.getName()).log(Level.SEVERE, null, ex);
             throw new RuntimeException("Cannot wait until process is finished", ex);
         }
 
+        if (supervision != null && supervision.isCompletedExceptionally()) {
+            join(supervision);
+        }
+
         return this;
     }
 
 
     public static VCSG execute(String... arguments) {
+        return execute(null, arguments);
+    }
+
+
+    /**
+     * Calls vcsg with the specified arguments and blocks until the process scheduler
+     * admits the process. Admitted processes never depend on executor threads, i.e.,
+     * calling this method from tasks that run on the configured executor does not
+     * deadlock, but each waiting call occupies an executor thread. Bounded executors
+     * (other than fork/join pools, which compensate blocked threads) should use
+     * {@link #executeAsync(File, String...)} instead.
+     *
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return the vcsg execution
+     */
+    public static VCSG execute(File wd, String... arguments) {
 
         initialize();
 
-        Process proc = execute(false, null, arguments);
+        WorkerPool pool = workerPool;
+
+        CancellationToken token = CancellationToken.current();
 
-        return new VCSGImpl(proc, null);
+        // closed pools (e.g., all workers crashed) fall back to spawning processes
+        if (pool != null && !pool.isClosed()) {
+            return new PooledVCSG(join(acquire(ProcessScheduler.getCurrentPriority(), token, wd, arguments).
+                    thenCompose(permit -> supervise(executePooled(pool, token, wd, arguments), null, permit, token).
+                            whenComplete((r, t) -> permit.release()))), wd);
+        }
+
+        return start(token, wd, true, arguments);
     }
 
 
-    public static VCSG execute(File wd, String... arguments) {
+    /**
+     * Calls vcsg asynchronously with the specified arguments. The process is
+     * started once the process scheduler admits it and completion is signalled
+     * via {@link Process#onExit()}, i.e., no thread waits for the process. The
+     * returned future completes on the configured executor.
+     *
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the terminated vcsg execution
+     */
+    public static CompletableFuture<VCSG> executeAsync(File wd, String... arguments) {
+        return executeAsync(ProcessScheduler.getCurrentPriority(), wd, arguments);
+    }
+
+    /**
+     * Calls vcsg asynchronously with the specified arguments. The process is
+     * queued by the process scheduler with the specified priority class.
+     *
+     * @param priority priority class
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the terminated vcsg execution
+     */
+    public static CompletableFuture<VCSG> executeAsync(
+            ProcessScheduler.Priority priority, File wd, String... arguments) {
+        return executeAsync(priority, CancellationToken.current(), wd, arguments);
+    }
+
+    /**
+     * Calls vcsg asynchronously with the specified arguments. The process is
+     * queued by the process scheduler with the specified priority class. If the
+     * specified token is cancelled, the process is removed from the queue or
+     * killed and the returned future completes with a
+     * {@link java.util.concurrent.CancellationException}.
+     *
+     * @param priority priority class
+     * @param token cancellation token
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the terminated vcsg execution
+     */
+    public static CompletableFuture<VCSG> executeAsync(
+            ProcessScheduler.Priority priority, CancellationToken token, File wd, String... arguments) {
+        Executor exec = executor;
+
+        if (token.isCancelled()) {
+            CompletableFuture<VCSG> cancelled = new CompletableFuture<>();
+            cancelled.completeExceptionally(token.toException());
+            return cancelled;
+        }
+
+        return acquire(priority, token, wd, arguments).thenComposeAsync(permit -> {
+
+            CompletableFuture<VCSG> result;
+
+            try {
+                result = startAsync(permit, token, wd, arguments);
+            } catch (RuntimeException ex) {
+                permit.release();
+                throw ex;
+            }
+
+            return result.whenComplete((v, t) -> permit.release());
+        }, STARTER).
+                // dependent tasks run on the executor instead of the process reaper thread
+                thenApplyAsync(v -> v, exec);
+    }
+
+    private static CompletableFuture<VCSG> startAsync(
+            ProcessScheduler.Permit permit, CancellationToken token, File wd, String... arguments) {
+        WorkerPool pool = workerPool;
+
+        if (pool != null && !pool.isClosed()) {
+            return supervise(executePooled(pool, token, wd, arguments), null, permit, token).thenApply(result -> {
+                result.getErr().forEach(System.err::println);
+                return new PooledVCSG(result, wd);
+            });
+        }
 
         initialize();
 
-        Process proc = execute(false, wd, arguments);
+        // nobody reads the standard output of asynchronous executions
+        ProcessBuilder pb = newProcessBuilder(wd, arguments);
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
 
-        return new VCSGImpl(proc, wd);
+        try {
+            Process proc = pb.start();
+
+            OutputTail errorTail = new OutputTail(ERROR_TAIL_SIZE);
+            OutputCapture stdErr = new OutputCapture(0, errorTail);
+            stdErr.attach(System.err);
+
+            VCSGImpl vcsg = new VCSGImpl(proc, wd, null, null, stdErr, errorTail);
+
+            // completes once the error output is complete, i.e., it can be attached to exceptions
+            return supervise(monitor(proc, permit, wd, arguments).thenCombine(vcsg.drained, (p, v) -> p),
+                    proc, permit, token).thenApply(p -> vcsg);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error while executing vcsg", ex);
+        }
+    }
+
+    /**
+     * Supervises a running execution. If the specified token is cancelled or if
+     * the execution exceeds the default timeout, the returned future completes
+     * exceptionally right away, the permit is released and the process is
+     * terminated (see {@link #terminate(Process)}).
+     *
+     * @param completion future that completes once the execution has terminated
+     * @param proc process ({@code null} for pooled executions, whose workers are killed by the pool)
+     * @param permit permit of the execution
+     * @param token cancellation token
+     * @param <T> result type
+     * @return future that completes with the result of the execution or with a
+     * {@link java.util.concurrent.CancellationException}
+     */
+    private static <T> CompletableFuture<T> supervise(CompletableFuture<T> completion, Process proc,
+                                                      ProcessScheduler.Permit permit, CancellationToken token) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Consumer<CancellationException> abort = ex -> {
+            if (result.completeExceptionally(ex)) {
+                // free the slot right away, the process might take a while to terminate
+                permit.discard();
+                if (proc != null) {
+                    terminate(proc);
+                }
+            }
+        };
+
+        Runnable registration = token.onCancel(() -> abort.accept(token.toException()));
+
+        long timeout = defaultTimeoutNanos;
+        ScheduledFuture<?> timer = timeout <= 0 ? null : CancellationToken.schedule(() -> abort.accept(
+                new CancellationException("deadline exceeded (default timeout: "
+                        + TimeUnit.NANOSECONDS.toMillis(timeout) + " ms)")), timeout);
+
+        completion.whenComplete((v, t) -> {
+            registration.run();
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            if (t != null) {
+                result.completeExceptionally(t);
+            } else {
+                result.complete(v);
+            }
+        });
+
+        return result;
     }
 
+    /**
+     * Terminates the specified process. The process is killed forcibly if it
+     * does not terminate within the termination grace period.
+     *
+     * @param proc process to terminate
+     */
+    static void terminate(Process proc) {
+        if (!proc.isAlive()) {
+            return;
+        }
+
+        proc.destroy();
+
+        CancellationToken.schedule(() -> {
+            if (proc.isAlive()) {
+                Logger.getLogger(VCSGImpl.class.getName()).log(Level.WARNING,
+                        "vcsg process " + proc.pid() + " did not terminate, killing it forcibly");
+                proc.destroyForcibly();
+            }
+        }, terminationGraceNanos);
+    }
+
+    /**
+     * Waits for the specified future and rethrows its failure unwrapped.
+     *
+     * @param future future to wait for
+     * @param <T> result type
+     * @return result of the specified future
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Sets the default timeout of vcsg processes. Processes that exceed the
+     * timeout are terminated.
+     *
+     * @param timeout default timeout ({@code null} or zero disables the default timeout)
+     */
+    public static void setDefaultTimeout(Duration timeout) {
+        if (timeout != null && timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must not be negative, got " + timeout);
+        }
+        defaultTimeoutNanos = timeout == null ? 0 : timeout.toNanos();
+    }
+
+    /**
+     * Returns the default timeout of vcsg processes.
+     *
+     * @return the default timeout ({@link Duration#ZERO} if disabled)
+     */
+    public static Duration getDefaultTimeout() {
+        return Duration.ofNanos(defaultTimeoutNanos);
+    }
+
+    /**
+     * Sets the time terminated vcsg processes get to exit before they are killed forcibly.
+     *
+     * @param gracePeriod termination grace period
+     */
+    public static void setTerminationGracePeriod(Duration gracePeriod) {
+        if (gracePeriod.isNegative()) {
+            throw new IllegalArgumentException("Grace period must not be negative, got " + gracePeriod);
+        }
+        terminationGraceNanos = gracePeriod.toNanos();
+    }
+
+    /**
+     * Returns the time terminated vcsg processes get to exit before they are killed forcibly.
+     *
+     * @return the termination grace period
+     */
+    public static Duration getTerminationGracePeriod() {
+        return Duration.ofNanos(terminationGraceNanos);
+    }
+
+    /**
+     * Samples the resource usage of the specified process and notifies the
+     * execution listeners once it has terminated.
+     *
+     * @param proc started process
+     * @param permit permit of the process
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the terminated process after the listeners have been notified
+     */
+    private static CompletableFuture<Process> monitor(
+            Process proc, ProcessScheduler.Permit permit, File wd, String... arguments) {
+        long start = System.nanoTime();
+        String kind = kind(arguments);
+        long inputBytes = inputBytes(wd, arguments);
+
+        MemoryMonitor.Usage usage = memoryMonitor.track(kind, inputBytes, proc, permit::updateMemoryUsage);
+
+        return proc.onExit().thenApply(p -> {
+            fireExecuted(new ExecutionRecord(kind, arguments, System.nanoTime() - start,
+                    usage.getUserCpuNanos(), usage.getSystemCpuNanos(), usage.getCpuNanos(), usage.getPeakMemory(),
+                    inputBytes, outputBytes(inputBytes, wd, arguments), p.exitValue()));
+            return p;
+        });
+    }
+
+    /**
+     * Executes vcsg via the specified worker pool and notifies the execution
+     * listeners. The resource usage of pooled processes is unknown.
+     *
+     * @param pool worker pool
+     * @param token cancellation token (the worker is killed and restarted if the execution is aborted)
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the result
+     */
+    private static CompletableFuture<WorkerPool.Result> executePooled(WorkerPool pool, CancellationToken token,
+                                                                      File wd, String... arguments) {
+        long start = System.nanoTime();
+        long inputBytes = inputBytes(wd, arguments);
+
+        return pool.execute(wd, token, defaultTimeoutNanos, arguments).thenApply(result -> {
+            fireExecuted(new ExecutionRecord(kind(arguments), arguments, System.nanoTime() - start,
+                    -1, -1, -1, 0, inputBytes, outputBytes(inputBytes, wd, arguments), result.getExitValue()));
+            return result;
+        });
+    }
+
+    private static void fireExecuted(ExecutionRecord record) {
+        statistics.executed(record);
+
+        for (ExecutionListener l : listeners) {
+            try {
+                l.executed(record);
+            } catch (RuntimeException ex) {
+                Logger.getLogger(VCSGImpl.class.getName()).log(Level.WARNING, "execution listener failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Adds a listener that is notified about terminated vcsg processes.
+     *
+     * @param listener listener to add
+     */
+    public static void addExecutionListener(ExecutionListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * Removes the specified execution listener.
+     *
+     * @param listener listener to remove
+     * @return {@code true} if the listener has been removed; {@code false} otherwise
+     */
+    public static boolean removeExecutionListener(ExecutionListener listener) {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * Returns the resource usage of vcsg processes aggregated per kind of operation.
+     *
+     * @return the aggregated resource usage
+     */
+    public static ExecutionStatistics getExecutionStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Requests a permit to run vcsg with the specified arguments. If the specified
+     * token is cancelled while the request is queued, the request is removed
+     * from the queue.
+     *
+     * @param priority priority class
+     * @param token cancellation token
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the permit
+     */
+    private static CompletableFuture<ProcessScheduler.Permit> acquire(
+            ProcessScheduler.Priority priority, CancellationToken token, File wd, String... arguments) {
+        CompletableFuture<ProcessScheduler.Permit> permit = acquire(priority, wd, arguments);
+
+        Runnable registration = token.onCancel(() -> permit.completeExceptionally(token.toException()));
+        permit.whenComplete((p, t) -> registration.run());
+
+        return permit;
+    }
+
+    /**
+     * Requests a permit to run vcsg with the specified arguments. The memory
+     * estimate of the process is based on the size of its input files, which
+     * also allows the adaptive limit to compare processes with similar inputs.
+     *
+     * @param priority priority class
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the permit
+     */
+    private static CompletableFuture<ProcessScheduler.Permit> acquire(
+            ProcessScheduler.Priority priority, File wd, String... arguments) {
+        String kind = kind(arguments);
+        long inputBytes = inputBytes(wd, arguments);
+        return scheduler.acquire(priority, kind, inputBytes, memoryMonitor.estimate(kind, inputBytes));
+    }
+
+    /**
+     * Returns the total size of the files referenced by the specified arguments.
+     *
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return the total size of the referenced files (in bytes)
+     */
+    private static long inputBytes(File wd, String... arguments) {
+        long bytes = 0;
+
+        if (arguments == null) {
+            return bytes;
+        }
+
+        for (String arg : arguments) {
+            if (arg.startsWith("--")) {
+                continue;
+            }
+            File f = new File(arg);
+            if (!f.isAbsolute() && wd != null) {
+                f = new File(wd, arg);
+            }
+            // length() is 0 for non-existing files
+            bytes += f.length();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Returns the total size of the files written by a terminated process, i.e.,
+     * the growth of the referenced files (output files are empty or do not exist
+     * before the process runs).
+     *
+     * @param inputBytes total size of the referenced files before the process ran
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return the total size of the output files (in bytes)
+     */
+    private static long outputBytes(long inputBytes, File wd, String... arguments) {
+        return Math.max(0, inputBytes(wd, arguments) - inputBytes);
+    }
+
+    /**
+     * Returns the kind of operation of the specified arguments, e.g., {@code "--csg union"}.
+     *
+     * @param arguments arguments
+     * @return the kind of operation
+     */
+    private static String kind(String... arguments) {
+        if (arguments == null || arguments.length == 0) {
+            return "";
+        }
+        // the sub-command is part of the kind, file names are not (e.g., "--bounds file.stl")
+        if (arguments.length > 1 && arguments[1].matches("[a-z][a-z-]*")) {
+            return arguments[0] + " " + arguments[1];
+        }
+        return arguments[0];
+    }
+
+    /**
+     * Enables or disables the adaptive limit for the number of concurrent vcsg
+     * processes. The limit is derived from the cgroup quotas of this JVM and
+     * adjusted based on observed latencies and throughput. If disabled, the
+     * limit is reset to the number of usable processors.
+     *
+     * @param enabled {@code true} to enable the adaptive limit
+     */
+    public static synchronized void setAdaptiveConcurrencyEnabled(boolean enabled) {
+        CgroupLimits limits = CgroupLimits.detect();
+
+        if (enabled) {
+            AdaptiveLimit limit = AdaptiveLimit.forLimits(limits);
+            scheduler.setAdaptiveLimit(limit);
+            Logger.getLogger(VCSGImpl.class.getName()).log(Level.FINE,
+                    "adaptive concurrency enabled: " + limits + ", " + limit);
+        } else {
+            scheduler.setAdaptiveLimit(null);
+            scheduler.setMaxConcurrency(limits.getProcessors());
+        }
+    }
+
+    /**
+     * Indicates whether the adaptive limit for the number of concurrent vcsg processes is enabled.
+     *
+     * @return {@code true} if the adaptive limit is enabled; {@code false} otherwise
+     */
+    public static boolean isAdaptiveConcurrencyEnabled() {
+        return scheduler.getAdaptiveLimit() != null;
+    }
+
+    /**
+     * Returns the monitor that samples the memory usage of vcsg processes. Processes
+     * executed by a worker pool are not sampled.
+     *
+     * @return the memory monitor
+     */
+    public static MemoryMonitor getMemoryMonitor() {
+        return memoryMonitor;
+    }
+
+    /**
+     * Returns the process scheduler that limits the number of concurrent vcsg processes.
+     *
+     * @return the process scheduler
+     */
+    public static ProcessScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sets the executor used for asynchronous vcsg executions.
+     *
+     * @param executor executor to use
+     */
+    public static void setExecutor(Executor executor) {
+        VCSGImpl.executor = Objects.requireNonNull(executor, "executor must not be null");
+    }
+
+    /**
+     * Returns the executor used for asynchronous vcsg executions.
+     *
+     * @return the executor used for asynchronous vcsg executions
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Starts the specified number of occ-csg worker processes. Falls back to
+     * spawning a process per command if occ-csg does not support the worker
+     * protocol.
+     *
+     * @param size number of worker processes ({@code 0} disables the worker pool)
+     */
+    public static synchronized void setWorkerPoolSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative, got " + size);
+        }
+
+        if (size == 0) {
+            setWorkerPool(null);
+            return;
+        }
+
+        initialize();
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(executableFile.getAbsolutePath());
+        cmd.add("--worker");
+
+        WorkerPool pool = new WorkerPool(cmd, size, 10_000, 30_000);
+
+        setWorkerPool(pool.start() ? pool : null);
+    }
+
+    /**
+     * Starts the specified number of launcher processes (see {@link Launcher}).
+     * Each launcher is a small JVM that spawns occ-csg on request, i.e., the host
+     * JVM does not have to fork for every command.
+     *
+     * @param size number of launcher processes, i.e., the maximum number of
+     * concurrent occ-csg processes ({@code 0} disables the launchers)
+     */
+    public static synchronized void setLauncherPoolSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative, got " + size);
+        }
+
+        if (size == 0) {
+            setWorkerPool(null);
+            return;
+        }
+
+        initialize();
+
+        WorkerPool pool = new WorkerPool(Launcher.command(executableFile), size, 10_000, 30_000);
+
+        setWorkerPool(pool.start() ? pool : null);
+    }
+
+    /**
+     * Sets the worker pool that executes vcsg commands. The previous pool is closed.
+     *
+     * @param pool started worker pool (may be {@code null})
+     */
+    public static synchronized void setWorkerPool(WorkerPool pool) {
+        WorkerPool prev = workerPool;
+
+        workerPool = pool;
+
+        if (prev != null && prev != pool) {
+            prev.close();
+        }
+    }
+
+    /**
+     * Returns the number of worker processes.
+     *
+     * @return the number of worker processes ({@code 0} if the worker pool is disabled)
+     */
+    public static int getWorkerPoolSize() {
+        WorkerPool pool = workerPool;
+        return pool == null ? 0 : pool.getSize();
+    }
 
     @Override
     public File getWorkingDirectory() {
@@ -196,42 +1089,92 @@ public class VCSGImpl implements VCSG {
      * Calls vcsg with the specified arguments.
      *
      * @param arguments arguments
-     * @param wd working directory (currently ignored)
+     * @param wd working directory (may be {@code null})
      * @param waitFor indicates whether to wait for process execution
      * @return vcsg process
      */
     public static Process execute(boolean waitFor, File wd, String... arguments) {
 
-        initialize();
+        // the caller reads the process streams
+        VCSGImpl vcsg = start(CancellationToken.current(), wd, false, arguments);
 
-        if (arguments == null || arguments.length == 0) {
-            arguments = new String[]{"--help"};
+        if (waitFor) {
+            vcsg.waitFor();
         }
 
-        String[] cmd = new String[arguments.length + 1];
+        return vcsg.getProcess();
+    }
 
-        cmd[0] = executableFile.getAbsolutePath();
+    /**
+     * Starts vcsg with the specified arguments once the process scheduler admits it.
+     * Captured output is copied by the shared output pump and buffered until it
+     * is printed, i.e., the process never blocks on a full pipe.
+     *
+     * @param token cancellation token
+     * @param wd working directory (may be {@code null})
+     * @param capture indicates whether to capture the output of the process
+     * @param arguments arguments
+     * @return the started vcsg execution
+     */
+    private static VCSGImpl start(CancellationToken token, File wd, boolean capture, String... arguments) {
 
-        for (int i = 1; i < cmd.length; i++) {
-            cmd[i] = arguments[i - 1];
-        }
+        initialize();
+
+        token.throwIfCancelled();
 
         Process proc = null;
 
+        ProcessScheduler.Permit permit = join(acquire(ProcessScheduler.getCurrentPriority(), token, wd, arguments));
+
         try {
-            if(wd==null) {
-                proc = Runtime.getRuntime().exec(cmd);
-            } else {
-                proc = Runtime.getRuntime().exec(cmd, null, wd);
+            proc = newProcessBuilder(wd, arguments).start();
+            CompletableFuture<Process> supervision = supervise(monitor(proc, permit, wd, arguments), proc, permit, token);
+            proc.onExit().whenComplete((p, t) -> permit.release());
+
+            if (!capture) {
+                return new VCSGImpl(proc, wd, supervision, null, null, null);
             }
-            if (waitFor) {
-                proc.waitFor();
+
+            OutputTail errorTail = new OutputTail(ERROR_TAIL_SIZE);
+
+            return new VCSGImpl(proc, wd, supervision,
+                    new OutputCapture(PENDING_OUTPUT_LIMIT, null),
+                    new OutputCapture(PENDING_OUTPUT_LIMIT, errorTail), errorTail);
+        } catch (IOException ex) {
+            if (proc == null) {
+                permit.release();
             }
-        } catch (IOException | InterruptedException ex) {
             throw new RuntimeException("Error while executing vcsg", ex);
         }
+    }
+
+    /**
+     * Creates a process builder for calling vcsg with the specified arguments.
+     *
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return process builder
+     */
+    private static ProcessBuilder newProcessBuilder(File wd, String... arguments) {
+        if (arguments == null || arguments.length == 0) {
+            arguments = new String[]{"--help"};
+        }
+
+        List<String> cmd = new ArrayList<>(arguments.length + 1);
+
+        cmd.add(executableFile.getAbsolutePath());
+
+        for (String arg : arguments) {
+            cmd.add(arg);
+        }
 
-        return proc;
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+
+        if (wd != null) {
+            pb.directory(wd);
+        }
+
+        return pb;
     }
 
     @Override
@@ -240,12 +1183,13 @@ public class VCSGImpl implements VCSG {
     }
 
     /**
-     * Destroys the currently running vcsg process.
+     * Destroys the currently running vcsg process. The process is killed
+     * forcibly if it does not terminate within the termination grace period.
      */
     @Override
     public void destroy() {
         if (vcsgProcess != null) {
-            vcsgProcess.destroy();
+            terminate(vcsgProcess);
         }
     }
 
@@ -267,44 +1211,42 @@ public class VCSGImpl implements VCSG {
 
             vcsgRootPath = dir.toFile();// new File(dir.toFile(), "vcsg");
 
-            String executableName;
-
-            if (VSysUtil.isWindows()) {
-                executableName = "bin\\occ-csg.exe";
-            } else {
-                executableName = "bin/occ-csg";
-            }
-
-            executableFile = new File(vcsgRootPath, executableName);
+            executableFile = new File(vcsgRootPath, executableName());
 
-            if (!VSysUtil.isWindows()) {
-                try {
-                    Process p = Runtime.getRuntime().exec(new String[]{
-                            "chmod", "u+x",
-                            executableFile.getAbsolutePath()
-                    });
-
-                    InputStream stderr = p.getErrorStream();
-
-                    BufferedReader reader
-                            = new BufferedReader(
-                            new InputStreamReader(stderr));
-
-                    String line;
+            makeExecutable(executableFile);
+        }
 
-                    while ((line = reader.readLine()) != null) {
-                        System.out.println("Error: " + line);
-                    }
+        return executableFile;
+    }
 
-                    p.waitFor();
-                } catch (IOException | InterruptedException ex) {
-                    Logger.getLogger(VCSGImpl.class.getName()).
-                            log(Level.SEVERE, null, ex);
-                }
+    /**
+     * Makes the specified file executable for its owner (no-op on file systems
+     * without POSIX permissions).
+     *
+     * @param f file
+     */
+    private static void makeExecutable(File f) {
+        try {
+            Path path = f.toPath();
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+            if (permissions.add(PosixFilePermission.OWNER_EXECUTE)) {
+                Files.setPosixFilePermissions(path, permissions);
             }
+        } catch (UnsupportedOperationException ex) {
+            // e.g., Windows
+        } catch (IOException ex) {
+            Logger.getLogger(VCSGImpl.class.getName()).
+                    log(Level.SEVERE, null, ex);
         }
+    }
 
-        return executableFile;
+    /**
+     * Returns the path of the vcsg executable relative to the distribution folder.
+     *
+     * @return the path of the vcsg executable
+     */
+    private static String executableName() {
+        return VSysUtil.isWindows() ? "bin\\occ-csg.exe" : "bin/occ-csg";
     }
 
     /**
@@ -336,34 +1278,16 @@ public class VCSGImpl implements VCSG {
         return vcsgRootPath;
     }
 
+    /**
+     * Returns the occ-csg executable.
+     *
+     * @return the occ-csg executable
+     */
+    public static File getExecutableFile() {
+        initialize();
 
-}
-// based on http://stackoverflow.com/questions/14165517/processbuilder-forwarding-stdout-and-stderr-of-started-processes-without-blocki
-
-class StreamGobbler extends Thread {
-
-    private  volatile InputStream is;
-    private  volatile String prefix;
-    private  volatile PrintStream pw;
-
-    StreamGobbler(PrintStream pw, InputStream is, String prefix) {
-        this.is = is;
-        this.prefix = prefix;
-        this.pw = pw;
+        return executableFile;
     }
 
-    @Override
-    public void run() {
-        try {
-            InputStreamReader isr = new InputStreamReader(is);
-            BufferedReader br = new BufferedReader(isr);
-            String line;
-            while ((line = br.readLine()) != null) {
-                pw.println(prefix + line);
-            }
-        } catch (IOException ioe) {
-            ioe.printStackTrace(System.err);
-        }
-    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,646 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of long-lived worker processes that execute occ-csg commands. Workers
+ * avoid paying process startup (loading shared libraries, initializing the
+ * kernel) for every operation.
+ *
+ * <p>Workers are controlled via a line based protocol on stdin/stdout (UTF-8).
+ * Fields are separated by tabs. Backslashes, tabs and line breaks within
+ * fields are escaped as {@code \\}, {@code \t}, {@code \n} and {@code \r}.</p>
+ *
+ * <pre>
+ * worker -&gt; pool: READY  &lt;protocol version&gt;      (once, after startup)
+ * pool -&gt; worker: RUN    &lt;wd&gt; &lt;arg&gt; ... &lt;arg&gt;  (wd is empty for the worker's directory)
+ * worker -&gt; pool: OUT    &lt;line&gt;                   (standard output of the command)
+ * worker -&gt; pool: ERR    &lt;line&gt;                   (error output of the command)
+ * worker -&gt; pool: EXIT   &lt;exit value&gt;             (command finished)
+ * pool -&gt; worker: PING
+ * worker -&gt; pool: PONG
+ * pool -&gt; worker: QUIT
+ * </pre>
+ *
+ * <p>Workers that crash are restarted. A command that was running on a crashed
+ * worker is retried once on a fresh worker. Idle workers are checked
+ * periodically and restarted if they do not answer. Failed restarts are
+ * retried with exponential backoff. Workers that cannot be restarted stop,
+ * once all workers have stopped, the pool is closed, i.e., pending commands
+ * fail and {@link #isClosed()} indicates that the pool cannot be used anymore.</p>
+ */
+public final class WorkerPool implements AutoCloseable {
+
+    /**
+     * Version of the worker protocol.
+     */
+    public static final int PROTOCOL_VERSION = 1;
+
+    private static final Request SHUTDOWN = new Request(null, new String[0]);
+
+    private static final int RESTART_ATTEMPTS = 5;
+    private static final long RESTART_BACKOFF_MILLIS = 100;
+
+    private final List<String> command;
+    private final int size;
+    private final long timeoutMillis;
+    private final long healthCheckMillis;
+
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    private final List<WorkerThread> workers = new ArrayList<>();
+    private final ScheduledExecutorService watchdog;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private final AtomicInteger liveWorkers = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * Result of a command executed by a worker.
+     */
+    public static final class Result {
+        private final int exitValue;
+        private final List<String> out;
+        private final List<String> err;
+
+        Result(int exitValue, List<String> out, List<String> err) {
+            this.exitValue = exitValue;
+            this.out = Collections.unmodifiableList(out);
+            this.err = Collections.unmodifiableList(err);
+        }
+
+        /**
+         * Returns the exit value of the command.
+         * @return the exit value of the command
+         */
+        public int getExitValue() {
+            return exitValue;
+        }
+
+        /**
+         * Returns the standard output of the command.
+         * @return the standard output lines of the command
+         */
+        public List<String> getOut() {
+            return out;
+        }
+
+        /**
+         * Returns the error output of the command.
+         * @return the error output lines of the command
+         */
+        public List<String> getErr() {
+            return err;
+        }
+    }
+
+    private static final class Request {
+        final File wd;
+        final String[] arguments;
+        final CancellationToken token;
+        final long timeoutNanos;
+        final long deadline;
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+        int attempts;
+
+        Request(File wd, String[] arguments) {
+            this(wd, CancellationToken.none(), 0, arguments);
+        }
+
+        Request(File wd, CancellationToken token, long timeoutNanos, String[] arguments) {
+            this.wd = wd;
+            this.arguments = arguments;
+            this.token = token;
+            this.timeoutNanos = timeoutNanos;
+            this.deadline = System.nanoTime() + timeoutNanos;
+        }
+
+        /**
+         * Returns the nanoseconds until the deadline of this request.
+         * @return remaining nanoseconds ({@link Long#MAX_VALUE} if this request has no deadline)
+         */
+        long remainingNanos() {
+            return timeoutNanos <= 0 ? Long.MAX_VALUE : deadline - System.nanoTime();
+        }
+
+        CancellationException deadlineExceeded() {
+            return new CancellationException("deadline exceeded (timeout: "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms)");
+        }
+    }
+
+    /**
+     * Constructor. Workers are started by {@link #start()}.
+     *
+     * @param command command that starts a worker process
+     * @param size number of worker processes
+     * @param timeoutMillis timeout for the startup handshake and for health checks (in milliseconds)
+     * @param healthCheckMillis idle time after which workers are checked (in milliseconds)
+     */
+    public WorkerPool(List<String> command, int size, long timeoutMillis, long healthCheckMillis) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be greater than 0, got " + size);
+        }
+        this.command = new ArrayList<>(command);
+        this.size = size;
+        this.timeoutMillis = timeoutMillis;
+        this.healthCheckMillis = healthCheckMillis;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vcsg-worker-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts the worker processes.
+     *
+     * @return {@code true} if the workers have been started; {@code false} if the
+     * worker command does not support the worker protocol (the pool is closed in this case)
+     */
+    public boolean start() {
+        try {
+            for (int i = 0; i < size; i++) {
+                WorkerThread w = new WorkerThread(i);
+                w.startProcess();
+                workers.add(w);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(WorkerPool.class.getName()).log(Level.INFO,
+                    "worker mode not supported by " + command + ": " + ex.getMessage());
+            close();
+            return false;
+        }
+
+        liveWorkers.set(workers.size());
+
+        for (WorkerThread w : workers) {
+            w.start();
+        }
+
+        return true;
+    }
+
+    /**
+     * Executes the specified command on the next idle worker.
+     *
+     * @param wd working directory (may be {@code null})
+     * @param arguments arguments
+     * @return future that completes with the result of the command
+     */
+    public CompletableFuture<Result> execute(File wd, String... arguments) {
+        return execute(wd, CancellationToken.none(), 0, arguments);
+    }
+
+    /**
+     * Executes the specified command on the next idle worker. If the specified
+     * token is cancelled or if the timeout elapses, the command fails with a
+     * {@link CancellationException} and the worker that executes it is killed
+     * and restarted.
+     *
+     * @param wd working directory (may be {@code null})
+     * @param token cancellation token
+     * @param timeoutNanos timeout in nanoseconds, measured from now ({@code <= 0} for no timeout)
+     * @param arguments arguments
+     * @return future that completes with the result of the command
+     */
+    public CompletableFuture<Result> execute(File wd, CancellationToken token, long timeoutNanos, String... arguments) {
+        Request r = new Request(wd, token, timeoutNanos, arguments);
+
+        requests.add(r);
+
+        if (closed && requests.remove(r)) {
+            r.result.completeExceptionally(new IllegalStateException("Worker pool has been closed"));
+        }
+
+        return r.result;
+    }
+
+    /**
+     * Returns the number of commands executed by this pool.
+     * @return the number of executed commands
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * Returns the number of worker restarts (crashes and failed health checks).
+     * @return the number of worker restarts
+     */
+    public long getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Returns the number of worker processes.
+     * @return the number of worker processes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Indicates whether this pool has been closed, either explicitly or because
+     * none of its workers could be restarted.
+     * @return {@code true} if this pool has been closed; {@code false} otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops all workers. Pending commands fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+
+        Request r;
+        while ((r = requests.poll()) != null) {
+            if (r != SHUTDOWN) {
+                r.result.completeExceptionally(new IllegalStateException("Worker pool has been closed"));
+            }
+        }
+
+        // wakes up idle workers
+        for (int i = 0; i < workers.size(); i++) {
+            requests.add(SHUTDOWN);
+        }
+
+        for (WorkerThread w : workers) {
+            w.quit();
+        }
+
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Escapes the specified protocol field.
+     * @param s field
+     * @return escaped field
+     */
+    static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Unescapes the specified protocol field.
+     * @param s escaped field
+     * @return field
+     */
+    static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                switch (n) {
+                    case 't': sb.append('\t'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    default: sb.append(n);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Splits the specified protocol line into its (unescaped) fields.
+     * @param line protocol line
+     * @return fields
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        int i;
+        while ((i = line.indexOf('\t', start)) >= 0) {
+            fields.add(unescape(line.substring(start, i)));
+            start = i + 1;
+        }
+        fields.add(unescape(line.substring(start)));
+        return fields;
+    }
+
+    /**
+     * Owns one worker process and executes requests on it.
+     */
+    private final class WorkerThread extends Thread {
+
+        private Process process;
+        private BufferedReader in;
+        private Writer out;
+
+        WorkerThread(int index) {
+            super("vcsg-worker-" + index);
+            setDaemon(true);
+        }
+
+        /**
+         * Starts the worker process and waits for the handshake.
+         * @throws IOException if the process does not support the worker protocol
+         */
+        void startProcess() throws IOException {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+            process = pb.start();
+            in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            out = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+
+            String line = readLineWithTimeout();
+
+            if (line == null || !line.equals("READY\t" + PROTOCOL_VERSION)) {
+                process.destroyForcibly();
+                throw new IOException("unexpected handshake: " + line);
+            }
+        }
+
+        private void restartProcess() throws IOException {
+            restarts.incrementAndGet();
+            process.destroyForcibly();
+            startProcess();
+        }
+
+        /**
+         * Reads the next line. The process is killed if it does not answer in time.
+         * @return the next line or {@code null} if the process terminated
+         * @throws IOException if reading fails
+         */
+        private String readLineWithTimeout() throws IOException {
+            Process p = process;
+            ScheduledFuture<?> kill = watchdog.schedule(
+                    () -> { p.destroyForcibly(); }, timeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                return in.readLine();
+            } finally {
+                kill.cancel(false);
+            }
+        }
+
+        void quit() {
+            try {
+                out.write("QUIT\n");
+                out.flush();
+            } catch (IOException ex) {
+                // worker is already gone
+            }
+            if (process != null) {
+                process.destroy();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                Request r;
+                try {
+                    r = requests.poll(healthCheckMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+
+                if (r == SHUTDOWN || closed) {
+                    if (r != null && r != SHUTDOWN) {
+                        r.result.completeExceptionally(new IllegalStateException("Worker pool has been closed"));
+                    }
+                    return;
+                }
+
+                if (r != null && !isRunnable(r)) {
+                    continue;
+                }
+
+                try {
+                    if (r == null) {
+                        healthCheck();
+                    } else {
+                        execute(r);
+                    }
+                } catch (IOException ex) {
+                    if (closed) {
+                        if (r != null) {
+                            r.result.completeExceptionally(new IllegalStateException("Worker pool has been closed"));
+                        }
+                        return;
+                    }
+
+                    if (r != null && r.result.isDone()) {
+                        // the command has been aborted (cancelled or timed out) and the worker killed
+                        Logger.getLogger(WorkerPool.class.getName()).log(Level.FINE,
+                                "vcsg worker aborted, restarting", ex);
+                    } else {
+                        Logger.getLogger(WorkerPool.class.getName()).log(Level.WARNING,
+                                "vcsg worker crashed, restarting", ex);
+                    }
+
+                    if (r != null && !r.result.isDone()) {
+                        if (++r.attempts < 2) {
+                            // retry on a fresh worker
+                            requests.add(r);
+                        } else {
+                            r.result.completeExceptionally(
+                                    new RuntimeException("vcsg worker crashed while executing: " + String.join(" ", r.arguments), ex));
+                        }
+                    }
+
+                    if (!restart()) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Restarts the worker process. Failed restarts are retried with exponential
+         * backoff. If the process cannot be restarted, this worker stops and the
+         * pool is closed once all workers have stopped.
+         * @return {@code true} if the process has been restarted; {@code false} if this worker stops
+         */
+        private boolean restart() {
+            long delay = RESTART_BACKOFF_MILLIS;
+
+            for (int attempt = 1; !closed; attempt++) {
+                try {
+                    restartProcess();
+                    return true;
+                } catch (IOException ex) {
+                    if (attempt == RESTART_ATTEMPTS) {
+                        Logger.getLogger(WorkerPool.class.getName()).log(Level.SEVERE,
+                                "cannot restart vcsg worker, giving up", ex);
+                        break;
+                    }
+
+                    Logger.getLogger(WorkerPool.class.getName()).log(Level.WARNING,
+                            "cannot restart vcsg worker, retrying in " + delay + " ms", ex);
+
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException ie) {
+                        break;
+                    }
+
+                    delay *= 2;
+                }
+            }
+
+            if (liveWorkers.decrementAndGet() == 0 && !closed) {
+                Logger.getLogger(WorkerPool.class.getName()).log(Level.SEVERE,
+                        "all vcsg workers have stopped, closing the worker pool");
+                // pending commands fail, new commands are not accepted
+                close();
+            }
+
+            return false;
+        }
+
+        /**
+         * Indicates whether the specified request still has to be executed.
+         * Requests that have been cancelled or that timed out while waiting
+         * for a worker fail.
+         * @param r request
+         * @return {@code true} if the request has to be executed; {@code false} otherwise
+         */
+        private boolean isRunnable(Request r) {
+            if (r.token.isCancelled()) {
+                r.result.completeExceptionally(r.token.toException());
+            } else if (r.remainingNanos() <= 0) {
+                r.result.completeExceptionally(r.deadlineExceeded());
+            }
+
+            return !r.result.isDone();
+        }
+
+        private void healthCheck() throws IOException {
+            out.write("PING\n");
+            out.flush();
+
+            String line = readLineWithTimeout();
+
+            if (!"PONG".equals(line)) {
+                throw new IOException("health check failed: " + line);
+            }
+        }
+
+        /**
+         * Executes the specified request. If the token of the request is cancelled
+         * or if its deadline is exceeded, the request fails and the worker process
+         * is killed, i.e., this method throws an {@link IOException} and the
+         * worker is restarted.
+         * @param r request
+         * @throws IOException if the worker process terminated or has been killed
+         */
+        private void execute(Request r) throws IOException {
+            Process p = process;
+            AtomicBoolean aborted = new AtomicBoolean();
+
+            Consumer<CancellationException> abort = ex -> {
+                if (r.result.completeExceptionally(ex)) {
+                    aborted.set(true);
+                    // children (e.g., of wrapper scripts) would keep the output open
+                    p.descendants().forEach(ProcessHandle::destroyForcibly);
+                    p.destroyForcibly();
+                }
+            };
+
+            Runnable registration = r.token.onCancel(() -> abort.accept(r.token.toException()));
+
+            long remaining = r.remainingNanos();
+            ScheduledFuture<?> timer = remaining == Long.MAX_VALUE ? null
+                    : CancellationToken.schedule(() -> abort.accept(r.deadlineExceeded()), remaining);
+
+            try {
+                executeOnProcess(r);
+            } finally {
+                registration.run();
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+            }
+
+            if (aborted.get()) {
+                // aborted after the command terminated, the process has been killed anyway
+                throw new IOException("vcsg worker has been killed");
+            }
+        }
+
+        private void executeOnProcess(Request r) throws IOException {
+            StringBuilder sb = new StringBuilder("RUN\t");
+            sb.append(r.wd == null ? "" : escape(r.wd.getAbsolutePath()));
+            for (String a : r.arguments) {
+                sb.append('\t').append(escape(a));
+            }
+            sb.append('\n');
+
+            out.write(sb.toString());
+            out.flush();
+
+            List<String> stdOut = new ArrayList<>();
+            List<String> stdErr = new ArrayList<>();
+
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                List<String> fields = split(line);
+                String type = fields.get(0);
+                String value = fields.size() > 1 ? fields.get(1) : "";
+
+                if ("OUT".equals(type)) {
+                    stdOut.add(value);
+                } else if ("ERR".equals(type)) {
+                    stdErr.add(value);
+                } else if ("EXIT".equals(type)) {
+                    executions.incrementAndGet();
+                    try {
+                        r.result.complete(new Result(Integer.parseInt(value), stdOut, stdErr));
+                    } catch (NumberFormatException ex) {
+                        throw new IOException("invalid exit value: " + value, ex);
+                    }
+                    return;
+                } else {
+                    throw new IOException("unexpected worker output: " + line);
+                }
+            }
+
+            throw new IOException("worker terminated unexpectedly");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package eu.mihosoft.vcsg.vcsgdist;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lists the files of an installed vcsg distribution with their size and CRC-32
+ * as stored in the distribution archive. The manifest is used to reuse
+ * unchanged files if a new version is installed and to check the integrity
+ * of an installation without reading its files.
+ *
+ * <p>The manifest is a text file with one line per file:
+ * {@code <crc32 (hex)> <size> <path>}.</p>
+ */
+public final class DistManifest {
+
+    /**
+     * Name of the manifest file (in the distribution folder).
+     */
+    public static final String FILE_NAME = ".vcsg-manifest";
+
+    private final Map<String, long[]> entries = new TreeMap<>();
+
+    /**
+     * Creates an empty manifest.
+     */
+    public DistManifest() {
+    }
+
+    /**
+     * Reads the manifest of the specified distribution folder.
+     *
+     * @param dir distribution folder
+     * @return the manifest or {@code null} if the folder does not contain a manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    public static DistManifest read(Path dir) throws IOException {
+        List<String> lines;
+
+        try {
+            lines = Files.readAllLines(dir.resolve(FILE_NAME), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+
+        DistManifest manifest = new DistManifest();
+
+        for (String line : lines) {
+            String[] fields = line.split(" ", 3);
+            if (fields.length != 3) {
+                throw new IOException("Invalid manifest entry: " + line);
+            }
+            try {
+                manifest.add(fields[2], Long.parseLong(fields[1]), Long.parseLong(fields[0], 16));
+            } catch (NumberFormatException ex) {
+                throw new IOException("Invalid manifest entry: " + line, ex);
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Writes this manifest to the specified distribution folder.
+     *
+     * @param dir distribution folder
+     * @throws IOException if the manifest cannot be written
+     */
+    public synchronized void write(Path dir) throws IOException {
+        List<String> lines = new ArrayList<>(entries.size());
+
+        entries.forEach((path, e) -> lines.add(Long.toHexString(e[1]) + " " + e[0] + " " + path));
+
+        Files.write(dir.resolve(FILE_NAME), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds a file.
+     *
+     * @param path path of the file (relative to the distribution folder, '/' as separator)
+     * @param size size of the file (in bytes)
+     * @param crc CRC-32 of the file
+     */
+    public synchronized void add(String path, long size, long crc) {
+        entries.put(path, new long[]{size, crc});
+    }
+
+    /**
+     * Indicates whether this manifest contains the specified file with the specified size and CRC-32.
+     *
+     * @param path path of the file (relative to the distribution folder, '/' as separator)
+     * @param size size of the file (in bytes)
+     * @param crc CRC-32 of the file
+     * @return {@code true} if this manifest contains the specified file; {@code false} otherwise
+     */
+    public synchronized boolean contains(String path, long size, long crc) {
+        long[] e = entries.get(path);
+        return e != null && e[0] == size && e[1] == crc;
+    }
+
+    /**
+     * Returns the number of files.
+     *
+     * @return the number of files
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Checks the files of the specified distribution folder against this
+     * manifest. Only existence and size are checked, i.e., the files are not read.
+     *
+     * @param dir distribution folder
+     * @return paths of missing files and files with unexpected size (empty if the folder is intact)
+     */
+    public synchronized List<String> verify(Path dir) {
+        List<String> broken = new ArrayList<>();
+
+        entries.forEach((path, e) -> {
+            try {
+                if (Files.size(dir.resolve(path)) != e[0]) {
+                    broken.add(path);
+                }
+            } catch (IOException ex) {
+                broken.add(path);
+            }
+        });
+
+        return broken.isEmpty() ? Collections.emptyList() : broken;
+    }
+}
@@ -1,18 +1,32 @@
 package eu.mihosoft.vcsg.vcsgdist;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 /**
  * UG distribution class.
@@ -23,22 +37,45 @@ public class VCSGDist {
 
     public static final String RESOURCE_PACKAGE = "/eu/mihosoft/vcsg/vcsgdist";
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // entries up to this size are written in parallel
+    private static final int PARALLEL_ENTRY_SIZE = 8 * 1024 * 1024;
+    // maximum size of the entries that wait for a writer (in KB)
+    private static final int MAX_PENDING_KB = 64 * 1024;
+
     public static String getResourcePath() {
         return RESOURCE_PACKAGE
                 + "/" + VSysUtil.getPlatformSpecificPath();
     }
 
     /**
+     * Extracts the vcsg distribution from the classpath. Entries are streamed
+     * from the classpath resource, i.e., no temporary copy of the archive is
+     * created. Small entries are written in parallel.
      *
      * @param f folder where the ug distribution shall be extracted to (folder
      * will be created if it does not exist)
      * @throws IOException
      */
     public static void extractTo(File f) throws IOException {
-        f.mkdirs();
+        extractTo(f, null);
+    }
 
-        Path tmpDir = Files.createTempDirectory("vcsgdist");
-        File vccdist = new File(tmpDir.toFile(), "vcsg-dist.zip");
+    /**
+     * Extracts the vcsg distribution from the classpath. Files of the specified
+     * previously installed distribution that have not changed (same path, size
+     * and CRC-32 according to its manifest) are hard linked (or copied)
+     * instead of being extracted. The manifest of the extracted distribution
+     * is written to the destination folder (see {@link DistManifest}).
+     *
+     * @param f folder where the distribution shall be extracted to (folder
+     * will be created if it does not exist)
+     * @param previous folder of a previously installed distribution, which
+     * must not be modified anymore (may be {@code null})
+     * @throws IOException if the distribution cannot be extracted
+     */
+    public static void extractTo(File f, File previous) throws IOException {
+        f.mkdirs();
 
         String resourceName
                 = RESOURCE_PACKAGE
@@ -56,9 +93,172 @@ public class VCSGDist {
                     + "\" not available on the classpath!");
         }
 
-        IOUtil.enableDebugging(true);
-        IOUtil.saveStreamToFile(stream, vccdist);
-        IOUtil.unzip(vccdist, f);
+        try (InputStream in = stream) {
+            unzip(in, f.toPath(), previous == null ? null : previous.toPath());
+        }
+    }
+
+    /**
+     * Extracts the specified zip stream to the specified folder. Entries up to
+     * {@link #PARALLEL_ENTRY_SIZE} bytes are read into memory and written by a
+     * small pool of writer threads while the stream is decompressed. Larger
+     * entries (and entries of unknown size) are streamed to disk directly.
+     * Unchanged files of the previous distribution are reused. Sizes and CRC-32
+     * values are taken from the local entry headers, which equal those of the
+     * central directory (the central directory is not available while streaming).
+     *
+     * @param zipStream zip stream
+     * @param dest destination folder
+     * @param previous folder of the previous distribution (may be {@code null})
+     * @return the manifest of the extracted distribution (also written to the destination folder)
+     * @throws IOException if the stream cannot be extracted
+     */
+    static DistManifest unzip(InputStream zipStream, Path dest, Path previous) throws IOException {
+        Path root = dest.toAbsolutePath().normalize();
+
+        Files.createDirectories(root);
+
+        DistManifest previousManifest = previous == null ? null : DistManifest.read(previous);
+        DistManifest manifest = new DistManifest();
+
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+        ExecutorService writers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "vcsg-dist-writer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // limits the size of the entries that wait for a writer (in KB)
+        Semaphore pending = new Semaphore(MAX_PENDING_KB);
+
+        List<Future<?>> writes = new ArrayList<>();
+        int reused = 0;
+
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(zipStream, BUFFER_SIZE))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                Path target = root.resolve(entry.getName()).normalize();
+
+                if (!target.startsWith(root)) {
+                    throw new IOException("Zip entry outside of the destination folder: " + entry.getName());
+                }
+
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+
+                Files.createDirectories(target.getParent());
+
+                String name = entry.getName();
+                long size = entry.getSize();
+
+                if (previousManifest != null && size >= 0 && entry.getCrc() >= 0
+                        && previousManifest.contains(name, size, entry.getCrc())
+                        && reuse(previous.resolve(name), target, size)) {
+                    manifest.add(name, size, entry.getCrc());
+                    reused++;
+                    continue;
+                }
+
+                if (size < 0 || size > PARALLEL_ENTRY_SIZE) {
+                    CRC32 crc = new CRC32();
+                    long written = 0;
+                    try (OutputStream out = Files.newOutputStream(target)) {
+                        for (int n; (n = zip.read(buffer)) > 0; ) {
+                            out.write(buffer, 0, n);
+                            crc.update(buffer, 0, n);
+                            written += n;
+                        }
+                    }
+                    manifest.add(name, written, crc.getValue());
+                    continue;
+                }
+
+                byte[] content = zip.readNBytes((int) size);
+                int permits = Math.max(1, content.length / 1024);
+
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                manifest.add(name, content.length, crc.getValue());
+
+                try {
+                    pending.acquire(permits);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while extracting " + entry.getName());
+                }
+
+                writes.add(writers.submit(() -> {
+                    try {
+                        Files.write(target, content);
+                    } finally {
+                        pending.release(permits);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> w : writes) {
+                w.get();
+            }
+
+            manifest.write(root);
+
+            if (previousManifest != null) {
+                Logger.getLogger(VCSGDist.class.getName()).log(Level.INFO,
+                        "reused " + reused + " of " + manifest.size() + " files of " + previous);
+            }
+
+            return manifest;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("Cannot extract vcsg distribution", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting vcsg distribution");
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    /**
+     * Reuses an unchanged file of the previous distribution. The file is hard
+     * linked, i.e., both distributions share it (installed distributions are
+     * never modified). If hard links are not supported, the file is copied.
+     *
+     * @param source file of the previous distribution
+     * @param target file of the new distribution
+     * @param size expected size of the file
+     * @return {@code true} if the file has been reused; {@code false} if it has to be extracted
+     */
+    private static boolean reuse(Path source, Path target, long size) {
+        try {
+            // the previous distribution might have been damaged
+            if (Files.size(source) != size) {
+                return false;
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (IOException | UnsupportedOperationException ex) {
+            // e.g., different file systems
+        }
+
+        try {
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
     }
 
     /**
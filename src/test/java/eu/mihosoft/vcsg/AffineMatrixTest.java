@@ -0,0 +1,79 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vvecmath.Transform;
+import eu.mihosoft.vvecmath.Vector3d;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests affine matrices.
+ */
+public class AffineMatrixTest {
+
+    private static void assertPoint(Vector3d expected, Vector3d actual) {
+        assertEquals(expected.x(), actual.x(), 1e-12);
+        assertEquals(expected.y(), actual.y(), 1e-12);
+        assertEquals(expected.z(), actual.z(), 1e-12);
+    }
+
+    @Test
+    public void multiplyTest() {
+        AffineMatrix translate = AffineMatrix.of(Transform.unity().translate(1, 2, 3));
+        AffineMatrix scale = AffineMatrix.of(Transform.unity().scale(2, 3, 4));
+
+        Vector3d p = Vector3d.xyz(1, 1, 1);
+
+        // the right-hand side is applied first
+        assertPoint(Vector3d.xyz(3, 5, 7), translate.multiply(scale).apply(p));
+        assertPoint(Vector3d.xyz(4, 9, 16), scale.multiply(translate).apply(p));
+
+        // the product applies both matrices
+        AffineMatrix rotate = AffineMatrix.of(Transform.unity().rotZ(30));
+        assertPoint(translate.apply(rotate.apply(p)), translate.multiply(rotate).apply(p));
+
+        assertEquals(scale, AffineMatrix.IDENTITY.multiply(scale));
+        assertEquals(scale, scale.multiply(AffineMatrix.IDENTITY));
+        assertTrue(AffineMatrix.IDENTITY.multiply(AffineMatrix.IDENTITY).isIdentity());
+    }
+
+    @Test
+    public void inverseTest() {
+        AffineMatrix there = AffineMatrix.of(Transform.unity().translate(1, -2, 3));
+        AffineMatrix back = AffineMatrix.of(Transform.unity().translate(-1, 2, -3));
+
+        // transformations that compose to the identity are skipped
+        assertTrue(there.multiply(back).isIdentity());
+        assertFalse(there.isIdentity());
+    }
+
+    @Test
+    public void determinantTest() {
+        assertEquals(1.0, AffineMatrix.IDENTITY.determinant(), 0.0);
+        assertEquals(24.0, AffineMatrix.of(Transform.unity().scale(2, 3, 4)).determinant(), 1e-12);
+        assertEquals(-1.0, AffineMatrix.of(Transform.unity().scale(-1, 1, 1)).determinant(), 1e-12);
+        assertEquals(1.0, AffineMatrix.of(Transform.unity().rotZ(30)).determinant(), 1e-12);
+    }
+
+    @Test
+    public void axisAlignedTest() {
+        assertTrue(AffineMatrix.IDENTITY.isAxisAligned());
+        assertTrue(AffineMatrix.of(Transform.unity().translate(1, 2, 3).scale(2, -1, 3)).isAxisAligned());
+
+        assertFalse(AffineMatrix.of(Transform.unity().rotZ(30)).isAxisAligned());
+        // degenerate matrices do not map axes onto axes
+        assertFalse(AffineMatrix.of(Transform.unity().scale(1, 0, 1)).isAxisAligned());
+    }
+
+    @Test
+    public void similarityScaleTest() {
+        assertEquals(1.0, AffineMatrix.IDENTITY.getSimilarityScale(), 1e-12);
+        assertEquals(2.0, AffineMatrix.of(Transform.unity().scale(2)).getSimilarityScale(), 1e-12);
+        assertEquals(1.0, AffineMatrix.of(Transform.unity().rotZ(30).translate(1, 2, 3)).getSimilarityScale(), 1e-12);
+        // reflections are similarity transforms
+        assertEquals(3.0, AffineMatrix.of(Transform.unity().scale(-3, 3, 3)).getSimilarityScale(), 1e-12);
+
+        assertTrue(Double.isNaN(AffineMatrix.of(Transform.unity().scale(1, 2, 1)).getSimilarityScale()));
+        assertTrue(Double.isNaN(AffineMatrix.of(Transform.unity().scale(0)).getSimilarityScale()));
+    }
+}
@@ -0,0 +1,112 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vvecmath.Transform;
+import eu.mihosoft.vvecmath.Vector3d;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the closed-form properties of primitives.
+ */
+public class AnalyticPropertiesTest {
+
+    private static void assertBounds(Vector3d min, Vector3d max, Bounds actual) {
+        assertEquals(min.x(), actual.getMin().x(), 1e-12);
+        assertEquals(min.y(), actual.getMin().y(), 1e-12);
+        assertEquals(min.z(), actual.getMin().z(), 1e-12);
+        assertEquals(max.x(), actual.getMax().x(), 1e-12);
+        assertEquals(max.y(), actual.getMax().y(), 1e-12);
+        assertEquals(max.z(), actual.getMax().z(), 1e-12);
+    }
+
+    @Test
+    public void boxTest() {
+        // corners may be specified in any order
+        AnalyticProperties box = AnalyticProperties.box(Vector3d.xyz(2, 3, 4), Vector3d.xyz(0, 0, 0));
+
+        assertEquals(24.0, box.getVolume(), 1e-12);
+        assertEquals(2 * (6 + 12 + 8), box.getArea(), 1e-12);
+        assertBounds(Vector3d.xyz(0, 0, 0), Vector3d.xyz(2, 3, 4), box.getBounds());
+    }
+
+    @Test
+    public void sphereTest() {
+        double r = 1.5;
+        AnalyticProperties sphere = AnalyticProperties.sphere(Vector3d.xyz(1, 0, 0), -r);
+
+        assertEquals(4.0 / 3.0 * Math.PI * r * r * r, sphere.getVolume(), 1e-12);
+        assertEquals(4 * Math.PI * r * r, sphere.getArea(), 1e-12);
+        assertBounds(Vector3d.xyz(-0.5, -1.5, -1.5), Vector3d.xyz(2.5, 1.5, 1.5), sphere.getBounds());
+    }
+
+    @Test
+    public void coneTest() {
+        // cylinder
+        AnalyticProperties cyl = AnalyticProperties.cone(Vector3d.xyz(0, 0, 0), 2, 2, 3);
+        assertEquals(Math.PI * 4 * 3, cyl.getVolume(), 1e-12);
+        assertEquals(2 * Math.PI * 4 + 2 * Math.PI * 2 * 3, cyl.getArea(), 1e-12);
+        assertBounds(Vector3d.xyz(-2, -2, 0), Vector3d.xyz(2, 2, 3), cyl.getBounds());
+
+        // cone with a tip (slant height 5)
+        AnalyticProperties cone = AnalyticProperties.cone(Vector3d.xyz(0, 0, 0), 3, 0, 4);
+        assertEquals(Math.PI * 9 * 4 / 3.0, cone.getVolume(), 1e-12);
+        assertEquals(Math.PI * 9 + Math.PI * 3 * 5, cone.getArea(), 1e-12);
+
+        // negative heights extend below the origin
+        AnalyticProperties down = AnalyticProperties.cone(Vector3d.xyz(0, 0, 1), 1, 2, -4);
+        assertBounds(Vector3d.xyz(-2, -2, -3), Vector3d.xyz(2, 2, 1), down.getBounds());
+        assertEquals(Math.PI * 4 / 3.0 * (1 + 2 + 4), down.getVolume(), 1e-12);
+    }
+
+    @Test
+    public void extrusionTest() {
+        // 2x1 rectangle extruded by 3 along z
+        AnalyticProperties prism = AnalyticProperties.extrusion(Vector3d.xyz(0, 0, 3), Arrays.asList(
+                Vector3d.xyz(0, 0, 0), Vector3d.xyz(2, 0, 0), Vector3d.xyz(2, 1, 0), Vector3d.xyz(0, 1, 0)));
+
+        assertEquals(6.0, prism.getVolume(), 1e-12);
+        assertEquals(2 * (2 + 6 + 3), prism.getArea(), 1e-12);
+        assertBounds(Vector3d.xyz(0, 0, 0), Vector3d.xyz(2, 1, 3), prism.getBounds());
+
+        // the orientation of the polygon does not matter
+        AnalyticProperties reversed = AnalyticProperties.extrusion(Vector3d.xyz(0, 0, 3), Arrays.asList(
+                Vector3d.xyz(0, 1, 0), Vector3d.xyz(2, 1, 0), Vector3d.xyz(2, 0, 0), Vector3d.xyz(0, 0, 0)));
+
+        assertEquals(prism.getVolume(), reversed.getVolume(), 1e-12);
+        assertEquals(prism.getArea(), reversed.getArea(), 1e-12);
+    }
+
+    @Test
+    public void transformedTest() {
+        AnalyticProperties box = AnalyticProperties.box(Vector3d.xyz(0, 0, 0), Vector3d.xyz(1, 2, 3));
+
+        // uniform scale and translation: everything is known
+        AnalyticProperties scaled = box.transformed(
+                AffineMatrix.of(Transform.unity().translate(1, 0, 0)).multiply(
+                        AffineMatrix.of(Transform.unity().scale(2))));
+        assertEquals(6.0 * 8, scaled.getVolume(), 1e-12);
+        assertEquals(box.getArea() * 4, scaled.getArea(), 1e-12);
+        assertBounds(Vector3d.xyz(1, 0, 0), Vector3d.xyz(3, 4, 6), scaled.getBounds());
+
+        // non-uniform scale: the area is unknown
+        AnalyticProperties stretched = box.transformed(AffineMatrix.of(Transform.unity().scale(1, 1, 2)));
+        assertEquals(12.0, stretched.getVolume(), 1e-12);
+        assertTrue(Double.isNaN(stretched.getArea()));
+        assertBounds(Vector3d.xyz(0, 0, 0), Vector3d.xyz(1, 2, 6), stretched.getBounds());
+
+        // rotation: the bounds are unknown
+        AnalyticProperties rotated = box.transformed(AffineMatrix.of(Transform.unity().rotZ(30)));
+        assertEquals(6.0, rotated.getVolume(), 1e-12);
+        assertEquals(box.getArea(), rotated.getArea(), 1e-9);
+        assertNull(rotated.getBounds());
+
+        // mirroring keeps volume and area positive
+        AnalyticProperties mirrored = box.transformed(AffineMatrix.of(Transform.unity().scale(-1, 1, 1)));
+        assertEquals(6.0, mirrored.getVolume(), 1e-12);
+        assertEquals(box.getArea(), mirrored.getArea(), 1e-12);
+        assertBounds(Vector3d.xyz(-1, 0, 0), Vector3d.xyz(0, 2, 3), mirrored.getBounds());
+    }
+}
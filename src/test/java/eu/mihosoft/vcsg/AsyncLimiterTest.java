@@ -0,0 +1,95 @@
+package eu.mihosoft.vcsg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the limiter for concurrently running asynchronous tasks.
+ */
+public class AsyncLimiterTest {
+
+    @Test
+    public void limitTest() {
+        AsyncLimiter limiter = new AsyncLimiter(2);
+        AtomicInteger started = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> tasks = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Integer> task = new CompletableFuture<>();
+            tasks.add(task);
+            results.add(limiter.submit(() -> {
+                started.incrementAndGet();
+                return task;
+            }));
+        }
+
+        // the remaining tasks are queued
+        assertEquals(2, started.get());
+
+        tasks.get(0).complete(0);
+        assertEquals(3, started.get());
+        assertEquals(Integer.valueOf(0), results.get(0).join());
+
+        // queued tasks are started in submission order
+        tasks.get(2).complete(2);
+        assertEquals(4, started.get());
+
+        tasks.get(1).complete(1);
+        tasks.get(3).complete(3);
+        assertEquals(5, started.get());
+        tasks.get(4).complete(4);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), results.get(i).join());
+        }
+
+        // all slots are free again
+        List<CompletableFuture<Integer>> more = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            more.add(new CompletableFuture<>());
+            CompletableFuture<Integer> task = more.get(i);
+            limiter.submit(() -> {
+                started.incrementAndGet();
+                return task;
+            });
+        }
+        assertEquals(7, started.get());
+    }
+
+    @Test
+    public void failureTest() {
+        AsyncLimiter limiter = new AsyncLimiter(1);
+
+        CompletableFuture<String> failed = limiter.submit(() -> {
+            throw new IllegalStateException("failed");
+        });
+
+        try {
+            failed.join();
+            fail("expected failure");
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+
+        // failed tasks release their slot
+        assertEquals("ok", limiter.submit(() -> CompletableFuture.completedFuture("ok")).join());
+    }
+
+    @Test
+    public void invalidLimitTest() {
+        try {
+            new AsyncLimiter(0);
+            fail("limit must be positive");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vvecmath.Transform;
+import eu.mihosoft.vvecmath.Vector3d;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the bounding box operations used by the bounds fast path.
+ */
+public class BoundsTest {
+
+    private static Bounds bounds(double x0, double y0, double z0, double x1, double y1, double z1) {
+        return new Bounds(Vector3d.xyz(x0, y0, z0), Vector3d.xyz(x1, y1, z1));
+    }
+
+    private static void assertBounds(Bounds expected, Bounds actual) {
+        assertEquals(expected.getMin().x(), actual.getMin().x(), 1e-12);
+        assertEquals(expected.getMin().y(), actual.getMin().y(), 1e-12);
+        assertEquals(expected.getMin().z(), actual.getMin().z(), 1e-12);
+        assertEquals(expected.getMax().x(), actual.getMax().x(), 1e-12);
+        assertEquals(expected.getMax().y(), actual.getMax().y(), 1e-12);
+        assertEquals(expected.getMax().z(), actual.getMax().z(), 1e-12);
+    }
+
+    @Test
+    public void disjointTest() {
+        Bounds a = bounds(0, 0, 0, 1, 1, 1);
+
+        assertTrue(a.isDisjoint(bounds(2, 0, 0, 3, 1, 1), 0));
+        assertTrue(bounds(2, 0, 0, 3, 1, 1).isDisjoint(a, 0));
+        // separated along a single axis
+        assertTrue(a.isDisjoint(bounds(0, 0, 1.5, 1, 1, 2), 0));
+
+        assertFalse(a.isDisjoint(bounds(0.5, 0.5, 0.5, 2, 2, 2), 0));
+        assertFalse(a.isDisjoint(a, 0));
+
+        // touching boxes are not disjoint
+        assertFalse(a.isDisjoint(bounds(1, 0, 0, 2, 1, 1), 0));
+
+        // gaps within the tolerance are not disjoint
+        assertFalse(a.isDisjoint(bounds(1.05, 0, 0, 2, 1, 1), 0.1));
+        assertTrue(a.isDisjoint(bounds(1.2, 0, 0, 2, 1, 1), 0.1));
+    }
+
+    @Test
+    public void unionIntersectionTest() {
+        Bounds a = bounds(0, 0, 0, 2, 2, 2);
+        Bounds b = bounds(1, -1, 1, 3, 1, 4);
+
+        assertBounds(bounds(0, -1, 0, 3, 2, 4), a.union(b));
+        assertBounds(bounds(1, 0, 1, 2, 1, 2), a.intersection(b));
+        assertBounds(a, a.union(a));
+        assertBounds(a, a.intersection(a));
+    }
+
+    @Test
+    public void transformedTest() {
+        Bounds a = bounds(0, 0, 0, 1, 2, 3);
+
+        assertBounds(a, a.transformed(AffineMatrix.IDENTITY));
+
+        assertBounds(bounds(1, 2, 3, 2, 4, 6),
+                a.transformed(AffineMatrix.of(Transform.unity().translate(1, 2, 3))));
+
+        // mirrored boxes are normalized
+        assertBounds(bounds(-2, 0, 0, 0, 4, 9),
+                a.transformed(AffineMatrix.of(Transform.unity().scale(-2, 2, 3))));
+
+        // the bounds of a rotated box contain all of its corners
+        double s = Math.sqrt(0.5);
+        Bounds unit = bounds(-1, -1, -1, 1, 1, 1);
+        assertBounds(bounds(-2 * s, -2 * s, -1, 2 * s, 2 * s, 1),
+                unit.transformed(AffineMatrix.of(Transform.unity().rotZ(45))));
+    }
+}
@@ -0,0 +1,183 @@
+package eu.mihosoft.vcsg;
+
+import eu.mihosoft.vcsg.util.CancellationToken;
+import eu.mihosoft.vcsg.util.ProcessScheduler.Priority;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the coalescing of concurrent identical tasks.
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void coalesceTest() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<String> task = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.run("a", () -> {
+            runs.incrementAndGet();
+            return task;
+        });
+        CompletableFuture<String> second = flight.run("a", () -> {
+            runs.incrementAndGet();
+            return CompletableFuture.completedFuture("second");
+        });
+
+        // tasks with other keys are not coalesced
+        CompletableFuture<String> other = flight.run("b", () -> {
+            runs.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertEquals(2, runs.get());
+        assertEquals(1, flight.getCoalesced());
+        assertEquals("other", other.join());
+
+        task.complete("first");
+        assertEquals("first", first.join());
+        assertEquals("first", second.join());
+
+        // completed tasks are run again
+        assertEquals("third", flight.run("a", () -> {
+            runs.incrementAndGet();
+            return CompletableFuture.completedFuture("third");
+        }).join());
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    public void failureTest() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> task = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.run("a", () -> task);
+        CompletableFuture<String> second = flight.run("a", () -> CompletableFuture.completedFuture("not run"));
+
+        task.completeExceptionally(new IllegalStateException("failed"));
+
+        for (CompletableFuture<String> f : Arrays.asList(first, second)) {
+            try {
+                f.join();
+                fail("expected failure");
+            } catch (CompletionException ex) {
+                assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+        }
+
+        // failed tasks can be retried
+        assertEquals("retry", flight.run("a", () -> CompletableFuture.completedFuture("retry")).join());
+
+        // tasks that throw fail their future
+        try {
+            flight.run("b", () -> {
+                throw new IllegalArgumentException("thrown");
+            }).join();
+            fail("expected failure");
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void shareTest() {
+        AtomicInteger shares = new AtomicInteger();
+        SingleFlight<String, String> flight = new SingleFlight<>(v -> shares.incrementAndGet(), v -> {});
+        CompletableFuture<String> task = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.run("a", () -> task);
+        CompletableFuture<String> second = flight.run("a", () -> CompletableFuture.completedFuture("not run"));
+
+        // the result is shared with every caller before the first caller receives it
+        CompletableFuture<Integer> sharesOnCompletion = first.thenApply(v -> shares.get());
+
+        task.complete("result");
+
+        assertEquals("result", first.join());
+        assertEquals("result", second.join());
+        assertEquals(Integer.valueOf(2), sharesOnCompletion.join());
+
+        // failed tasks are not shared
+        flight.run("b", () -> {
+            throw new IllegalStateException("failed");
+        });
+        assertEquals(2, shares.get());
+    }
+
+    @Test
+    public void cancelTest() {
+        List<String> discarded = new ArrayList<>();
+        SingleFlight<String, String> flight = new SingleFlight<>(v -> {}, discarded::add);
+        CompletableFuture<String> task = new CompletableFuture<>();
+        List<SingleFlight.Flight<String>> flights = new ArrayList<>();
+
+        CancellationToken firstToken = CancellationToken.create();
+        CancellationToken secondToken = CancellationToken.create();
+
+        CompletableFuture<String> first = flight.run("a", firstToken, Priority.NORMAL, f -> {
+            flights.add(f);
+            return task;
+        });
+        CompletableFuture<String> second = flight.run("a", secondToken, Priority.NORMAL,
+                f -> CompletableFuture.completedFuture("not run"));
+
+        // the task keeps running for the remaining caller
+        firstToken.cancel();
+        assertCancelled(first);
+        assertFalse(second.isDone());
+        assertFalse(flights.get(0).getToken().isCancelled());
+
+        secondToken.cancel();
+        assertCancelled(second);
+        assertTrue(flights.get(0).getToken().isCancelled());
+
+        // abandoned tasks are not joined
+        assertEquals("new", flight.run("a", () -> CompletableFuture.completedFuture("new")).join());
+
+        // the result of an abandoned task is discarded
+        task.complete("abandoned");
+        assertEquals(Arrays.asList("abandoned"), discarded);
+    }
+
+    @Test
+    public void priorityTest() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> task = new CompletableFuture<>();
+        List<SingleFlight.Flight<String>> flights = new ArrayList<>();
+
+        flight.run("a", CancellationToken.none(), Priority.BATCH, f -> {
+            flights.add(f);
+            return task;
+        });
+        assertEquals(Priority.BATCH, flights.get(0).getPriority());
+
+        // the task runs with the highest priority of its callers
+        CancellationToken token = CancellationToken.create();
+        flight.run("a", token, Priority.INTERACTIVE, f -> task);
+        assertEquals(Priority.INTERACTIVE, flights.get(0).getPriority());
+
+        token.cancel();
+        assertEquals(Priority.BATCH, flights.get(0).getPriority());
+
+        task.complete("done");
+    }
+
+    private static void assertCancelled(CompletableFuture<?> f) {
+        try {
+            f.join();
+            fail("expected cancellation");
+        } catch (CancellationException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package eu.mihosoft.vcsg;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the time to the first {@link CSG#box(double)} in a fresh JVM, i.e.,
+ * the cold start of short-lived jobs. The first run installs the vcsg
+ * distribution into an empty home folder, subsequent runs reuse it.
+ *
+ * <pre>
+ * java -cp ... eu.mihosoft.vcsg.StartupBenchmark [runs]
+ * </pre>
+ *
+ * Defaults: 10 runs.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length > 0 && "--run".equals(args[0])) {
+            run();
+            return;
+        }
+
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        File home = Files.createTempDirectory("vcsg-startup").toFile();
+
+        System.out.println("runs: " + runs + ", home: " + home);
+        System.out.println(String.format("%-8s %14s %14s", "run", "jvm [ms]", "first box [ms]"));
+
+        double warmTotal = 0;
+
+        for (int i = 0; i < runs; i++) {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+            cmd.add("-Duser.home=" + home.getAbsolutePath());
+            cmd.add("-cp");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(StartupBenchmark.class.getName());
+            cmd.add("--run");
+
+            Process p = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            String output = new String(p.getInputStream().readAllBytes()).trim();
+            p.waitFor();
+
+            // the last line contains the result, previous lines might contain install messages
+            String[] result = output.substring(output.lastIndexOf('\n') + 1).split(" ");
+
+            System.out.println(String.format("%-8s %14s %14s", i == 0 ? "install" : "" + i, result[0], result[1]));
+
+            if (i > 0) {
+                warmTotal += Double.parseDouble(result[1]);
+            }
+        }
+
+        if (runs > 1) {
+            System.out.println(String.format("%-8s %14s %14.3f", "avg", "", warmTotal / (runs - 1)));
+        }
+    }
+
+    private static void run() {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long mainStart = System.currentTimeMillis();
+        long start = System.nanoTime();
+
+        CSG.box(1.0);
+
+        double firstBoxMillis = (System.nanoTime() - start) / 1e6;
+
+        System.out.println(String.format("%d %.3f", mainStart - jvmStart, firstBoxMillis));
+    }
+}
@@ -11,6 +11,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import eu.mihosoft.vvecmath.Transform;
 import eu.mihosoft.vvecmath.Vector3d;
@@ -114,6 +117,158 @@ public class VCSGTest {
             assertEquals(Math.PI*r*r*h, volumeCylinder2, 1e-2);
         }
     }
+
+    @Test
+    public void asyncOperationsTest() {
+        // both boxes are created concurrently
+        CompletableFuture<CSG> box1 = CSG.boxAsync(Vector3d.xyz(0, 0, 0), Vector3d.xyz(2, 1, 1));
+        CompletableFuture<CSG> box2 = CSG.boxAsync(Vector3d.xyz(1, 0, 0), Vector3d.xyz(3, 1, 1));
+
+        CSG union = box1.thenCombine(box2, (b1, b2) -> b1.unionAsync(b2)).
+                thenCompose(f -> f).join();
+
+        assertEquals(3.0, union.computeVolume(), 1e-2);
+    }
+
+    @Test
+    public void lazyEvaluationTest() {
+        CSG.setLazyEvaluationEnabled(true);
+        try {
+            CSG box = CSG.box(Vector3d.xyz(0, 0, 0), Vector3d.xyz(2, 1, 1));
+            CSG cut = box.difference(CSG.box(Vector3d.xyz(1, 0, 0), Vector3d.xyz(3, 1, 1)));
+
+            // nothing has been computed so far
+            assertFalse(box.isEvaluated());
+            assertFalse(cut.isEvaluated());
+
+            assertEquals(1.0, cut.computeVolume(), 1e-2);
+            assertTrue(cut.isEvaluated());
+        } finally {
+            CSG.setLazyEvaluationEnabled(false);
+        }
+    }
+
+    @Test
+    public void lazyListDifferenceTest() {
+        CSG.setLazyEvaluationEnabled(true);
+        try {
+            CSG box = CSG.box(Vector3d.xyz(0, 0, 0), Vector3d.xyz(4, 1, 1));
+            CSG cut = box.difference(Arrays.asList(
+                    CSG.box(Vector3d.xyz(1, 0, 0), Vector3d.xyz(2, 1, 1)),
+                    CSG.box(Vector3d.xyz(3, 0, 0), Vector3d.xyz(4, 1, 1))));
+
+            // nothing has been computed so far
+            assertFalse(box.isEvaluated());
+            assertFalse(cut.isEvaluated());
+
+            assertEquals(2.0, cut.computeVolume(), 1e-2);
+            assertTrue(cut.isEvaluated());
+        } finally {
+            CSG.setLazyEvaluationEnabled(false);
+        }
+    }
+
+    @Test
+    public void closeTest() {
+        CSG.setLazyEvaluationEnabled(true);
+        // otherwise, the primitive cache keeps the box
+        int primitiveCacheSize = CSG.getPrimitiveCacheSize();
+        CSG.setPrimitiveCacheSize(0);
+        try {
+            CSG box = CSG.box(Vector3d.xyz(0, 0, 0), Vector3d.xyz(1, 1, 1));
+            CSG moved = box.transformed(Transform.unity().translate(2, 0, 0));
+            box.close();
+
+            // deferred operations keep their inputs
+            moved.evaluate();
+            assertTrue(moved.isEvaluated());
+
+            // the box is released once the deferred operation has been evaluated
+            try {
+                box.union(moved);
+                fail("closed objects must not be used");
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+        } finally {
+            CSG.setPrimitiveCacheSize(primitiveCacheSize);
+            CSG.setLazyEvaluationEnabled(false);
+        }
+    }
+
+    @Test
+    public void memoizedQueriesTest() throws InterruptedException {
+        AtomicInteger processes = new AtomicInteger();
+        ExecutionListener listener = record -> processes.incrementAndGet();
+
+        VCSG.addExecutionListener(listener);
+        try {
+            // neither bounds nor volume are known analytically
+            CSG cut = CSG.box(Vector3d.xyz(0, 0, 0), Vector3d.xyz(2, 2, 2)).
+                    difference(CSG.sphere(Vector3d.xyz(2, 2, 2), 1));
+
+            Bounds bounds = cut.getBounds();
+            double volume = cut.computeVolume(0.01);
+            String version = cut.getVersion();
+
+            // listeners are notified asynchronously
+            int started = awaitQuiet(processes);
+
+            assertEquals(bounds, cut.getBounds());
+            assertEquals(volume, cut.computeVolume(0.01), 0.0);
+            assertEquals(version, cut.getVersion());
+
+            assertEquals(started, awaitQuiet(processes));
+        } finally {
+            VCSG.removeExecutionListener(listener);
+        }
+    }
+
+    /**
+     * Waits until the specified counter has not changed for a while.
+     */
+    private static int awaitQuiet(AtomicInteger counter) throws InterruptedException {
+        int value;
+        do {
+            value = counter.get();
+            Thread.sleep(250);
+        } while (value != counter.get());
+        return value;
+    }
+
+    @Test
+    public void resultCacheTest() throws IOException {
+        File dir = java.nio.file.Files.createTempDirectory("vcsg-cache").toFile();
+        ResultCache cache = ResultCache.open(dir, 64L * 1024 * 1024);
+        CSG.setResultCache(cache);
+        // otherwise, the second box is served by the primitive cache
+        int primitiveCacheSize = CSG.getPrimitiveCacheSize();
+        CSG.setPrimitiveCacheSize(0);
+        try {
+            CSG first = CSG.box(Vector3d.xyz(0, 0, 0), Vector3d.xyz(1, 2, 3));
+            assertEquals(0, cache.getHits());
+
+            CSG second = CSG.box(Vector3d.xyz(0, 0, 0), Vector3d.xyz(1, 2, 3));
+            assertEquals(1, cache.getHits());
+
+            assertEquals(first.computeVolume(), second.computeVolume(), 1e-6);
+        } finally {
+            CSG.setResultCache(null);
+            CSG.setPrimitiveCacheSize(primitiveCacheSize);
+        }
+    }
+
+    @Test
+    public void primitiveCacheTest() {
+        CSG.clearPrimitiveCache();
+        long hits = CSG.getPrimitiveCacheHits();
+
+        CSG first = CSG.sphere(Vector3d.xyz(1, 2, 3), 4);
+        CSG second = CSG.sphere(Vector3d.xyz(1, 2, 3), 4);
+
+        assertEquals(hits + 1, CSG.getPrimitiveCacheHits());
+        assertEquals(first.getFile(), second.getFile());
+    }
 }
 
 
@@ -0,0 +1,71 @@
+package eu.mihosoft.vcsg.util;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests cancellation tokens.
+ */
+public class CancellationTokenTest {
+
+    @Test
+    public void cancelTest() {
+        CancellationToken token = CancellationToken.create();
+        AtomicInteger called = new AtomicInteger();
+
+        token.onCancel(called::incrementAndGet);
+        Runnable registration = token.onCancel(called::incrementAndGet);
+        registration.run();
+
+        assertSame(token, token.call(CancellationToken::current));
+        assertSame(CancellationToken.none(), CancellationToken.current());
+
+        token.cancel();
+        token.cancel();
+
+        assertTrue(token.isCancelled());
+        assertFalse(token.isTimedOut());
+        assertEquals(1, called.get());
+
+        // listeners of cancelled tokens are called immediately
+        token.onCancel(called::incrementAndGet);
+        assertEquals(2, called.get());
+
+        try {
+            token.call(() -> "not called");
+            fail("cancelled tokens must not run tasks");
+        } catch (CancellationException ex) {
+            assertEquals("cancelled", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void timeoutTest() throws InterruptedException {
+        CancellationToken parent = CancellationToken.create();
+        CancellationToken child = parent.child(Duration.ofMillis(50));
+        CancellationToken sibling = parent.child(null);
+
+        CountDownLatch timedOut = new CountDownLatch(1);
+        child.onCancel(timedOut::countDown);
+
+        assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+        assertTrue(child.isTimedOut());
+        assertFalse(parent.isCancelled());
+        assertFalse(sibling.isCancelled());
+
+        // cancelling the parent cancels its children
+        parent.cancel();
+        assertTrue(sibling.isCancelled());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void noneTest() {
+        CancellationToken.none().cancel();
+    }
+}
@@ -0,0 +1,92 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests reading cgroup quotas.
+ */
+public class CgroupLimitsTest {
+
+    @Test
+    public void cgroupV2Test() throws IOException {
+        Path root = Files.createTempDirectory("vcsg-cgroup-v2");
+        Path proc = root.resolve("proc-cgroup");
+
+        write(root.resolve("cgroup.controllers"), "cpu memory");
+        write(root.resolve("cpu.max"), "max 100000");
+        write(root.resolve("memory.max"), "max");
+        write(proc, "0::/pod/app");
+
+        // the parent group is more restrictive than the group itself
+        write(root.resolve("pod/cpu.max"), "150000 100000");
+        write(root.resolve("pod/memory.max"), "1073741824");
+        write(root.resolve("pod/app/cpu.max"), "400000 100000");
+        write(root.resolve("pod/app/memory.max"), "max");
+
+        CgroupLimits limits = CgroupLimits.read(root, proc);
+
+        assertEquals(1.5, limits.getCpuLimit(), 1e-9);
+        assertEquals(1073741824L, limits.getMemoryLimit());
+        assertTrue(limits.getProcessors() <= 2);
+
+        // no quotas at all
+        write(root.resolve("pod/cpu.max"), "max 100000");
+        write(root.resolve("pod/app/cpu.max"), "max 100000");
+        write(root.resolve("pod/memory.max"), "max");
+
+        limits = CgroupLimits.read(root, proc);
+
+        assertTrue(Double.isNaN(limits.getCpuLimit()));
+        assertEquals(-1, limits.getMemoryLimit());
+        assertEquals(Runtime.getRuntime().availableProcessors(), limits.getProcessors());
+    }
+
+    @Test
+    public void cgroupV1Test() throws IOException {
+        Path root = Files.createTempDirectory("vcsg-cgroup-v1");
+        Path proc = root.resolve("proc-cgroup");
+
+        write(proc, "4:memory:/docker/abc\n2:cpu,cpuacct:/docker/abc\n0::/");
+
+        // inside containers, the group is mounted at the controller root
+        write(root.resolve("cpu,cpuacct/cpu.cfs_quota_us"), "50000");
+        write(root.resolve("cpu,cpuacct/cpu.cfs_period_us"), "100000");
+        write(root.resolve("memory/memory.limit_in_bytes"), "9223372036854771712");
+
+        CgroupLimits limits = CgroupLimits.read(root, proc);
+
+        assertEquals(0.5, limits.getCpuLimit(), 1e-9);
+        assertEquals(-1, limits.getMemoryLimit());
+        assertEquals(1, limits.getProcessors());
+
+        write(root.resolve("cpu,cpuacct/cpu.cfs_quota_us"), "-1");
+        write(root.resolve("memory/memory.limit_in_bytes"), "536870912");
+
+        limits = CgroupLimits.read(root, proc);
+
+        assertTrue(Double.isNaN(limits.getCpuLimit()));
+        assertEquals(536870912L, limits.getMemoryLimit());
+    }
+
+    @Test
+    public void missingCgroupTest() throws IOException {
+        Path root = Files.createTempDirectory("vcsg-cgroup-none");
+
+        CgroupLimits limits = CgroupLimits.read(root.resolve("missing"), root.resolve("missing-proc"));
+
+        assertTrue(Double.isNaN(limits.getCpuLimit()));
+        assertEquals(-1, limits.getMemoryLimit());
+        assertTrue(limits.getProcessors() >= 1);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,49 @@
+package eu.mihosoft.vcsg.util;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests aggregating resource usage of occ-csg processes.
+ */
+public class ExecutionStatisticsTest {
+
+    @Test
+    public void aggregateTest() {
+        ExecutionStatistics stats = new ExecutionStatistics();
+
+        stats.executed(new ExecutionRecord("--csg union", new String[]{"--csg", "union", "a", "b", "c"},
+                2_000_000, 1_500_000, 200_000, 1_700_000, 1000, 20, 30, 0));
+        stats.executed(new ExecutionRecord("--csg union", new String[]{"--csg", "union", "a", "b", "c"},
+                4_000_000, -1, -1, -1, 0, 20, 0, 1));
+        stats.executed(new ExecutionRecord("--create box", new String[]{"--create", "box", "0,0,0,1,1,1", "c"},
+                1_000_000, 500_000, 100_000, 600_000, 500, 0, 10, 0));
+
+        ExecutionStatistics.Entry union = stats.get("--csg union");
+
+        assertEquals(2, union.getExecutions());
+        assertEquals(1, union.getFailures());
+        assertEquals(6_000_000, union.getTotalWallNanos());
+        assertEquals(4_000_000, union.getMaxWallNanos());
+        assertEquals(3_000_000, union.getAverageWallNanos(), 1e-9);
+        // unknown CPU times are not counted
+        assertEquals(1_500_000, union.getTotalUserCpuNanos());
+        assertEquals(200_000, union.getTotalSystemCpuNanos());
+        assertEquals(1_700_000, union.getTotalCpuNanos());
+        assertEquals(1000, union.getMaxPeakMemory());
+        assertEquals(40, union.getTotalInputBytes());
+        assertEquals(30, union.getTotalOutputBytes());
+
+        // most expensive first
+        List<ExecutionStatistics.Entry> entries = stats.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("--csg union", entries.get(0).getKind());
+
+        // entries are snapshots
+        stats.clear();
+        assertEquals(2, union.getExecutions());
+        assertNull(stats.get("--csg union"));
+    }
+}
@@ -0,0 +1,142 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares spawning processes directly from the JVM with spawning them via a
+ * {@link Launcher} for different heap sizes of the spawning JVM. Each
+ * configuration runs in a fresh JVM with a pre-touched heap, i.e., the heap is
+ * resident and has to be handled by fork/clone.
+ *
+ * <pre>
+ * java -cp ... eu.mihosoft.vcsg.util.LauncherBenchmark [executable] [iterations] [heap sizes...]
+ * </pre>
+ *
+ * Defaults: {@code /bin/true}, 200 iterations, heap sizes 256m and 2g. Larger
+ * heaps have to be requested explicitly. Heap sizes that exceed half of the
+ * physical memory are skipped since the pre-touched heap would be resident.
+ */
+public class LauncherBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length > 0 && "--run".equals(args[0])) {
+            run(args[1], new File(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+
+        String executable = args.length > 0 ? args[0] : "/bin/true";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        List<String> heapSizes = args.length > 2
+                ? Arrays.asList(args).subList(2, args.length)
+                : Arrays.asList("256m", "2g");
+        long physicalMemory = physicalMemory();
+
+        System.out.println("executable: " + executable + ", iterations: " + iterations);
+        System.out.println(String.format("%-8s %-10s %12s", "heap", "mode", "avg [ms]"));
+
+        for (String heap : heapSizes) {
+            if (physicalMemory > 0 && parseSize(heap) > physicalMemory / 2) {
+                System.out.println(String.format("%-8s %-10s %12s", heap, "-", "skipped (physical memory: "
+                        + (physicalMemory >> 20) + "m)"));
+                continue;
+            }
+
+            for (String mode : Arrays.asList("direct", "launcher")) {
+                List<String> cmd = new ArrayList<>();
+                cmd.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+                cmd.add("-Xms" + heap);
+                cmd.add("-Xmx" + heap);
+                cmd.add("-XX:+AlwaysPreTouch");
+                cmd.add("-cp");
+                cmd.add(System.getProperty("java.class.path"));
+                cmd.add(LauncherBenchmark.class.getName());
+                cmd.add("--run");
+                cmd.add(mode);
+                cmd.add(executable);
+                cmd.add("" + iterations);
+
+                Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+                String result = new String(p.getInputStream().readAllBytes()).trim();
+                p.waitFor();
+
+                System.out.println(String.format("%-8s %-10s %12s", heap, mode, result));
+            }
+        }
+    }
+
+    /**
+     * Returns the physical memory of this machine in bytes.
+     *
+     * @return physical memory or {@code -1} if unknown
+     */
+    private static long physicalMemory() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a heap size as accepted by {@code -Xmx}, e.g., {@code 512m}.
+     *
+     * @param size heap size
+     * @return heap size in bytes
+     */
+    private static long parseSize(String size) {
+        String s = size.trim().toLowerCase();
+        int shift;
+        switch (s.charAt(s.length() - 1)) {
+            case 'k': shift = 10; break;
+            case 'm': shift = 20; break;
+            case 'g': shift = 30; break;
+            case 't': shift = 40; break;
+            default: return Long.parseLong(s);
+        }
+        return Long.parseLong(s.substring(0, s.length() - 1)) << shift;
+    }
+
+    private static void run(String mode, File executable, int iterations) throws IOException, InterruptedException {
+        WorkerPool pool = null;
+
+        if ("launcher".equals(mode)) {
+            pool = new WorkerPool(Launcher.command(executable), 1, 10_000, 60_000);
+            if (!pool.start()) {
+                throw new IllegalStateException("cannot start launcher");
+            }
+        }
+
+        // warm up
+        for (int i = 0; i < 10; i++) {
+            spawn(pool, executable);
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            spawn(pool, executable);
+        }
+
+        double avgMillis = (System.nanoTime() - start) / 1e6 / iterations;
+
+        if (pool != null) {
+            pool.close();
+        }
+
+        System.out.println(String.format("%.3f", avgMillis));
+    }
+
+    private static void spawn(WorkerPool pool, File executable) throws IOException, InterruptedException {
+        if (pool != null) {
+            pool.execute(null).join();
+        } else {
+            new ProcessBuilder(executable.getAbsolutePath()).start().waitFor();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+/**
+ * Tests the memory monitor.
+ */
+public class MemoryMonitorTest {
+
+    @Test
+    public void estimateTest() {
+        MemoryMonitor monitor = new MemoryMonitor(100);
+
+        long unknown = monitor.estimate("--csg union", 10 * 1024 * 1024);
+        assertTrue(unknown > 10 * 1024 * 1024);
+
+        // a union of 10 MB input needed 2 GB
+        monitor.record("--csg union", 10 * 1024 * 1024, 2048L * 1024 * 1024);
+
+        assertEquals(2048L * 1024 * 1024, monitor.getPeakMemory("--csg union"));
+        assertEquals(1, monitor.getProcesses("--csg union"));
+
+        // estimates scale with the input size
+        long small = monitor.estimate("--csg union", 1024 * 1024);
+        long large = monitor.estimate("--csg union", 100 * 1024 * 1024);
+        assertTrue(small < 2048L * 1024 * 1024);
+        assertTrue(large > 2048L * 1024 * 1024);
+
+        // smaller peaks decrease the estimate slowly
+        monitor.record("--csg union", 10 * 1024 * 1024, 1024L * 1024 * 1024);
+        long estimate = monitor.estimate("--csg union", 10 * 1024 * 1024);
+        assertTrue(estimate > 1024L * 1024 * 1024 && estimate < 2048L * 1024 * 1024);
+        assertEquals(2048L * 1024 * 1024, monitor.getPeakMemory("--csg union"));
+    }
+
+    @Test
+    public void sampleTest() throws IOException, InterruptedException {
+        MemoryMonitor monitor = new MemoryMonitor(20);
+        assumeTrue(monitor.isSupported());
+
+        long[] usage = MemoryMonitor.readUsage(ProcessHandle.current().pid());
+        assertNotNull(usage);
+        assertTrue(usage[0] > 0);
+
+        long[] cpu = MemoryMonitor.readCpuTimes(ProcessHandle.current().pid());
+        assertNotNull(cpu);
+        assertTrue(cpu[0] + cpu[1] > 0);
+
+        Process p = new ProcessBuilder("sleep", "0.5").start();
+
+        long[] reported = new long[1];
+        MemoryMonitor.Usage u = monitor.track("sleep", 0, p, bytes -> reported[0] = bytes);
+
+        assertEquals(0, p.waitFor());
+        p.onExit().join();
+
+        // completion handlers might still be running
+        for (int i = 0; i < 50 && monitor.getProcesses("sleep") == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, monitor.getProcesses("sleep"));
+        assertTrue(monitor.getPeakMemory("sleep") > 0);
+        assertTrue(reported[0] > 0);
+        assertEquals(monitor.getPeakMemory("sleep"), u.getPeakMemory());
+        assertTrue(u.getCpuNanos() >= 0);
+        assertEquals(0, monitor.getTracked());
+    }
+}
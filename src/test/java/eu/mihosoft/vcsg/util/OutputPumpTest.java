@@ -0,0 +1,112 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+/**
+ * Tests the output pump and the buffers it writes to.
+ */
+public class OutputPumpTest {
+
+    @Test
+    public void tailTest() {
+        OutputTail tail = new OutputTail(16);
+
+        byte[] first = "line 1\nline 2\n".getBytes(StandardCharsets.UTF_8);
+        tail.write(first, 0, first.length);
+        assertEquals("line 1\nline 2\n", tail.toString());
+
+        // older output is overwritten, the text starts with the first complete line
+        byte[] second = "line 3\nline 4\n".getBytes(StandardCharsets.UTF_8);
+        tail.write(second, 0, second.length);
+        assertEquals(28, tail.getWritten());
+        assertEquals("...line 3\nline 4\n", tail.toString());
+
+        // writes larger than the capacity keep their end
+        byte[] large = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+        tail.write(large, 0, large.length);
+        assertEquals("456789abcdefghij", new String(tail.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void captureTest() throws Exception {
+        OutputTail tail = new OutputTail(1024);
+        OutputCapture capture = new OutputCapture(8, tail);
+
+        capture.write("1234".getBytes(StandardCharsets.UTF_8), 0, 4);
+        capture.write("5678".getBytes(StandardCharsets.UTF_8), 0, 4);
+        // exceeds the buffer limit
+        capture.write("9".getBytes(StandardCharsets.UTF_8), 0, 1);
+        assertEquals(1, capture.getDropped());
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        capture.attach(target);
+        capture.write("abc".getBytes(StandardCharsets.UTF_8), 0, 3);
+
+        assertEquals("12345678abc", target.toString("UTF-8"));
+        // the tail receives everything
+        assertEquals("123456789abc", tail.toString());
+    }
+
+    @Test
+    public void pumpTest() throws Exception {
+        assumeTrue(new File("/bin/sh").canExecute());
+
+        // more output than fits into a pipe, nobody reads it until the process has terminated
+        Process proc = new ProcessBuilder("/bin/sh", "-c",
+                "i=0; while [ $i -lt 20000 ]; do echo \"output line $i\"; i=$((i+1)); done; echo failed >&2; exit 3").
+                start();
+
+        OutputPump pump = OutputPump.shared();
+
+        OutputCapture out = new OutputCapture(16 * 1024 * 1024, null);
+        OutputTail tail = new OutputTail(64);
+        OutputCapture err = new OutputCapture(1024, tail);
+
+        CompletableFuture<Void> drained = CompletableFuture.allOf(
+                pump.pump(proc, proc.getInputStream(), out),
+                pump.pump(proc, proc.getErrorStream(), err));
+
+        assertTrue("process stalled", proc.waitFor(30, TimeUnit.SECONDS));
+        drained.get(10, TimeUnit.SECONDS);
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        out.attach(target);
+
+        String[] lines = target.toString("UTF-8").split("\n");
+        assertEquals(20000, lines.length);
+        assertEquals("output line 19999", lines[lines.length - 1]);
+
+        assertEquals(3, proc.exitValue());
+        assertEquals("failed\n", tail.toString());
+    }
+
+    @Test
+    public void descendantTest() throws Exception {
+        assumeTrue(new File("/bin/sh").canExecute());
+
+        // the descendant inherits the pipe and keeps it open after the process has terminated
+        Process proc = new ProcessBuilder("/bin/sh", "-c", "sleep 60 & echo done").start();
+
+        try {
+            OutputCapture out = new OutputCapture(1024, null);
+            CompletableFuture<Void> drained = OutputPump.shared().pump(proc, proc.getInputStream(), out);
+
+            assertTrue("process stalled", proc.waitFor(30, TimeUnit.SECONDS));
+            drained.get(10, TimeUnit.SECONDS);
+
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            out.attach(target);
+            assertEquals("done\n", target.toString("UTF-8"));
+        } finally {
+            proc.descendants().forEach(ProcessHandle::destroyForcibly);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package eu.mihosoft.vcsg.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the process scheduler.
+ */
+public class ProcessSchedulerTest {
+
+    @Test
+    public void priorityTest() {
+        ProcessScheduler scheduler = new ProcessScheduler(1);
+
+        ProcessScheduler.Permit running = scheduler.acquire(ProcessScheduler.Priority.BATCH).join();
+
+        List<String> order = new ArrayList<>();
+        List<CompletableFuture<?>> queued = new ArrayList<>();
+
+        for (String name : new String[]{"batch", "normal", "interactive"}) {
+            ProcessScheduler.Priority p = name.equals("batch") ? ProcessScheduler.Priority.BATCH
+                    : name.equals("normal") ? ProcessScheduler.Priority.NORMAL
+                    : ProcessScheduler.Priority.INTERACTIVE;
+
+            queued.add(scheduler.acquire(p).thenAccept(permit -> {
+                order.add(name);
+                permit.release();
+            }));
+        }
+
+        assertEquals(3, scheduler.getQueueDepth());
+        assertEquals(1, scheduler.getQueueDepth(ProcessScheduler.Priority.INTERACTIVE));
+
+        running.release();
+        // releasing twice has no effect
+        running.release();
+
+        CompletableFuture.allOf(queued.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(3, order.size());
+        assertEquals("interactive", order.get(0));
+        assertEquals("normal", order.get(1));
+        assertEquals("batch", order.get(2));
+
+        assertEquals(0, scheduler.getRunning());
+        assertEquals(0, scheduler.getQueueDepth());
+        assertEquals(4, scheduler.getAdmitted());
+    }
+
+    @Test
+    public void adaptiveLimitTest() {
+        ProcessScheduler scheduler = new ProcessScheduler(1);
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 8, 2.0);
+
+        scheduler.setAdaptiveLimit(limit);
+        assertEquals(2, scheduler.getMaxConcurrency());
+
+        // saturated and no contention: the limit grows
+        for (int i = 0; i < 40; i++) {
+            limit.onSample("--csg union", 1_000_000, limit.getLimit());
+        }
+        int grown = limit.getLimit();
+        assertTrue(grown > 2);
+
+        // latencies of another kind of operation do not affect the baseline of unions
+        limit.onSample("--csg difference", 500_000_000, 1);
+        assertEquals(grown, limit.getLimit());
+
+        // contention: unions take considerably longer than their baseline
+        for (int i = 0; i < 20; i++) {
+            limit.onSample("--csg union", 5_000_000, limit.getLimit());
+        }
+        assertTrue(limit.getLimit() < grown);
+        assertTrue(limit.getDecreases() > 0);
+
+        // the scheduler applies the adaptive limit when permits are released
+        scheduler.acquire(ProcessScheduler.Priority.NORMAL, "--csg union").join().release();
+        assertEquals(limit.getLimit(), scheduler.getMaxConcurrency());
+
+        scheduler.setMaxConcurrency(100);
+        assertEquals(8, scheduler.getMaxConcurrency());
+
+        scheduler.setAdaptiveLimit(null);
+        scheduler.setMaxConcurrency(100);
+        assertEquals(100, scheduler.getMaxConcurrency());
+    }
+
+    @Test
+    public void heterogeneousLatencyTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(4, 1, 16, 2.0);
+        Random random = new Random(42);
+
+        // no contention: latencies vary with the operand sizes and the geometry
+        for (int i = 0; i < 400; i++) {
+            long inputBytes = (long) Math.pow(10, 3 + 3 * random.nextDouble());
+            long latencyNanos = (long) ((5_000_000 + 100 * inputBytes) * (0.5 + random.nextDouble()));
+            limit.onSample(i % 2 == 0 ? "--csg union" : "--csg difference", latencyNanos, inputBytes,
+                    limit.getLimit());
+        }
+
+        assertTrue(limit.getLatencyRatio() < 2.0);
+        assertTrue("limit collapsed: " + limit, limit.getLimit() >= 4);
+    }
+
+    @Test
+    public void memoryBudgetTest() {
+        ProcessScheduler scheduler = new ProcessScheduler(8);
+        scheduler.setMemoryBudget(1000);
+
+        ProcessScheduler.Permit a = scheduler.acquire(ProcessScheduler.Priority.NORMAL, "a", 600).join();
+
+        // exceeds the budget
+        CompletableFuture<ProcessScheduler.Permit> b = scheduler.acquire(ProcessScheduler.Priority.NORMAL, "b", 600);
+        // fits, but must not overtake b
+        CompletableFuture<ProcessScheduler.Permit> c = scheduler.acquire(ProcessScheduler.Priority.NORMAL, "c", 100);
+
+        assertFalse(b.isDone());
+        assertFalse(c.isDone());
+        assertEquals(600, scheduler.getReservedMemory());
+        assertTrue(scheduler.getMemoryDeferrals() > 0);
+
+        a.release();
+
+        assertTrue(b.isDone());
+        assertTrue(c.isDone());
+        assertEquals(700, scheduler.getReservedMemory());
+
+        // actual usage beyond the estimate increases the reservation
+        b.join().updateMemoryUsage(850);
+        assertEquals(950, scheduler.getReservedMemory());
+
+        CompletableFuture<ProcessScheduler.Permit> d = scheduler.acquire(ProcessScheduler.Priority.NORMAL, "d", 100);
+        assertFalse(d.isDone());
+
+        b.join().release();
+        c.join().release();
+        assertTrue(d.isDone());
+
+        // a process that exceeds the budget on its own runs if nothing else runs
+        d.join().release();
+        ProcessScheduler.Permit huge = scheduler.acquire(ProcessScheduler.Priority.NORMAL, "huge", 5000).join();
+        huge.release();
+
+        assertEquals(0, scheduler.getReservedMemory());
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    public void externalMemoryTest() {
+        ProcessScheduler scheduler = new ProcessScheduler(8);
+        scheduler.setMemoryBudget(1000);
+
+        // e.g., files in a tmpfs
+        AtomicLong external = new AtomicLong(500);
+        scheduler.setExternalMemoryUsage(external::get);
+
+        ProcessScheduler.Permit a = scheduler.acquire(ProcessScheduler.Priority.NORMAL, "a", 400).join();
+
+        // fits into the budget, but not into the memory that is left
+        CompletableFuture<ProcessScheduler.Permit> b = scheduler.acquire(ProcessScheduler.Priority.NORMAL, "b", 200);
+        assertFalse(b.isDone());
+
+        external.set(0);
+        scheduler.setExternalMemoryUsage(external::get);
+        assertTrue(b.isDone());
+
+        a.release();
+        b.join().release();
+    }
+
+    @Test
+    public void cancelQueuedTest() {
+        ProcessScheduler scheduler = new ProcessScheduler(1);
+
+        ProcessScheduler.Permit running = scheduler.acquire(ProcessScheduler.Priority.NORMAL).join();
+        CompletableFuture<ProcessScheduler.Permit> queued = scheduler.acquire(ProcessScheduler.Priority.NORMAL);
+
+        assertEquals(1, scheduler.getQueueDepth());
+
+        // cancelled requests leave the queue immediately
+        queued.cancel(false);
+        assertEquals(0, scheduler.getQueueDepth());
+
+        // discarded permits free their slot
+        running.discard();
+        assertEquals(0, scheduler.getRunning());
+        assertEquals(1, scheduler.getAdmitted());
+    }
+}
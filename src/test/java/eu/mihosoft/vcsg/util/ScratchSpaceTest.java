@@ -0,0 +1,195 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the scratch space for intermediate shape files.
+ */
+public class ScratchSpaceTest {
+
+    @Test
+    public void releaseTest() throws Exception {
+        ScratchSpace space = ScratchSpace.open(Files.createTempDirectory("scratch-test").toFile(), 1024, null);
+
+        ScratchFile f = space.newFile(".brep");
+        assertTrue(f.getFile().getName().endsWith(".brep"));
+        // files are stored in shard folders
+        assertEquals(space.getRoot(), f.getFile().getParentFile().getParentFile());
+
+        Files.write(f.getFile().toPath(), new byte[100]);
+        f.seal();
+        assertEquals(100, space.getSize());
+        assertEquals(1, space.getFiles());
+
+        f.retain();
+        f.retain();
+        f.release();
+        assertTrue(f.getFile().exists());
+
+        // the last reference deletes the file
+        f.release();
+        assertTrue(f.isDeleted());
+        assertEquals(0, space.getSize());
+        assertEquals(0, space.getFiles());
+        assertEquals(1, space.getDeleted());
+        awaitDeleted(f.getFile());
+
+        try {
+            f.retain();
+            fail("deleted files must not be retained");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+
+        space.close();
+    }
+
+    @Test
+    public void overflowTest() throws Exception {
+        File dir = Files.createTempDirectory("scratch-test").toFile();
+        ScratchSpace disk = ScratchSpace.open(dir, Long.MAX_VALUE, null);
+        ScratchSpace space = ScratchSpace.open(dir, 10, disk);
+
+        ScratchFile first = space.newFile(".brep");
+        Files.write(first.getFile().toPath(), new byte[20]);
+        first.seal();
+
+        // the quota is exceeded
+        ScratchFile second = space.newFile(".brep");
+        assertEquals(1, space.getOverflows());
+        assertTrue(second.getFile().getAbsolutePath().startsWith(disk.getRoot().getAbsolutePath()));
+
+        // the quota is available again once the first file has been deleted
+        first.delete();
+        ScratchFile third = space.newFile(".brep");
+        assertTrue(third.getFile().getAbsolutePath().startsWith(space.getRoot().getAbsolutePath()));
+
+        space.close();
+        disk.close();
+    }
+
+    @Test
+    public void spillTest() throws Exception {
+        File dir = Files.createTempDirectory("scratch-test").toFile();
+        ScratchSpace disk = ScratchSpace.open(dir, Long.MAX_VALUE, null);
+        ScratchSpace space = ScratchSpace.open(dir, 1024, disk);
+        space.setSpillThreshold(10);
+
+        ScratchFile small = space.newFile(".brep");
+        Files.write(small.getFile().toPath(), new byte[10]);
+        small.seal();
+        assertSame(space, small.getSpace());
+
+        // large files are moved to the overflow space once they are complete
+        ScratchFile large = space.newFile(".brep");
+        File before = large.getFile();
+        Files.write(before.toPath(), new byte[20]);
+        large.seal();
+
+        assertSame(disk, large.getSpace());
+        assertFalse(before.exists());
+        assertTrue(large.getFile().getName().endsWith(".brep"));
+        assertEquals(20, large.getFile().length());
+
+        assertEquals(1, space.getSpills());
+        assertEquals(10, space.getSize());
+        assertEquals(20, disk.getSize());
+        assertEquals(1, space.getFiles());
+        assertEquals(1, disk.getFiles());
+
+        large.delete();
+        assertEquals(0, disk.getSize());
+        awaitDeleted(large.getFile());
+
+        space.close();
+        disk.close();
+    }
+
+    @Test
+    public void reservationTest() throws Exception {
+        File dir = Files.createTempDirectory("scratch-test").toFile();
+        ScratchSpace disk = ScratchSpace.open(dir, Long.MAX_VALUE, null);
+        ScratchSpace space = ScratchSpace.open(dir, 100, disk);
+        space.setSpillThreshold(40);
+
+        // files that are still being written reserve the spill threshold
+        ScratchFile first = space.newFile(".brep");
+        ScratchFile second = space.newFile(".brep");
+        ScratchFile third = space.newFile(".brep");
+        assertEquals(120, space.getReserved());
+        assertEquals(0, space.getSize());
+
+        // the reservations exhaust the quota
+        ScratchFile fourth = space.newFile(".brep");
+        assertSame(disk, fourth.getSpace());
+        assertEquals(1, space.getOverflows());
+
+        // completed files count with their actual size
+        Files.write(first.getFile().toPath(), new byte[10]);
+        first.seal();
+        assertEquals(80, space.getReserved());
+        assertEquals(10, space.getSize());
+
+        // deleted files release their reservation
+        second.delete();
+        third.delete();
+        assertEquals(0, space.getReserved());
+        assertSame(space, space.newFile(".brep").getSpace());
+
+        space.close();
+        disk.close();
+    }
+
+    @Test
+    public void quotaTest() throws Exception {
+        ScratchSpace space = ScratchSpace.open(Files.createTempDirectory("scratch-test").toFile(), 10, null);
+
+        ScratchFile f = space.newFile(".brep");
+        Files.write(f.getFile().toPath(), new byte[20]);
+        f.seal();
+
+        try {
+            space.newFile(".brep");
+            fail("quota must be enforced");
+        } catch (IOException ex) {
+            // expected
+        }
+
+        // deleted files are accounted for immediately
+        f.delete();
+        assertTrue(space.newFile(".brep").getFile().exists());
+
+        space.close();
+    }
+
+    @Test
+    public void unreachableTest() throws Exception {
+        ScratchSpace space = ScratchSpace.open(Files.createTempDirectory("scratch-test").toFile(), 1024, null);
+
+        File f = space.newFile(".brep").getFile();
+        assertTrue(f.exists());
+
+        // the handle is unreachable, i.e., the file is deleted after gc
+        for (int i = 0; i < 100 && f.exists(); i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        assertFalse(f.exists());
+        assertEquals(0, space.getFiles());
+
+        space.close();
+    }
+
+    private static void awaitDeleted(File f) throws InterruptedException {
+        for (int i = 0; i < 100 && f.exists(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(f.exists());
+    }
+}
@@ -0,0 +1,101 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Java stand-in for an occ-csg worker process. Implements the worker protocol
+ * (see {@link WorkerPool}) without OCC. Supported commands:
+ *
+ * <pre>
+ * echo &lt;arg&gt;...      prints each argument as output line
+ * err &lt;msg&gt;          prints the message as error line, exit value 1
+ * exit &lt;n&gt;           exit value n
+ * crash              terminates the worker without answering
+ * crash-once &lt;file&gt;  terminates the worker if the file does not exist (and creates it)
+ * mute               stops answering health checks
+ * </pre>
+ *
+ * Started with {@code --unsupported}, the stand-in behaves like a binary
+ * without worker support.
+ */
+public class StandInWorker {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        PrintStream out = new PrintStream(System.out, true, "UTF-8");
+
+        if (args.length > 0 && "--unsupported".equals(args[0])) {
+            out.println("usage: occ-csg --create|--csg|...");
+            System.exit(1);
+        }
+
+        out.println("READY\t" + WorkerPool.PROTOCOL_VERSION);
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        boolean mute = false;
+
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            List<String> fields = WorkerPool.split(line);
+
+            switch (fields.get(0)) {
+                case "PING":
+                    if (!mute) {
+                        out.println("PONG");
+                    }
+                    break;
+                case "QUIT":
+                    return;
+                case "RUN":
+                    // fields: RUN, wd, command, arguments
+                    List<String> cmd = fields.subList(2, fields.size());
+                    switch (cmd.get(0)) {
+                        case "echo":
+                            for (String a : cmd.subList(1, cmd.size())) {
+                                out.println("OUT\t" + WorkerPool.escape(a));
+                            }
+                            out.println("EXIT\t0");
+                            break;
+                        case "err":
+                            out.println("ERR\t" + WorkerPool.escape(cmd.get(1)));
+                            out.println("EXIT\t1");
+                            break;
+                        case "exit":
+                            out.println("EXIT\t" + cmd.get(1));
+                            break;
+                        case "crash":
+                            System.exit(13);
+                            break;
+                        case "crash-once":
+                            File marker = new File(cmd.get(1));
+                            if (marker.createNewFile()) {
+                                System.exit(13);
+                            }
+                            out.println("EXIT\t0");
+                            break;
+                        case "hang":
+                            Thread.sleep(Long.MAX_VALUE);
+                            break;
+                        case "mute":
+                            mute = true;
+                            out.println("EXIT\t0");
+                            break;
+                        default:
+                            out.println("ERR\tunknown command " + WorkerPool.escape(cmd.get(0)));
+                            out.println("EXIT\t2");
+                    }
+                    break;
+                default:
+                    // ignore unknown messages
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package eu.mihosoft.vcsg.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Tests the worker pool with the Java stand-in worker.
+ */
+public class WorkerPoolTest {
+
+    private static List<String> standInCommand(String... args) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(StandInWorker.class.getName());
+        cmd.addAll(Arrays.asList(args));
+        return cmd;
+    }
+
+    @Test
+    public void executeTest() {
+        try (WorkerPool pool = new WorkerPool(standInCommand(), 2, 10_000, 30_000)) {
+            assertTrue(pool.start());
+
+            List<CompletableFuture<WorkerPool.Result>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(pool.execute(null, "echo", "line " + i, "tab\tand\nnewline"));
+            }
+
+            for (int i = 0; i < 10; i++) {
+                WorkerPool.Result r = results.get(i).join();
+                assertEquals(0, r.getExitValue());
+                assertEquals(Arrays.asList("line " + i, "tab\tand\nnewline"), r.getOut());
+            }
+
+            WorkerPool.Result err = pool.execute(null, "err", "failure").join();
+            assertEquals(1, err.getExitValue());
+            assertEquals(Arrays.asList("failure"), err.getErr());
+
+            assertEquals(11, pool.getExecutions());
+        }
+    }
+
+    @Test
+    public void unsupportedTest() {
+        WorkerPool pool = new WorkerPool(standInCommand("--unsupported"), 1, 10_000, 30_000);
+        assertFalse(pool.start());
+    }
+
+    @Test
+    public void restartOnCrashTest() throws IOException {
+        File marker = new File(Files.createTempDirectory("vcsg-worker").toFile(), "crashed");
+
+        try (WorkerPool pool = new WorkerPool(standInCommand(), 1, 10_000, 30_000)) {
+            assertTrue(pool.start());
+
+            // crashes once, succeeds on the restarted worker
+            assertEquals(0, pool.execute(null, "crash-once", marker.getAbsolutePath()).join().getExitValue());
+            assertEquals(1, pool.getRestarts());
+
+            // crashes twice, fails
+            try {
+                pool.execute(null, "crash").join();
+                fail("expected failure");
+            } catch (CompletionException ex) {
+                assertTrue(ex.getCause() instanceof RuntimeException);
+            }
+
+            assertEquals(Arrays.asList("ok"), pool.execute(null, "echo", "ok").join().getOut());
+        }
+    }
+
+    @Test
+    public void abortTest() {
+        try (WorkerPool pool = new WorkerPool(standInCommand(), 1, 10_000, 30_000)) {
+            assertTrue(pool.start());
+
+            // the deadline kills the worker
+            try {
+                pool.execute(null, CancellationToken.none(), 200_000_000L, "hang").join();
+                fail("expected timeout");
+            } catch (CancellationException ex) {
+                assertTrue(ex.getMessage().startsWith("deadline exceeded"));
+            }
+
+            assertEquals(Arrays.asList("ok"), pool.execute(null, "echo", "ok").join().getOut());
+
+            // cancellation kills the worker
+            CancellationToken token = CancellationToken.create();
+            CompletableFuture<WorkerPool.Result> hanging = pool.execute(null, token, 0, "hang");
+            CompletableFuture<WorkerPool.Result> queued = pool.execute(null, token, 0, "echo", "queued");
+            token.cancel();
+
+            for (CompletableFuture<WorkerPool.Result> f : Arrays.asList(hanging, queued)) {
+                try {
+                    f.join();
+                    fail("expected cancellation");
+                } catch (CancellationException ex) {
+                    // expected
+                }
+            }
+
+            assertEquals(Arrays.asList("ok"), pool.execute(null, "echo", "ok").join().getOut());
+            assertTrue(pool.getRestarts() >= 1);
+        }
+    }
+
+    @Test
+    public void launcherTest() {
+        Assume.assumeTrue(new File("/bin/echo").isFile());
+
+        try (WorkerPool pool = new WorkerPool(Launcher.command(new File("/bin/echo")), 1, 10_000, 30_000)) {
+            assertTrue(pool.start());
+
+            WorkerPool.Result r = pool.execute(null, "hello", "launcher").join();
+
+            assertEquals(0, r.getExitValue());
+            assertEquals(Arrays.asList("hello launcher"), r.getOut());
+        }
+    }
+
+    @Test
+    public void healthCheckTest() throws InterruptedException {
+        try (WorkerPool pool = new WorkerPool(standInCommand(), 1, 500, 100)) {
+            assertTrue(pool.start());
+
+            pool.execute(null, "mute").join();
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (pool.getRestarts() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+
+            assertTrue(pool.getRestarts() > 0);
+            assertEquals(Arrays.asList("ok"), pool.execute(null, "echo", "ok").join().getOut());
+        }
+    }
+}
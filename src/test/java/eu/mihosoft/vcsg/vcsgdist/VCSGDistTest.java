@@ -0,0 +1,125 @@
+package eu.mihosoft.vcsg.vcsgdist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the extraction of the vcsg distribution.
+ */
+public class VCSGDistTest {
+
+    @Test
+    public void unzipTest() throws IOException {
+        byte[] large = new byte[10 * 1024 * 1024];
+        Arrays.fill(large, (byte) 'x');
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("bin/"));
+            zip.closeEntry();
+
+            // stored entries have a known size
+            putStored(zip, "bin/occ-csg", "binary".getBytes(StandardCharsets.UTF_8));
+            putStored(zip, "lib/large.so", large);
+
+            // deflated entries written by a stream have an unknown size
+            zip.putNextEntry(new ZipEntry("lib/deflated.so"));
+            zip.write("deflated".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        Path dest = Files.createTempDirectory("vcsgdist-test");
+
+        VCSGDist.unzip(new ByteArrayInputStream(bytes.toByteArray()), dest, null);
+
+        assertEquals("binary", new String(Files.readAllBytes(dest.resolve("bin/occ-csg")), StandardCharsets.UTF_8));
+        assertEquals("deflated", new String(Files.readAllBytes(dest.resolve("lib/deflated.so")), StandardCharsets.UTF_8));
+        assertArrayEquals(large, Files.readAllBytes(dest.resolve("lib/large.so")));
+    }
+
+    @Test
+    public void incrementalUpdateTest() throws IOException {
+        Path v1 = Files.createTempDirectory("vcsgdist-v1");
+        Path v2 = Files.createTempDirectory("vcsgdist-v2");
+
+        DistManifest m1 = VCSGDist.unzip(new ByteArrayInputStream(zip("binary 1", "library")), v1, null);
+        assertEquals(2, m1.size());
+        assertTrue(m1.verify(v1).isEmpty());
+
+        // only the binary changed
+        VCSGDist.unzip(new ByteArrayInputStream(zip("binary 2", "library")), v2, v1);
+
+        DistManifest m2 = DistManifest.read(v2);
+        assertEquals(2, m2.size());
+
+        assertEquals("binary 2", new String(Files.readAllBytes(v2.resolve("bin/occ-csg")), StandardCharsets.UTF_8));
+        assertEquals("binary 1", new String(Files.readAllBytes(v1.resolve("bin/occ-csg")), StandardCharsets.UTF_8));
+        assertEquals("library", new String(Files.readAllBytes(v2.resolve("lib/libocc.so")), StandardCharsets.UTF_8));
+
+        // the unchanged library is shared, the binary is not
+        assertTrue(Files.isSameFile(v1.resolve("lib/libocc.so"), v2.resolve("lib/libocc.so")));
+        assertFalse(Files.isSameFile(v1.resolve("bin/occ-csg"), v2.resolve("bin/occ-csg")));
+
+        // damaged installations are detected without reading the files
+        Files.write(v2.resolve("bin/occ-csg"), new byte[]{1});
+        assertEquals(Collections.singletonList("bin/occ-csg"), m2.verify(v2));
+    }
+
+    @Test
+    public void entryOutsideOfDestinationTest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            putStored(zip, "../evil", new byte[]{1});
+        }
+
+        Path dest = Files.createTempDirectory("vcsgdist-test");
+
+        try {
+            VCSGDist.unzip(new ByteArrayInputStream(bytes.toByteArray()), dest.resolve("dist"), null);
+            fail("entry outside of the destination folder must be rejected");
+        } catch (IOException ex) {
+            // expected
+        }
+
+        assertFalse(Files.exists(dest.resolve("evil")));
+    }
+
+    private static void putStored(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        ZipEntry e = new ZipEntry(name);
+        e.setMethod(ZipEntry.STORED);
+        e.setSize(content.length);
+        e.setCrc(crc.getValue());
+
+        zip.putNextEntry(e);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static byte[] zip(String binary, String library) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            putStored(zip, "bin/occ-csg", binary.getBytes(StandardCharsets.UTF_8));
+            putStored(zip, "lib/libocc.so", library.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return bytes.toByteArray();
+    }
+}